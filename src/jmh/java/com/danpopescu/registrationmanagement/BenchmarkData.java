@@ -0,0 +1,110 @@
+package com.danpopescu.registrationmanagement;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Generates the guests used by the benchmarks
+ */
+final class BenchmarkData {
+
+    // number of prepared queries, a power of two so the next one is picked with a mask
+    static final int QUERIES = 1024;
+
+    // syllables of the realistic names: about 2000 last names and 300 first names
+    private static final String[] LAST_NAME_STARTS = {"Pop", "Ion", "Dumitr", "Stan", "Radu", "Munteanu", "Constantin",
+            "Gheorghi", "Marin", "Tudor", "Florea", "Dinu", "Barbu", "Neagu", "Lazar", "Ene", "Vasil", "Moldov",
+            "Cristea", "Toma", "Ciobanu", "Olteanu", "Nistor", "Serban", "Mihai", "Dobre", "Preda", "Rusu", "Stoica",
+            "Matei", "Albu", "Voicu", "Zamfir", "Ursu", "Anghel", "Iordache", "Manole", "Coman", "Dragomir", "Sandu"};
+    private static final String[] LAST_NAME_ENDS = {"escu", "eanu", "ache", "oiu", "ariu", "ica", "uta", "an", "ea",
+            "ciuc", "ovici", "oaie", "aru", "ilă", "ăscu", "ănescu", "inescu", "oveanu", "ulescu", "iţă", "easă", "uc",
+            "ăreanu", "eţ", "ilescu", "aş", "ura", "ean", "ar", "ut", "iu", "oi", "elea", "ia", "ici", "escul", "ar",
+            "atu", "inca", "oveţ", "ana", "ele", "eşan", "iuc", "oreanu", "ucu", "ila", "ău", "arcea", "ite"};
+    private static final String[] FIRST_NAME_STARTS = {"Andr", "Mari", "Ion", "Elen", "Alex", "Ştef", "Mihai",
+            "Cristi", "Dan", "Ana", "Vlad", "Gabri", "Ioan", "Radu", "Flori", "Adri", "Bogd", "Cosmin", "Diana", "Emil",
+            "George", "Iuli", "Laur", "Sori", "Tudor"};
+    private static final String[] FIRST_NAME_ENDS = {"", "a", "ei", "ela", "ana", "ina", "an", "el", "ica", "uţa",
+            "ian", "eea"};
+
+    // the email domains of the realistic guests, each repeated by its weight
+    private static final String[] EMAIL_DOMAINS = {"gmail.com", "gmail.com", "gmail.com", "gmail.com", "gmail.com",
+            "gmail.com", "gmail.com", "gmail.com", "gmail.com", "gmail.com", "yahoo.com", "yahoo.com", "yahoo.com",
+            "yahoo.com", "yahoo.com", "yahoo.ro", "yahoo.ro", "hotmail.com", "hotmail.com", "outlook.com", "icloud.com",
+            "mail.ru", "protonmail.com", "upb.ro", "ubbcluj.ro"};
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Return a guest with a realistic name for every i: the names repeat like common names do,
+     * and some of them have diacritics
+     */
+    static Guest namedGuest(int i) {
+        int last = (int) ((i * 2654435761L) & Integer.MAX_VALUE);
+        int first = (int) ((i * 40503L + 17) & Integer.MAX_VALUE);
+        return new Guest(FIRST_NAME_STARTS[first % FIRST_NAME_STARTS.length] +
+                FIRST_NAME_ENDS[first / FIRST_NAME_STARTS.length % FIRST_NAME_ENDS.length],
+                LAST_NAME_STARTS[last % LAST_NAME_STARTS.length] +
+                LAST_NAME_ENDS[last / LAST_NAME_STARTS.length % LAST_NAME_ENDS.length],
+                "guest" + i + "@gmail.com", "+40" + String.format("%09d", i));
+    }
+
+    /**
+     * Return a guest with a random realistic name: the first syllables of the lists are picked
+     * more often, so a few names are common and most are rare, as in a real population.
+     * The email (e.g. andrei.popescu42@yahoo.com) and the +407 phone number are derived from id,
+     * so they are distinct for distinct ids below 100.000.000.
+     */
+    static Guest randomGuest(SplittableRandom random, int id) {
+        String firstName = skewed(random, FIRST_NAME_STARTS) + FIRST_NAME_ENDS[random.nextInt(FIRST_NAME_ENDS.length)];
+        String lastName = skewed(random, LAST_NAME_STARTS) + LAST_NAME_ENDS[random.nextInt(LAST_NAME_ENDS.length)];
+        String email = ascii(firstName) + (random.nextBoolean() ? "." : "") + ascii(lastName) + id + "@" +
+                EMAIL_DOMAINS[random.nextInt(EMAIL_DOMAINS.length)];
+        // an odd multiplier not divisible by 5 maps the ids below 10^8 to distinct numbers
+        long number = id * 2654435761L % 100_000_000L;
+        return new Guest(firstName, lastName, email, "+407" + String.format("%08d", number));
+    }
+
+    private static String skewed(SplittableRandom random, String[] values) {
+        double r = random.nextDouble();
+        return values[(int) (r * r * values.length)];
+    }
+
+    private static String ascii(String name) {
+        return Normalizer.normalize(name, Normalizer.Form.NFD).replaceAll("[^A-Za-z]", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Return a distinct guest for every i. Guests with i < 0 are never registered
+     * by fill(), so they can be used as misses.
+     */
+    static Guest guest(int i) {
+        return new Guest("First" + i, "Last" + i, "guest" + i + "@gmail.com",
+                "+40" + String.format("%09d", i & Integer.MAX_VALUE) + (i < 0 ? "9" : ""));
+    }
+
+    /**
+     * Create a list with size registrants, of which waitListPercent are on the wait list
+     */
+    static GuestsList fill(int size, int waitListPercent) {
+        GuestsList list = new GuestsList(size - size * waitListPercent / 100);
+        for (int i = 0; i < size; i++) {
+            list.add(guest(i));
+        }
+        return list;
+    }
+
+    /**
+     * Prepare QUERIES guests to look up, hitPercent of them registered and the rest not
+     */
+    static Guest[] queries(int size, int hitPercent, long seed) {
+        Random random = new Random(seed);
+        Guest[] queries = new Guest[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            queries[q] = random.nextInt(100) < hitPercent ? guest(random.nextInt(size)) : guest(-1 - q);
+        }
+        return queries;
+    }
+}
@@ -0,0 +1,49 @@
+package com.danpopescu.registrationmanagement;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of creating, hashing and comparing guests
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GuestBenchmark {
+
+    Guest guest = new Guest("Vali", "Ionescu", "vali@gmail.com", "+40775534075");
+    Guest equalGuest = new Guest("VALI", "IONESCU", "VALI@GMAIL.COM", "+40775534075");
+    String firstName = "Vali";
+
+    @Benchmark
+    public Guest create() {
+        return new Guest(firstName, "Ionescu", "vali@gmail.com", "+40775534075");
+    }
+
+    @Benchmark
+    public int hashCodeCached() {
+        return guest.hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsIgnoringCase() {
+        return guest.equals(equalGuest);
+    }
+
+    @Benchmark
+    public boolean anyFieldContains() {
+        return guest.anyFieldContains("gmail");
+    }
+}
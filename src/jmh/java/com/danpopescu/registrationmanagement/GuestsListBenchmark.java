@@ -0,0 +1,179 @@
+package com.danpopescu.registrationmanagement;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the GuestsList operations for different list sizes, wait list depths
+ * and ratios of lookups that find a registered guest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GuestsListBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int size;
+
+    // percentage of the registrants that are on the wait list
+    @Param({"0", "50"})
+    int waitListPercent;
+
+    // percentage of the lookups that find a registered guest
+    @Param({"100", "50", "0"})
+    int hitPercent;
+
+    // record the latencies in a GuestsListMetrics, to measure its overhead
+    @Param({"false", "true"})
+    boolean metrics;
+
+    GuestsList list;
+    Guest[] queries;
+    Guest[] registered;
+    Guest newGuest;
+    int next;
+
+    @Setup
+    public void setup() {
+        list = BenchmarkData.fill(size, waitListPercent);
+        if (metrics) {
+            list.setMetrics(new GuestsListMetrics());
+        }
+        queries = BenchmarkData.queries(size, hitPercent, 42);
+        registered = new Guest[BenchmarkData.QUERIES];
+        for (int q = 0; q < registered.length; q++) {
+            registered[q] = list.getByEmail(BenchmarkData.guest((int) ((long) q * size / registered.length)).getEmail()).get();
+        }
+        newGuest = BenchmarkData.guest(-1);
+    }
+
+    private Guest nextQuery() {
+        return queries[next++ & (BenchmarkData.QUERIES - 1)];
+    }
+
+    @Benchmark
+    public int addThenRemove() {
+        // the list is booked up, so the new guest goes to the end of the wait list
+        list.add(newGuest);
+        return list.remove(newGuest);
+    }
+
+    @Benchmark
+    public int addDuplicate() {
+        return list.add(registered[next++ & (BenchmarkData.QUERIES - 1)]);
+    }
+
+    @Benchmark
+    public int addAll() {
+        int[] codes = list.addAll(List.of(newGuest, newGuest));
+        list.remove(newGuest);
+        return codes[1];
+    }
+
+    @Benchmark
+    public int checkByName() {
+        Guest guest = nextQuery();
+        return list.checkByName(guest.getFirstName(), guest.getLastName());
+    }
+
+    @Benchmark
+    public int checkByEmail() {
+        return list.checkByEmail(nextQuery().getEmail());
+    }
+
+    @Benchmark
+    public int checkByPhone() {
+        return list.checkByPhone(nextQuery().getPhoneNumber());
+    }
+
+    @Benchmark
+    public int check() {
+        return list.check(nextQuery());
+    }
+
+    @Benchmark
+    public Optional<Guest> getByName() {
+        Guest guest = nextQuery();
+        return list.getByName(guest.getFirstName(), guest.getLastName());
+    }
+
+    @Benchmark
+    public Optional<Guest> getByEmail() {
+        return list.getByEmail(nextQuery().getEmail());
+    }
+
+    @Benchmark
+    public Optional<Guest> getByPhone() {
+        return list.getByPhone(nextQuery().getPhoneNumber());
+    }
+
+    /**
+     * Removing a confirmed guest promotes the first guest on the wait list. The removed
+     * guest is registered again, at the end, so the size of the list does not change.
+     */
+    @Benchmark
+    public int removeByEmailThenAdd() {
+        Guest guest = registered[next++ & (BenchmarkData.QUERIES - 1)];
+        int code = list.removeByEmail(guest.getEmail());
+        list.add(guest);
+        return code;
+    }
+
+    @Benchmark
+    public int removeByNameMiss() {
+        return list.removeByName(newGuest.getFirstName(), newGuest.getLastName());
+    }
+
+    @Benchmark
+    public int removeByPhoneThenAdd() {
+        Guest guest = registered[next++ & (BenchmarkData.QUERIES - 1)];
+        int code = list.removeByPhone(guest.getPhoneNumber());
+        list.add(guest);
+        return code;
+    }
+
+    @Benchmark
+    public boolean update() {
+        Guest guest = registered[next++ & (BenchmarkData.QUERIES - 1)];
+        String email = guest.getEmail();
+        list.update(guest, GuestField.EMAIL, "updated." + email);
+        return list.update(guest, GuestField.EMAIL, email);
+    }
+
+    @Benchmark
+    public List<Guest> getGuestsPage() {
+        return list.getGuestsPage(size / 3, 50);
+    }
+
+    @Benchmark
+    public List<Guest> getGuestsList() {
+        return list.getGuestsList();
+    }
+
+    @Benchmark
+    public List<Guest> getWaitList() {
+        return list.getWaitList();
+    }
+
+    @Benchmark
+    public int counters() {
+        return list.getNoAvailablePlaces() + list.getTotalNoParticipants() + list.getTotalNoWaiting()
+                + list.getTotalNoRegistered() + list.getNumberOfPlaces();
+    }
+}
@@ -0,0 +1,49 @@
+package com.danpopescu.registrationmanagement;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Measures the heap retained by a GuestsList per registered guest: the Guests, their Strings and
+ * the entries of the lookup indexes. The guests are generated by BenchmarkData.randomGuest(), as if
+ * they were read from a CSV file, so every guest comes with its own Strings.
+ *
+ * The heap is measured after full collections, before and after the list is filled, so the result
+ * is stable with a stop-the-world collector. Run, after mvn -P jmh compile:
+ *      java -XX:+UseSerialGC -cp target/classes com.danpopescu.registrationmanagement.GuestsListFootprint
+ *          [guests, default 300000] [places, default 2/3 of the guests]
+ */
+public class GuestsListFootprint {
+
+    private static final int COLLECTIONS = 5;
+
+    public static void main(String[] args) {
+        int guests = args.length > 0 ? Integer.parseInt(args[0]) : 300_000;
+        int places = args.length > 1 ? Integer.parseInt(args[1]) : guests / 3 * 2;
+
+        long before = usedHeap();
+        GuestsList list = new GuestsList(places);
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < guests; i++) {
+            list.add(BenchmarkData.randomGuest(random, i));
+        }
+        long after = usedHeap();
+
+        System.out.printf(Locale.ROOT, "%d guests (%d on the waitlist): %.1f bytes per guest%n",
+                list.getTotalNoRegistered(), list.getTotalNoWaiting(), (after - before) / (double) guests);
+        // keep the list reachable until it has been measured
+        if (list.getTotalNoRegistered() != guests) {
+            throw new IllegalStateException("Some guests were not registered");
+        }
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < COLLECTIONS; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,97 @@
+package com.danpopescu.registrationmanagement;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Load client for com.danpopescu.registrationmanagement.GuestsHttpServer. Every thread sends its requests
+ * one after the other: 30% add, 60% check by email and 10% remove by phone, over a fixed set of guests.
+ * At the end, the throughput and the latency percentiles are printed.
+ *
+ * Start the server with Main --http 8080 and run, after mvn -P jmh compile:
+ *      java -cp target/classes com.danpopescu.registrationmanagement.HttpLoadClient [url] [event] [threads] [requests per thread]
+ */
+public class HttpLoadClient {
+
+    private static final int GUESTS = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "http://localhost:8080";
+        String event = args.length > 1 ? args[1] : "load";
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int requests = args.length > 3 ? Integer.parseInt(args[3]) : 20_000;
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        // 201 if the event is created, 409 if it already exists
+        send(client, HttpRequest.newBuilder(URI.create(url + "/events/" + event + "?places=" + GUESTS / 2))
+                .PUT(HttpRequest.BodyPublishers.noBody()).build());
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<long[]>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            futures.add(executor.submit(() -> run(client, url + "/events/" + event, requests, seed)));
+        }
+        long[] latencies = new long[threads * requests];
+        for (int t = 0; t < threads; t++) {
+            System.arraycopy(futures.get(t).get(), 0, latencies, t * requests, requests);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+
+        Arrays.sort(latencies);
+        System.out.printf("%d cereri in %.3f s: %.0f cereri/s%n", latencies.length, seconds, latencies.length / seconds);
+        System.out.printf("latenta (us): p50 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+                percentile(latencies, 50), percentile(latencies, 99), percentile(latencies, 99.9),
+                latencies[latencies.length - 1] / 1e3);
+    }
+
+    private static long[] run(HttpClient client, String eventUrl, int requests, long seed) throws Exception {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] latencies = new long[requests];
+        for (int i = 0; i < requests; i++) {
+            int guest = random.nextInt(GUESTS);
+            String email = "guest" + guest + "@gmail.com";
+            String phone = "+40700" + String.format("%06d", guest);
+            int operation = random.nextInt(10);
+            HttpRequest request;
+            if (operation < 3) {
+                request = HttpRequest.newBuilder(URI.create(eventUrl + "/guests"))
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"lastName\":\"Last" + guest +
+                                "\",\"firstName\":\"First" + guest + "\",\"email\":\"" + email +
+                                "\",\"phone\":\"" + phone + "\"}")).build();
+            } else if (operation < 9) {
+                request = HttpRequest.newBuilder(URI.create(eventUrl + "/check?email=" + email)).GET().build();
+            } else {
+                request = HttpRequest.newBuilder(URI.create(eventUrl + "/guest?phone=%2B" + phone.substring(1)))
+                        .DELETE().build();
+            }
+            long start = System.nanoTime();
+            send(client, request);
+            latencies[i] = System.nanoTime() - start;
+        }
+        return latencies;
+    }
+
+    private static void send(HttpClient client, HttpRequest request) throws Exception {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 500) {
+            throw new IllegalStateException(response.statusCode() + " " + response.body());
+        }
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e3;
+    }
+}
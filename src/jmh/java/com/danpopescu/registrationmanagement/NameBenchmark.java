@@ -0,0 +1,73 @@
+package com.danpopescu.registrationmanagement;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of GuestsList.findSimilarNames with and without the name index, for names
+ * of registered guests with one or two typos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NameBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int size;
+
+    @Param({"true", "false"})
+    boolean indexed;
+
+    @Param({"1", "2"})
+    int typos;
+
+    GuestsList list;
+    String[][] queries;
+    int next;
+
+    @Setup
+    public void setup() {
+        list = new GuestsList(size / 2);
+        for (int i = 0; i < size; i++) {
+            list.add(BenchmarkData.namedGuest(i));
+        }
+        if (indexed) {
+            list.enableNameIndex();
+        }
+        Random random = new Random(42);
+        queries = new String[BenchmarkData.QUERIES][];
+        for (int q = 0; q < queries.length; q++) {
+            Guest guest = BenchmarkData.namedGuest(random.nextInt(size));
+            String lastName = guest.getLastName();
+            for (int t = 0; t < typos; t++) {
+                // swap two adjacent letters
+                int at = 1 + random.nextInt(lastName.length() - 2);
+                lastName = lastName.substring(0, at) + lastName.charAt(at + 1) + lastName.charAt(at) +
+                        lastName.substring(at + 2);
+            }
+            queries[q] = new String[]{guest.getFirstName(), lastName};
+        }
+    }
+
+    @Benchmark
+    public List<Guest> findSimilarNames() {
+        String[] query = queries[next++ & (BenchmarkData.QUERIES - 1)];
+        return list.findSimilarNames(query[0], query[1], 5);
+    }
+}
@@ -0,0 +1,70 @@
+package com.danpopescu.registrationmanagement;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of scanning the lists in GuestsList.search on a given number of threads. A parallelism
+ * of 0 is the sequential scan on the benchmark thread; any other value runs the parallel search
+ * in a fork/join pool of that many threads. The speedup is bounded by the cores of the machine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelSearchBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int size;
+
+    @Param({"0", "1", "2", "4", "8", "16"})
+    int parallelism;
+
+    // a query matching many of the guests (by number and phone), and one matching nobody;
+    // both are too short for the trigram index, so they are answered by a scan
+    @Param({"12", "xy"})
+    String query;
+
+    GuestsList list;
+    ForkJoinPool pool;
+
+    @Setup
+    public void setup() {
+        list = BenchmarkData.fill(size, 50);
+        if (parallelism > 0) {
+            list.enableParallelSearch();
+            pool = new ForkJoinPool(parallelism);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public List<Guest> search() {
+        if (pool == null) {
+            return list.search(query);
+        }
+        return pool.submit(() -> list.search(query)).join();
+    }
+}
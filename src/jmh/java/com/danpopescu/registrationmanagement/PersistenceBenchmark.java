@@ -0,0 +1,95 @@
+package com.danpopescu.registrationmanagement;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cost of saving and restoring a list: the journal flush done by the
+ * EventRegistry after each command, and the snapshot written on compaction and read on startup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int size;
+
+    Path directory;
+    GuestsListStore store;
+    GuestsList list;
+    Guest newGuest;
+    Path snapshotCopy;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("jmh-store");
+        list = BenchmarkData.fill(size, 50);
+        store = new GuestsListStore(directory, "event");
+        store.create(list);
+        newGuest = BenchmarkData.guest(-1);
+        snapshotCopy = directory.resolve("copy.snapshot");
+        Snapshot.write(snapshotCopy, list, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * An add and a remove, each followed by the flush done by the EventRegistry.
+     * Includes the compactions triggered as the journal grows.
+     */
+    @Benchmark
+    public void persist() throws IOException {
+        list.add(newGuest);
+        store.flush();
+        list.remove(newGuest);
+        store.flush();
+    }
+
+    @Benchmark
+    public void snapshotWrite() throws IOException {
+        Snapshot.write(directory.resolve("written.snapshot"), list, 0);
+    }
+
+    @Benchmark
+    public GuestsList snapshotRead() throws IOException {
+        return Snapshot.read(snapshotCopy).guestsList;
+    }
+
+    /**
+     * Loading an event: read the snapshot and replay the journal
+     */
+    @Benchmark
+    public GuestsList restore() throws Exception {
+        try (GuestsListStore restored = new GuestsListStore(directory, "event")) {
+            return restored.open();
+        }
+    }
+}
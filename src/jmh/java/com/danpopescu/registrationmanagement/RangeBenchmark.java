@@ -0,0 +1,55 @@
+package com.danpopescu.registrationmanagement;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a page of 50 guests from GuestsList.getRange and getWithPrefix, with and without
+ * the sorted indexes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RangeBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int size;
+
+    @Param({"true", "false"})
+    boolean indexed;
+
+    GuestsList list;
+
+    @Setup
+    public void setup() {
+        list = BenchmarkData.fill(size, 50);
+        if (indexed) {
+            list.enableSortedIndexes();
+        }
+    }
+
+    @Benchmark
+    public List<Guest> lastNames() {
+        return list.getRange(SearchMode.BY_NAME, "Last42", "Last43", 50);
+    }
+
+    @Benchmark
+    public List<Guest> phonePrefix() {
+        return list.getWithPrefix(SearchMode.BY_PHONE, "+4000000", 50);
+    }
+}
@@ -0,0 +1,53 @@
+package com.danpopescu.registrationmanagement;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of GuestsList.search with and without the trigram index
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int size;
+
+    @Param({"true", "false"})
+    boolean indexed;
+
+    // a query matching one guest, one matching about a tenth of them, and one matching nobody
+    @Param({"guest4242@", "st12", "xyz"})
+    String query;
+
+    GuestsList list;
+
+    @Setup
+    public void setup() {
+        list = BenchmarkData.fill(size, 50);
+        if (indexed) {
+            list.enableSearchIndex();
+        }
+    }
+
+    @Benchmark
+    public List<Guest> search() {
+        return list.search(query);
+    }
+}
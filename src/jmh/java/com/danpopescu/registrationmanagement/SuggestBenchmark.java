@@ -0,0 +1,54 @@
+package com.danpopescu.registrationmanagement;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of GuestsList.suggest with and without the prefix index, for the prefixes typed one
+ * keystroke at a time
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuggestBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int size;
+
+    @Param({"true", "false"})
+    boolean indexed;
+
+    // a prefix matching every guest, one matching a few of them, and one matching nobody
+    @Param({"g", "last4242", "x"})
+    String prefix;
+
+    GuestsList list;
+
+    @Setup
+    public void setup() {
+        list = BenchmarkData.fill(size, 50);
+        if (indexed) {
+            list.enablePrefixIndex();
+        }
+    }
+
+    @Benchmark
+    public List<Guest> suggest() {
+        return list.suggest(prefix, 10);
+    }
+}
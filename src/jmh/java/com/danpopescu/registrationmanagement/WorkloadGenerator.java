@@ -0,0 +1,255 @@
+package com.danpopescu.registrationmanagement;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Generates a synthetic workload as a script of com.danpopescu.registrationmanagement.ScriptRunner
+ * commands, which can be run with Main --script or measured with com.danpopescu.registrationmanagement.WorkloadReplay.
+ *
+ * The script creates an event, registers the initial guests and then runs the operations, each one
+ * picked at random by the weights of the mix. The guests have realistic Romanian names, emails and
+ * +407 phone numbers (see BenchmarkData.randomGuest()). The duplicate rate is the percentage of the
+ * registrations that repeat a guest generated before, registered or removed since. Check, remove
+ * and update look up a registered guest by name, email or phone, except for missRate percent of
+ * them, which look up a guest that was never registered. Search looks for a part of a name, an
+ * email or a phone number. The event has waitlist percent fewer places than the initial guests, so
+ * the waitlist starts with that share of them.
+ *
+ * The same options and seed always produce the same script. Run, after mvn -P jmh compile:
+ *      java -cp target/classes com.danpopescu.registrationmanagement.WorkloadGenerator --out workload.txt
+ *          [--operations 100000] [--initial 10000] [--mix add:30,check:40,remove:10,update:10,search:10]
+ *          [--duplicates 5] [--misses 10] [--waitlist 20] [--seed 1]
+ */
+public class WorkloadGenerator {
+
+    static final String EVENT = "workload";
+
+    // the names of the fields in the update command
+    private static final Map<GuestField, String> FIELD_NAMES = Map.of(GuestField.LAST_NAME, "nume",
+            GuestField.FIRST_NAME, "prenume", GuestField.EMAIL, "email", GuestField.PHONE_NUMBER, "telefon");
+
+    private final SplittableRandom random;
+    private final int duplicatePercent;
+    private final int missPercent;
+    // the weights of ADD, CHECK, REMOVE, UPDATE and SEARCH, in this order
+    private final int[] weights;
+    private final int totalWeight;
+
+    // the guests believed to be registered, and those removed since; a guest registered by a
+    // name already taken can be looked up as the other one, so this is an approximation
+    private final List<Guest> registered = new ArrayList<>();
+    private final List<Guest> removed = new ArrayList<>();
+    private int nextId;
+
+    /**
+     * @param mix the weights of the operations, e.g. add:30,check:40,remove:10,update:10,search:10
+     * @param duplicatePercent of the registrations that repeat a known guest
+     * @param missPercent of the lookups that miss
+     * @param seed of the random numbers
+     */
+    public WorkloadGenerator(String mix, int duplicatePercent, int missPercent, long seed) {
+        this.weights = parseMix(mix);
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("The mix has no operations: " + mix);
+        }
+        this.totalWeight = total;
+        this.duplicatePercent = duplicatePercent;
+        this.missPercent = missPercent;
+        this.random = new SplittableRandom(seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i], args[i + 1]);
+        }
+        if (!options.containsKey("--out")) {
+            System.err.println("Utilizare: WorkloadGenerator --out fisier [--operations N] [--initial N] " +
+                    "[--mix add:30,check:40,remove:10,update:10,search:10] [--duplicates P] [--misses P] " +
+                    "[--waitlist P] [--seed S]");
+            System.exit(1);
+        }
+        int operations = Integer.parseInt(options.getOrDefault("--operations", "100000"));
+        int initial = Integer.parseInt(options.getOrDefault("--initial", "10000"));
+        int waitListPercent = Integer.parseInt(options.getOrDefault("--waitlist", "20"));
+        WorkloadGenerator generator = new WorkloadGenerator(
+                options.getOrDefault("--mix", "add:30,check:40,remove:10,update:10,search:10"),
+                Integer.parseInt(options.getOrDefault("--duplicates", "5")),
+                Integer.parseInt(options.getOrDefault("--misses", "10")),
+                Long.parseLong(options.getOrDefault("--seed", "1")));
+        try (Writer out = Files.newBufferedWriter(Path.of(options.get("--out")), StandardCharsets.UTF_8)) {
+            out.write("# " + String.join(" ", args) + "\n");
+            generator.write(out, initial, initial - initial * waitListPercent / 100, operations);
+        }
+    }
+
+    /**
+     * Write the script
+     * @param initial the number of guests registered before the operations
+     * @param numberOfPlaces of the event
+     * @param operations the number of operations after the initial registrations
+     */
+    public void write(Writer out, int initial, int numberOfPlaces, int operations) throws IOException {
+        Writer writer = out instanceof BufferedWriter ? out : new BufferedWriter(out);
+        writer.write("event," + EVENT + "," + numberOfPlaces + "\n");
+        for (int i = 0; i < initial; i++) {
+            writer.write(add(newGuest()));
+        }
+        for (int i = 0; i < operations; i++) {
+            writer.write(nextOperation());
+        }
+        writer.flush();
+    }
+
+    private String nextOperation() {
+        int pick = random.nextInt(totalWeight);
+        int operation = 0;
+        while (pick >= weights[operation]) {
+            pick -= weights[operation++];
+        }
+        return switch (operation) {
+            case 0 -> register();
+            case 1 -> "check," + key(guest(lookedUp())) + "\n";
+            case 2 -> {
+                int index = lookedUp();
+                Guest guest = guest(index);
+                if (index >= 0) {
+                    removed.add(removeRegistered(index));
+                }
+                yield "remove," + key(guest) + "\n";
+            }
+            case 3 -> update();
+            default -> "search," + searched() + "\n";
+        };
+    }
+
+    private String register() {
+        if (random.nextInt(100) < duplicatePercent && !(registered.isEmpty() && removed.isEmpty())) {
+            int index = random.nextInt(registered.size() + removed.size());
+            if (index < registered.size()) {
+                // the same person registering again, with the name typed differently
+                Guest guest = registered.get(index);
+                return "add," + guest.getLastName().toUpperCase(Locale.ROOT) + "," + guest.getFirstName() + "," +
+                        guest.getEmail() + "," + guest.getPhoneNumber() + "\n";
+            }
+            // a person registering again after being removed
+            Guest guest = removed.get(index - registered.size());
+            removed.set(index - registered.size(), removed.get(removed.size() - 1));
+            removed.remove(removed.size() - 1);
+            return add(guest);
+        }
+        return add(newGuest());
+    }
+
+    private String add(Guest guest) {
+        registered.add(guest);
+        return "add," + guest.getLastName() + "," + guest.getFirstName() + "," + guest.getEmail() + "," +
+                guest.getPhoneNumber() + "\n";
+    }
+
+    private Guest newGuest() {
+        return BenchmarkData.randomGuest(random, nextId++);
+    }
+
+    /**
+     * @return the index of a registered guest, or -1 for a miss
+     */
+    private int lookedUp() {
+        if (registered.isEmpty() || random.nextInt(100) < missPercent) {
+            return -1;
+        }
+        return random.nextInt(registered.size());
+    }
+
+    /**
+     * @return the registered guest at an index returned by lookedUp(), or a guest never registered for -1
+     */
+    private Guest guest(int index) {
+        return index < 0 ? newGuest() : registered.get(index);
+    }
+
+    private Guest removeRegistered(int index) {
+        // the order of the guests doesn't matter, so the last one takes the place of the removed one
+        Guest guest = registered.get(index);
+        registered.set(index, registered.get(registered.size() - 1));
+        registered.remove(registered.size() - 1);
+        return guest;
+    }
+
+    /**
+     * @return the search mode and key of a guest, as for check, remove and update
+     */
+    private String key(Guest guest) {
+        return switch (random.nextInt(3)) {
+            case 0 -> "nume," + guest.getLastName() + "," + guest.getFirstName();
+            case 1 -> "email," + guest.getEmail();
+            default -> "telefon," + guest.getPhoneNumber();
+        };
+    }
+
+    private String update() {
+        int index = lookedUp();
+        Guest guest = guest(index);
+        String key = key(guest);
+        Guest other = newGuest();
+        GuestField field = GuestField.values()[random.nextInt(GuestField.values().length)];
+        String value = switch (field) {
+            case LAST_NAME -> other.getLastName();
+            case FIRST_NAME -> other.getFirstName();
+            case EMAIL -> other.getEmail();
+            case PHONE_NUMBER -> other.getPhoneNumber();
+        };
+        if (index >= 0) {
+            registered.set(index, new Guest(
+                    field == GuestField.FIRST_NAME ? value : guest.getFirstName(),
+                    field == GuestField.LAST_NAME ? value : guest.getLastName(),
+                    field == GuestField.EMAIL ? value : guest.getEmail(),
+                    field == GuestField.PHONE_NUMBER ? value : guest.getPhoneNumber()));
+        }
+        return "update," + key + "," + FIELD_NAMES.get(field) + "," + value + "\n";
+    }
+
+    /**
+     * @return a part of the name, email or phone number of a known guest, 2 to 6 characters long
+     */
+    private String searched() {
+        Guest guest = guest(registered.isEmpty() ? -1 : random.nextInt(registered.size()));
+        String field = switch (random.nextInt(3)) {
+            case 0 -> guest.getLastName();
+            case 1 -> guest.getEmail();
+            default -> guest.getPhoneNumber().substring(1);
+        };
+        int length = Math.min(field.length(), 2 + random.nextInt(5));
+        int start = random.nextInt(field.length() - length + 1);
+        return field.substring(start, start + length);
+    }
+
+    private static int[] parseMix(String mix) {
+        List<String> names = List.of("add", "check", "remove", "update", "search");
+        int[] weights = new int[names.size()];
+        for (String part : mix.split(",")) {
+            String[] nameAndWeight = part.split(":");
+            int operation = names.indexOf(nameAndWeight[0].trim().toLowerCase(Locale.ROOT));
+            if (operation < 0 || nameAndWeight.length != 2) {
+                throw new IllegalArgumentException("Invalid operation in the mix: " + part);
+            }
+            weights[operation] = Integer.parseInt(nameAndWeight[1].trim());
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,257 @@
+package com.danpopescu.registrationmanagement;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Replays a script written by com.danpopescu.registrationmanagement.WorkloadGenerator (or any script of
+ * add, check, remove, update, search and places commands on one event) and measures it: the number of
+ * operations per second, the latency percentiles of every command and the memory allocated.
+ *
+ * The whole script is parsed before the replay, so reading it isn't measured. Without persistence,
+ * the commands run directly on a GuestsList. With persistence, every command runs through an
+ * com.danpopescu.registrationmanagement.EventRegistry in a temporary directory, with the given
+ * durability, which is deleted afterwards. The lists have the same indexes as in the application.
+ *
+ * The script is replayed several times, every time on a new list, and every run is reported: the first
+ * runs warm up the JIT compiler. Every run prints a checksum of the results of the commands, which is the
+ * same for all the runs and modes as long as the script is the same. The allocated memory is that of
+ * the replaying thread, so it doesn't include the background writes of the INTERVAL durability.
+ *
+ * Run, after mvn -P jmh compile:
+ *      java -cp target/classes com.danpopescu.registrationmanagement.WorkloadReplay --trace workload.txt
+ *          [--persistence none|sync|interval|on_shutdown] [--runs 3]
+ */
+public class WorkloadReplay {
+
+    private final List<ScriptRunner.Command> commands;
+    private final int numberOfPlaces;
+
+    /**
+     * Parse a script
+     * @throws IllegalArgumentException if a line is invalid or a command can't be replayed
+     */
+    public WorkloadReplay(BufferedReader in) throws IOException {
+        List<ScriptRunner.Command> parsed = new ArrayList<>();
+        int places = -1;
+        String line;
+        int lineNumber = 0;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            ScriptRunner.Command command = ScriptRunner.Command.parse(line, lineNumber);
+            if (command.error != null) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": " + command.error);
+            }
+            switch (command.menu) {
+                case EVENT -> {
+                    if (places >= 0 || command.args.length < 2) {
+                        throw new IllegalArgumentException("Line " + lineNumber +
+                                ": the script should create a single event, with its number of places");
+                    }
+                    places = Integer.parseInt(command.args[1]);
+                }
+                case ADD, CHECK, REMOVE, UPDATE, SEARCH, PLACES -> parsed.add(command);
+                default -> throw new IllegalArgumentException("Line " + lineNumber + ": " +
+                        command.menu.name().toLowerCase(Locale.ROOT) + " can't be replayed");
+            }
+        }
+        if (places < 0) {
+            throw new IllegalArgumentException("The script doesn't create an event");
+        }
+        this.commands = parsed;
+        this.numberOfPlaces = places;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i], args[i + 1]);
+        }
+        if (!options.containsKey("--trace")) {
+            System.err.println("Utilizare: WorkloadReplay --trace fisier [--persistence none|sync|interval|on_shutdown] " +
+                    "[--runs N]");
+            System.exit(1);
+        }
+        String persistence = options.getOrDefault("--persistence", "none").toUpperCase(Locale.ROOT);
+        EventRegistry.Durability durability = persistence.equals("NONE") ? null
+                : EventRegistry.Durability.valueOf(persistence);
+        int runs = Integer.parseInt(options.getOrDefault("--runs", "3"));
+
+        WorkloadReplay replay;
+        try (BufferedReader in = Files.newBufferedReader(Path.of(options.get("--trace")), StandardCharsets.UTF_8)) {
+            replay = new WorkloadReplay(in);
+        }
+        for (int run = 1; run <= runs; run++) {
+            System.out.println("rularea " + run + ":");
+            replay.run(durability).print();
+        }
+    }
+
+    /**
+     * Replay the script once, on a new list
+     * @param durability of the changes, or null to run without persistence
+     */
+    public Result run(EventRegistry.Durability durability) throws IOException {
+        if (durability == null) {
+            GuestsList list = new GuestsList(numberOfPlaces);
+            enableIndexes(list);
+            return replay(command -> execute(list, command));
+        }
+        Path directory = Files.createTempDirectory("workload");
+        try (EventRegistry registry = new EventRegistry(directory, 1, (id, list) -> enableIndexes(list),
+                durability, Duration.ofMillis(100))) {
+            registry.create(WorkloadGenerator.EVENT, numberOfPlaces);
+            return replay(command -> registry.withEvent(WorkloadGenerator.EVENT, list -> execute(list, command)));
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static void enableIndexes(GuestsList list) {
+        // as in Main
+        list.enableSearchIndex();
+        list.enableNameIndex();
+        list.enablePrefixIndex();
+        list.enableSortedIndexes();
+        list.enableParallelSearch();
+    }
+
+    @FunctionalInterface
+    private interface Executor {
+        int execute(ScriptRunner.Command command) throws IOException;
+    }
+
+    private Result replay(Executor executor) throws IOException {
+        Map<Menu, long[]> latencies = new EnumMap<>(Menu.class);
+        Map<Menu, Integer> counts = new EnumMap<>(Menu.class);
+        for (ScriptRunner.Command command : commands) {
+            counts.merge(command.menu, 1, Integer::sum);
+        }
+        counts.forEach((menu, count) -> latencies.put(menu, new long[count]));
+        Map<Menu, Integer> positions = new EnumMap<>(Menu.class);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long checksum = 1;
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (ScriptRunner.Command command : commands) {
+            long commandStart = System.nanoTime();
+            int result = executor.execute(command);
+            long latency = System.nanoTime() - commandStart;
+            int position = positions.merge(command.menu, 1, Integer::sum) - 1;
+            latencies.get(command.menu)[position] = latency;
+            checksum = checksum * 31 + result;
+        }
+        long nanos = System.nanoTime() - start;
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+        return new Result(commands.size(), nanos, allocated, checksum, latencies);
+    }
+
+    /**
+     * Run a command
+     * @return the code returned by GuestsList, or the number of guests found by search
+     */
+    private static int execute(GuestsList list, ScriptRunner.Command command) {
+        String[] args = command.args;
+        return switch (command.menu) {
+            case ADD -> list.add(new Guest(args[1], args[0], args[2], args[3]));
+            case CHECK -> switch (command.mode) {
+                case BY_NAME -> list.checkByName(args[2], args[1]);
+                case BY_EMAIL -> list.checkByEmail(args[1]);
+                case BY_PHONE -> list.checkByPhone(args[1]);
+            };
+            case REMOVE -> switch (command.mode) {
+                case BY_NAME -> list.removeByName(args[2], args[1]);
+                case BY_EMAIL -> list.removeByEmail(args[1]);
+                case BY_PHONE -> list.removeByPhone(args[1]);
+            };
+            case UPDATE -> {
+                Optional<Guest> guest = switch (command.mode) {
+                    case BY_NAME -> list.getByName(args[2], args[1]);
+                    case BY_EMAIL -> list.getByEmail(args[1]);
+                    case BY_PHONE -> list.getByPhone(args[1]);
+                };
+                int fieldIndex = args.length - 2;
+                yield guest.isPresent()
+                        && list.update(guest.get(), ScriptRunner.Command.field(args[fieldIndex]), args[fieldIndex + 1])
+                        ? 0 : -1;
+            }
+            case SEARCH -> list.search(args[0]).size();
+            case PLACES -> list.setNumberOfPlaces(Integer.parseInt(args[0]));
+            default -> throw new IllegalStateException("Not replayed: " + command.menu);
+        };
+    }
+
+    /**
+     * The measurements of a run
+     */
+    public static final class Result {
+        private final int operations;
+        private final long nanos;
+        private final long allocatedBytes;
+        private final long checksum;
+        private final Map<Menu, long[]> latencies;
+
+        Result(int operations, long nanos, long allocatedBytes, long checksum, Map<Menu, long[]> latencies) {
+            this.operations = operations;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+            this.checksum = checksum;
+            this.latencies = latencies;
+            latencies.values().forEach(Arrays::sort);
+        }
+
+        public double operationsPerSecond() {
+            return operations / (nanos / 1e9);
+        }
+
+        /**
+         * @return the checksum of the results of the commands, the same for every replay of a script
+         */
+        public long checksum() {
+            return checksum;
+        }
+
+        void print() {
+            double seconds = nanos / 1e9;
+            System.out.printf("  %d operatii in %.3f s: %.0f operatii/s, suma de control %016x%n",
+                    operations, seconds, operationsPerSecond(), checksum);
+            System.out.printf("  memorie alocata: %.1f MB/s, %.0f octeti/operatie%n",
+                    allocatedBytes / seconds / (1 << 20), (double) allocatedBytes / operations);
+            for (Map.Entry<Menu, long[]> entry : latencies.entrySet()) {
+                long[] sorted = entry.getValue();
+                System.out.printf("  %-7s %8d  latenta (us): p50 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+                        entry.getKey().name().toLowerCase(Locale.ROOT), sorted.length, percentile(sorted, 50),
+                        percentile(sorted, 99), percentile(sorted, 99.9), sorted[sorted.length - 1] / 1e3);
+            }
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e3;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.danpopescu.registrationmanagement;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A Burkhard-Keller tree: a map from strings of the letters a-z to values, that finds the keys
+ * within a given edit distance of a query without comparing the query with every key.
+ *
+ * Every node keeps its children by their distance to the node's key. Since the distance is a
+ * metric, the keys within maxDistance of the query can only be below the children whose distance
+ * d to the node satisfies |d - distance(query, node)| <= maxDistance, so the other subtrees
+ * are skipped. The distance is the Damerau-Levenshtein distance, in which swapping two adjacent
+ * letters counts as one edit.
+ *
+ * The keys are also kept in a HashMap, so that finding the value of a known key doesn't walk the tree.
+ * Keys can't be removed; a value that is no longer needed is left in place by the caller and
+ * skipped, and the tree is rebuilt when too many such values accumulate.
+ */
+final class BkTree<V> {
+
+    /**
+     * Receives the keys found by search()
+     */
+    @FunctionalInterface
+    interface Visitor<V> {
+        void visit(String key, V value, int distance);
+    }
+
+    private static final int ALPHABET = 26;
+
+    private Node<V> root;
+    private final Map<String, V> values = new HashMap<>();
+
+    /**
+     * Return the value of a key, adding the key with a new value if it is missing
+     * @param key of letters a-z
+     */
+    V computeIfAbsent(String key, Supplier<V> newValue) {
+        V value = values.get(key);
+        if (value != null) {
+            return value;
+        }
+        value = newValue.get();
+        values.put(key, value);
+        if (root == null) {
+            root = new Node<>(key, value);
+            return value;
+        }
+        Node<V> node = root;
+        int[] table = new int[0];
+        while (true) {
+            table = ensureSize(table, key, node.key);
+            int distance = distance(key, node.key, table);
+            Node<V> child = node.child(distance);
+            if (child == null) {
+                node.setChild(distance, new Node<>(key, value));
+                return value;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Return the value of a key
+     * @return the value, or null if the key is missing
+     */
+    V get(String key) {
+        return values.get(key);
+    }
+
+    /**
+     * Visit every key within maxDistance of the query
+     * @param query of letters a-z
+     * @param maxDistance the largest distance of a visited key
+     */
+    void search(String query, int maxDistance, Visitor<V> visitor) {
+        if (root == null) {
+            return;
+        }
+        // the table of the distance, large enough for the query and any key
+        int[] table = new int[0];
+        Node<V>[] stack = newStack();
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            Node<V> node = stack[--top];
+            table = ensureSize(table, query, node.key);
+            int distance = distance(query, node.key, table);
+            if (distance <= maxDistance) {
+                visitor.visit(node.key, node.value, distance);
+            }
+            if (node.children == null) {
+                continue;
+            }
+            int from = Math.max(1, distance - maxDistance);
+            int to = Math.min(node.children.length - 1, distance + maxDistance);
+            for (int d = from; d <= to; d++) {
+                Node<V> child = node.children[d];
+                if (child != null) {
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, top * 2);
+                    }
+                    stack[top++] = child;
+                }
+            }
+        }
+    }
+
+    /**
+     * Call the action with every value, in no particular order
+     */
+    void forEachValue(Consumer<V> action) {
+        values.values().forEach(action);
+    }
+
+    /**
+     * @return the number of keys
+     */
+    int size() {
+        return values.size();
+    }
+
+    /**
+     * @return the size of the scratch table needed by distance() for two strings
+     */
+    static int tableSize(String a, String b) {
+        return (a.length() + 2) * (b.length() + 2) + ALPHABET;
+    }
+
+    private static int[] ensureSize(int[] table, String a, String b) {
+        int size = tableSize(a, b);
+        return table.length >= size ? table : new int[Math.max(size, table.length * 2)];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Node<V>[] newStack() {
+        return (Node<V>[]) new Node<?>[64];
+    }
+
+    /**
+     * The Damerau-Levenshtein distance of two strings of letters a-z: the least number of
+     * insertions, deletions, substitutions and transpositions of adjacent letters turning
+     * one into the other (the algorithm of Lowrance and Wagner, which unlike the restricted
+     * variant satisfies the triangle inequality needed by the tree).
+     * @param table scratch space of at least tableSize(a, b) ints
+     */
+    static int distance(String a, String b, int[] table) {
+        int n = a.length();
+        int m = b.length();
+        if (n == 0 || m == 0) {
+            return n + m;
+        }
+        int width = m + 2;
+        int infinity = n + m;
+        // row/column 0 hold infinity, row/column 1 the distances from the empty string
+        table[0] = infinity;
+        for (int i = 0; i <= n; i++) {
+            table[(i + 1) * width] = infinity;
+            table[(i + 1) * width + 1] = i;
+        }
+        for (int j = 0; j <= m; j++) {
+            table[j + 1] = infinity;
+            table[width + j + 1] = j;
+        }
+        // the last row in which each letter appeared in a, kept after the distances
+        int lastRow = (n + 2) * width;
+        Arrays.fill(table, lastRow, lastRow + ALPHABET, 0);
+        for (int i = 1; i <= n; i++) {
+            int lastColumn = 0;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char cb = b.charAt(j - 1);
+                int k = table[lastRow + cb - 'a'];
+                int l = lastColumn;
+                int cost = 1;
+                if (ca == cb) {
+                    cost = 0;
+                    lastColumn = j;
+                }
+                int value = Math.min(
+                        Math.min(table[i * width + j] + cost, table[(i + 1) * width + j] + 1),
+                        table[i * width + j + 1] + 1);
+                value = Math.min(value, table[k * width + l] + (i - k - 1) + 1 + (j - l - 1));
+                table[(i + 1) * width + j + 1] = value;
+            }
+            table[lastRow + ca - 'a'] = i;
+        }
+        return table[(n + 1) * width + m + 1];
+    }
+
+    private static final class Node<V> {
+        final String key;
+        final V value;
+        // indexed by the distance to key, null while the node is a leaf
+        Node<V>[] children;
+
+        Node(String key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        Node<V> child(int distance) {
+            return children == null || distance >= children.length ? null : children[distance];
+        }
+
+        @SuppressWarnings("unchecked")
+        void setChild(int distance, Node<V> child) {
+            if (children == null) {
+                children = (Node<V>[]) new Node<?>[Math.max(4, distance + 1)];
+            } else if (distance >= children.length) {
+                children = Arrays.copyOf(children, Math.max(distance + 1, children.length * 2));
+            }
+            children[distance] = child;
+        }
+    }
+}
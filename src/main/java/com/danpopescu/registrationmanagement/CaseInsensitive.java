@@ -0,0 +1,69 @@
+package com.danpopescu.registrationmanagement;
+
+/**
+ * Case folding helpers shared by com.danpopescu.registrationmanagement.Guest and
+ * the lookup indexes. Characters are folded the same way String.CASE_INSENSITIVE_ORDER
+ * compares them, so two Strings are equal after folding iff that comparator finds them equal.
+ * The hash() and equals() methods work directly on CharSequences and fold on the fly,
+ * so that probing an index with a key typed by the user doesn't allocate.
+ */
+final class CaseInsensitive {
+
+    private CaseInsensitive() {
+    }
+
+    static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Fold the case of a String
+     * @param string to be folded
+     * @return the folded String, or the same instance if it is already folded
+     */
+    static String fold(String string) {
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (fold(c) != c) {
+                char[] chars = string.toCharArray();
+                for (int j = i; j < chars.length; j++) {
+                    chars[j] = fold(chars[j]);
+                }
+                return new String(chars);
+            }
+        }
+        return string;
+    }
+
+    /**
+     * Hash a sequence of characters after folding them. For a folded String
+     * the result is the same as String.hashCode(), which is cached by the String.
+     * @param sequence to be hashed
+     * @return the hash of the folded sequence
+     */
+    static int hash(CharSequence sequence) {
+        int hash = 0;
+        for (int i = 0; i < sequence.length(); i++) {
+            hash = 31 * hash + fold(sequence.charAt(i));
+        }
+        return hash;
+    }
+
+    /**
+     * Check if a sequence of characters is equal to an already folded key, ignoring the case
+     * @param foldedKey a key returned by fold()
+     * @param sequence to be compared with the key
+     * @return true if the folded sequence is equal to the key
+     */
+    static boolean equals(String foldedKey, CharSequence sequence) {
+        if (foldedKey.length() != sequence.length()) {
+            return false;
+        }
+        for (int i = 0; i < foldedKey.length(); i++) {
+            if (foldedKey.charAt(i) != fold(sequence.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,521 @@
+package com.danpopescu.registrationmanagement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A variant of com.danpopescu.registrationmanagement.GuestsList that can be shared by several
+ * threads, e.g. several registration desks and an API front end.
+ *
+ * It keeps the semantics and the return codes of GuestsList: a guest is registered only once,
+ * exactly numberOfPlaces guests get a place, and the places that become free go to the
+ * waitlist in strict FIFO order. Instead of one global monitor it uses:
+ *  - striped locks keyed by the guest, so that registering or removing different guests
+ *    doesn't contend;
+ *  - one atomic word holding the taken places and the number of waiting guests, so that a guest
+ *    gets a free place, or frees one, with a single CAS;
+ *  - a lock guarding only the waitlist, taken to join, leave or be promoted from the waitlist.
+ * Looking up a guest, and removing a guest that has a place while nobody waits, don't take it.
+ *
+ * The invariant that makes the CAS fast path FIFO safe is: while the waitlist is not empty,
+ * all the places are taken. Both counts are in the same word, so a guest joins the waitlist
+ * only with a CAS that sees all the places taken, and a place is freed only with a CAS that
+ * sees nobody waiting; otherwise the place goes to the first waiting guest, under the lock.
+ * So a guest that takes a place with the CAS never overtakes a guest on the waitlist.
+ *
+ * Guests registered on this list must not be modified, so this variant has no update operation.
+ * Lock order: guest stripe, then waitlist lock.
+ */
+public class ConcurrentGuestsList {
+
+    private static final int STRIPES = 64;
+
+    // one guest more on the waitlist, in the places word
+    private static final long ONE_WAITING = 1L << 32;
+
+    private final int numberOfPlaces;
+    // the taken places in the low 32 bits and the guests on the waitlist in the high 32 bits;
+    // the waiting count changes only under waitListLock, together with the waitlist
+    private final AtomicLong places = new AtomicLong();
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final ConcurrentMap<Guest, Registration> registrations = new ConcurrentHashMap<>();
+
+    // the guests list, ordered by the time each guest got a place
+    private final AtomicLong confirmationSequence = new AtomicLong();
+    private final ConcurrentSkipListMap<Long, Guest> guestsList = new ConcurrentSkipListMap<>();
+
+    private final ReentrantLock waitListLock = new ReentrantLock();
+    // guarded by waitListLock
+    private final FenwickList<Guest> waitList = new FenwickList<>();
+
+    private final ConcurrentMap<String, Set<Guest>> byName = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<Guest>> byEmail = new ConcurrentHashMap<>();
+    // keyed by the packed phone number (a Long), as PhoneIndex, or by the case folded text
+    // (a String) for the numbers that can't be packed, so that both lists find the same guests
+    private final ConcurrentMap<Object, Set<Guest>> byPhone = new ConcurrentHashMap<>();
+
+    public ConcurrentGuestsList(int numberOfPlaces) {
+        this.numberOfPlaces = numberOfPlaces;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * The state of a registered guest. The confirmation sequence is set under the waitlist
+     * lock when a waitlisted guest is promoted; once set, it doesn't change.
+     */
+    private static final class Registration {
+        final Guest guest;
+        // key in guestsList, or -1 while the guest is on the waitlist
+        volatile long sequence = -1;
+
+        Registration(Guest guest) {
+            this.guest = guest;
+        }
+
+        boolean isConfirmed() {
+            return sequence >= 0;
+        }
+    }
+
+    /**
+     * Add a guest to the guests list if there are free places and the guest
+     * hasn't registered before, otherwise add him to the waitlist.
+     * @param guest with valid first and last names, email and phone number
+     * @return an integer with the following possible values:
+     *              -1 - the person has been already registered
+     *               0 - successfully added the guest to the guests list
+     *               X - the person was added to the waitlist with order number X
+     *                   OR the guest was already on the waitlist with order number X
+     */
+    public int add(Guest guest) {
+        ReentrantLock stripe = stripeOf(guest);
+        stripe.lock();
+        try {
+            Registration registered = registrations.get(guest);
+            if (registered != null) {
+                // the guest may be promoted meanwhile, but not removed: removals take the stripe
+                int order = orderInWaitList(registered);
+                return order == 0 ? -1 : order;
+            }
+
+            Registration registration = new Registration(guest);
+            if (takePlace()) {
+                confirm(registration);
+                return 0;
+            }
+
+            waitListLock.lock();
+            try {
+                // a place may have been freed while the waitlist was empty
+                while (!joinWaitList()) {
+                    if (takePlace()) {
+                        confirm(registration);
+                        return 0;
+                    }
+                }
+                registrations.put(guest, registration);
+                index(guest);
+                waitList.add(guest);
+                return waitList.size();
+            } finally {
+                waitListLock.unlock();
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    public int checkByName(String firstName, String lastName) {
+        return checkSimilar(byName.get(nameKey(firstName, lastName)));
+    }
+
+    public int checkByEmail(String email) {
+        return checkSimilar(byEmail.get(CaseInsensitive.fold(email)));
+    }
+
+    public int checkByPhone(String phoneNumber) {
+        return checkSimilar(byPhone.get(phoneKey(phoneNumber)));
+    }
+
+    public int removeByName(String firstName, String lastName) {
+        return removeSimilar(byName.get(nameKey(firstName, lastName)));
+    }
+
+    public int removeByEmail(String email) {
+        return removeSimilar(byEmail.get(CaseInsensitive.fold(email)));
+    }
+
+    public int removeByPhone(String phoneNumber) {
+        return removeSimilar(byPhone.get(phoneKey(phoneNumber)));
+    }
+
+    public Optional<Guest> getByName(String firstName, String lastName) {
+        return getSimilar(byName.get(nameKey(firstName, lastName)));
+    }
+
+    public Optional<Guest> getByEmail(String email) {
+        return getSimilar(byEmail.get(CaseInsensitive.fold(email)));
+    }
+
+    public Optional<Guest> getByPhone(String phoneNumber) {
+        return getSimilar(byPhone.get(phoneKey(phoneNumber)));
+    }
+
+    /**
+     * Search for a guest among the guests matching a key.
+     * @return -1 if none is registered, 0 if one is on the guests list,
+     *          otherwise the best order number on the waitlist
+     */
+    private int checkSimilar(Set<Guest> matches) {
+        int order = -1;
+        if (matches == null) {
+            return order;
+        }
+        for (Guest guest : matches) {
+            Registration registration = registrations.get(guest);
+            if (registration == null) {
+                continue;
+            }
+            int orderInWaitList = orderInWaitList(registration);
+            if (orderInWaitList == 0) {
+                return 0;
+            }
+            if (orderInWaitList > 0 && (order < 0 || orderInWaitList < order)) {
+                order = orderInWaitList;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Delete a guest matching a key, preferring a guest from the guests list.
+     * @return -1 if no guest has been deleted, 0 if a guest has been deleted and nobody
+     *          has been promoted, 1 if a guest from the waitlist has been promoted
+     */
+    private int removeSimilar(Set<Guest> matches) {
+        if (matches == null) {
+            return -1;
+        }
+        while (true) {
+            Registration best = null;
+            int bestOrder = -1;
+            for (Guest guest : matches) {
+                Registration registration = registrations.get(guest);
+                if (registration == null) {
+                    continue;
+                }
+                if (registration.isConfirmed()) {
+                    best = registration;
+                    break;
+                }
+                int order = orderInWaitList(registration);
+                if (best == null || order < bestOrder) {
+                    best = registration;
+                    bestOrder = order;
+                }
+            }
+            if (best == null) {
+                return -1;
+            }
+            int result = remove(best);
+            // otherwise the guest has been removed by another thread, look for another match
+            if (result >= 0) {
+                return result;
+            }
+        }
+    }
+
+    private int remove(Registration registration) {
+        Guest guest = registration.guest;
+        ReentrantLock stripe = stripeOf(guest);
+        stripe.lock();
+        try {
+            // removed by another thread since it was looked up
+            if (registrations.get(guest) != registration) {
+                return -1;
+            }
+
+            if (!registration.isConfirmed()) {
+                waitListLock.lock();
+                try {
+                    // the state can't change anymore: promotions happen under the waitlist lock
+                    if (!registration.isConfirmed()) {
+                        // under the lock, so that a promotion finds the registration of every waiting guest
+                        registrations.remove(guest);
+                        unindex(guest);
+                        waitList.remove(guest);
+                        places.addAndGet(-ONE_WAITING);
+                        return 0;
+                    }
+                } finally {
+                    waitListLock.unlock();
+                }
+            }
+
+            // a confirmed guest can't be promoted, only removed, and removals take the stripe
+            registrations.remove(guest);
+            unindex(guest);
+            guestsList.remove(registration.sequence);
+            if (freePlace()) {
+                return 0;
+            }
+            waitListLock.lock();
+            try {
+                // the waiting guests may have been promoted or removed meanwhile; nobody joins the
+                // waitlist while the lock is held, so then the place can be given back
+                if (waitList.isEmpty()) {
+                    freePlace();
+                    return 0;
+                }
+                // the freed place goes to the first guest on the waitlist
+                Guest first = waitList.removeFirst();
+                places.addAndGet(-ONE_WAITING);
+                Registration promoted = registrations.get(first);
+                promoted.sequence = confirmationSequence.incrementAndGet();
+                guestsList.put(promoted.sequence, first);
+                return 1;
+            } finally {
+                waitListLock.unlock();
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    private Optional<Guest> getSimilar(Set<Guest> matches) {
+        if (matches == null) {
+            return Optional.empty();
+        }
+        Guest confirmed = null;
+        Guest waiting = null;
+        int order = -1;
+        for (Guest guest : matches) {
+            Registration registration = registrations.get(guest);
+            if (registration == null) {
+                continue;
+            }
+            if (registration.isConfirmed()) {
+                confirmed = confirmed == null ? guest : confirmed;
+                continue;
+            }
+            int orderInWaitList = orderInWaitList(registration);
+            if (orderInWaitList == 0) {
+                confirmed = confirmed == null ? guest : confirmed;
+            } else if (orderInWaitList > 0 && (order < 0 || orderInWaitList < order)) {
+                waiting = guest;
+                order = orderInWaitList;
+            }
+        }
+        // like GuestsList, a guest from the waitlist is preferred
+        return Optional.ofNullable(waiting != null ? waiting : confirmed);
+    }
+
+    /**
+     * Search and return the Guests that contain the given string in any of their fields,
+     * the guests list first, then the waitlist.
+     * Note: search is case insensitive
+     * @param str a String to be looked up
+     * @return a list of Guests, empty if no match has been found
+     */
+    public List<Guest> search(String str) {
+        String key = CaseInsensitive.fold(str);
+        List<Guest> result = new ArrayList<>();
+        for (Guest guest : guestsList.values()) {
+            if (guest.anyFieldContains(key)) {
+                result.add(guest);
+            }
+        }
+        for (Guest guest : getWaitList()) {
+            if (guest.anyFieldContains(key)) {
+                result.add(guest);
+            }
+        }
+        return result;
+    }
+
+    public int getNoAvailablePlaces() {
+        return numberOfPlaces - taken(places.get());
+    }
+
+    public int getTotalNoParticipants() {
+        return taken(places.get());
+    }
+
+    public int getTotalNoWaiting() {
+        return waiting(places.get());
+    }
+
+    public int getTotalNoRegistered() {
+        return registrations.size();
+    }
+
+    public int getNumberOfPlaces() {
+        return numberOfPlaces;
+    }
+
+    /**
+     * Return a copy of the guests list
+     * @return the guests who are attending the event, in the order they got their place
+     */
+    public List<Guest> getGuestsList() {
+        return new ArrayList<>(guestsList.values());
+    }
+
+    /**
+     * Return a copy of the wait list
+     * @return the guests who are on the wait list for the event, in order
+     */
+    public List<Guest> getWaitList() {
+        waitListLock.lock();
+        try {
+            return waitList.toList();
+        } finally {
+            waitListLock.unlock();
+        }
+    }
+
+    /**
+     * Take a free place with a CAS on the counter
+     * @return false if the event is full
+     */
+    private boolean takePlace() {
+        while (true) {
+            long current = places.get();
+            if (taken(current) >= numberOfPlaces) {
+                return false;
+            }
+            if (places.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Count one more waiting guest, under the waitlist lock
+     * @return false if a place is free, so the guest shouldn't wait
+     */
+    private boolean joinWaitList() {
+        while (true) {
+            long current = places.get();
+            if (taken(current) < numberOfPlaces) {
+                return false;
+            }
+            if (places.compareAndSet(current, current + ONE_WAITING)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give back a place with a CAS on the counter
+     * @return false if guests are waiting, so the place should go to the first of them
+     */
+    private boolean freePlace() {
+        while (true) {
+            long current = places.get();
+            if (waiting(current) > 0) {
+                return false;
+            }
+            if (places.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+    }
+
+    private static int taken(long places) {
+        return (int) places;
+    }
+
+    private static int waiting(long places) {
+        return (int) (places >>> 32);
+    }
+
+    private void confirm(Registration registration) {
+        registration.sequence = confirmationSequence.incrementAndGet();
+        registrations.put(registration.guest, registration);
+        index(registration.guest);
+        guestsList.put(registration.sequence, registration.guest);
+    }
+
+    /**
+     * Return the order number of a registered guest
+     * @return 0 if the guest is on the guests list, -1 if the guest has been removed,
+     *          otherwise the order number on the waitlist
+     */
+    private int orderInWaitList(Registration registration) {
+        // a confirmed guest stays confirmed, so only the position on the waitlist needs the lock
+        if (registration.isConfirmed()) {
+            return 0;
+        }
+        waitListLock.lock();
+        try {
+            if (registration.isConfirmed()) {
+                return 0;
+            }
+            int index = waitList.indexOf(registration.guest);
+            return index < 0 ? -1 : index + 1;
+        } finally {
+            waitListLock.unlock();
+        }
+    }
+
+    private ReentrantLock stripeOf(Guest guest) {
+        int hash = guest.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    private void index(Guest guest) {
+        addToIndex(byName, nameKey(guest), guest);
+        addToIndex(byEmail, guest.emailKey(), guest);
+        addToIndex(byPhone, phoneKey(guest), guest);
+    }
+
+    private void unindex(Guest guest) {
+        removeFromIndex(byName, nameKey(guest), guest);
+        removeFromIndex(byEmail, guest.emailKey(), guest);
+        removeFromIndex(byPhone, phoneKey(guest), guest);
+    }
+
+    private static <K> void addToIndex(ConcurrentMap<K, Set<Guest>> index, K key, Guest guest) {
+        index.compute(key, (k, guests) -> {
+            Set<Guest> set = guests == null ? ConcurrentHashMap.newKeySet() : guests;
+            set.add(guest);
+            return set;
+        });
+    }
+
+    private static <K> void removeFromIndex(ConcurrentMap<K, Set<Guest>> index, K key, Guest guest) {
+        index.computeIfPresent(key, (k, guests) -> {
+            guests.remove(guest);
+            return guests.isEmpty() ? null : guests;
+        });
+    }
+
+    private static Object phoneKey(Guest guest) {
+        long code = guest.phoneCode();
+        return code >= 0 ? (Object) code : guest.phoneKey();
+    }
+
+    private static Object phoneKey(String phoneNumber) {
+        long code = PhoneNumbers.pack(phoneNumber);
+        return code >= 0 ? (Object) code : CaseInsensitive.fold(phoneNumber);
+    }
+
+    private static String nameKey(Guest guest) {
+        return guest.lastNameKey() + '\u0000' + guest.firstNameKey();
+    }
+
+    private static String nameKey(String firstName, String lastName) {
+        return CaseInsensitive.fold(lastName) + '\u0000' + CaseInsensitive.fold(firstName);
+    }
+}
@@ -0,0 +1,517 @@
+package com.danpopescu.registrationmanagement;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Manages the guests lists of many events in one process.
+ *
+ * Every event is saved in the directory by its own com.danpopescu.registrationmanagement.GuestsListStore,
+ * with the event ID as file name. An event is loaded on first access, and at most maxLoadedEvents
+ * are kept in memory: when more are loaded, the least recently used events that are not in use
+ * are closed. Events that have not been used for a while can also be closed with evictIdle().
+ *
+ * Each event has its own lock, so the operations on different events run in parallel, while
+ * the operations on the same event run one after the other. A GuestsList must only be used
+ * inside the action passed to withEvent().
+ *
+ * When the changes are written to the files depends on the durability mode: after every action,
+ * by a background thread at a fixed interval, or only when the event is closed. In the last two
+ * modes, the changes of many actions are written at once.
+ */
+public class EventRegistry implements Closeable {
+
+    private static final Pattern EVENT_ID = Pattern.compile("[A-Za-z0-9_-]{1,100}");
+
+    /**
+     * An action run on the guests list of an event
+     * @param <T> type of the result
+     */
+    @FunctionalInterface
+    public interface EventAction<T> {
+        T apply(GuestsList guestsList) throws IOException;
+    }
+
+    /**
+     * When the changes made by the actions are written to the files
+     */
+    public enum Durability {
+        /** before withEvent() returns */
+        SYNC,
+        /** by a background thread, at most one interval after the action */
+        INTERVAL,
+        /** when the event is closed: evicted, deleted or when the registry is closed */
+        ON_SHUTDOWN
+    }
+
+    private final Path directory;
+    private final int maxLoadedEvents;
+    private final BiConsumer<String, GuestsList> onLoad;
+    private final BiConsumer<String, GuestsList> onUnload;
+    private final Durability durability;
+    // access ordered, guarded by itself
+    private final Map<String, Event> events = new LinkedHashMap<>(16, 0.75f, true);
+    // events of the map being evicted, guarded by the map
+    private int evictingEvents;
+    // writes the changes in the INTERVAL mode, null in the other modes
+    private final ScheduledExecutorService writer;
+    private volatile IOException writeFailure;
+
+    /**
+     * @param directory where the events are saved
+     * @param maxLoadedEvents how many events are kept in memory at most, while not in use
+     */
+    public EventRegistry(Path directory, int maxLoadedEvents) {
+        this(directory, maxLoadedEvents, guestsList -> { });
+    }
+
+    /**
+     * @param directory where the events are saved
+     * @param maxLoadedEvents how many events are kept in memory at most, while not in use
+     * @param onLoad called with the guests list of an event each time it is loaded or created,
+     *               e.g. to enable its search index
+     */
+    public EventRegistry(Path directory, int maxLoadedEvents, Consumer<GuestsList> onLoad) {
+        this(directory, maxLoadedEvents, (eventId, guestsList) -> onLoad.accept(guestsList),
+                Durability.SYNC, Duration.ZERO);
+    }
+
+    /**
+     * @param directory where the events are saved
+     * @param maxLoadedEvents how many events are kept in memory at most, while not in use
+     * @param onLoad called with the ID and the guests list of an event each time it is loaded or created,
+     *               e.g. to publish its changes with a NotificationPipeline
+     * @param durability when the changes are written to the files
+     * @param interval between two writes in the INTERVAL mode, ignored in the other modes
+     */
+    public EventRegistry(Path directory, int maxLoadedEvents, BiConsumer<String, GuestsList> onLoad,
+                         Durability durability, Duration interval) {
+        this(directory, maxLoadedEvents, onLoad, (eventId, guestsList) -> { }, durability, interval);
+    }
+
+    /**
+     * @param directory where the events are saved
+     * @param maxLoadedEvents how many events are kept in memory at most, while not in use
+     * @param onLoad called with the ID and the guests list of an event each time it is loaded or created
+     * @param onUnload called with the ID and the guests list of an event each time it is closed (evicted,
+     *                 deleted or when the registry is closed), e.g. to release what onLoad registered
+     * @param durability when the changes are written to the files
+     * @param interval between two writes in the INTERVAL mode, ignored in the other modes
+     */
+    public EventRegistry(Path directory, int maxLoadedEvents, BiConsumer<String, GuestsList> onLoad,
+                         BiConsumer<String, GuestsList> onUnload, Durability durability, Duration interval) {
+        if (maxLoadedEvents < 1) {
+            throw new IllegalArgumentException("maxLoadedEvents should be positive: " + maxLoadedEvents);
+        }
+        if (durability == Durability.INTERVAL && (interval.isNegative() || interval.isZero())) {
+            throw new IllegalArgumentException("interval should be positive: " + interval);
+        }
+        this.directory = directory;
+        this.maxLoadedEvents = maxLoadedEvents;
+        this.onLoad = onLoad;
+        this.onUnload = onUnload;
+        this.durability = durability;
+        if (durability == Durability.INTERVAL) {
+            writer = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "event-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long nanos = interval.toNanos();
+            writer.scheduleWithFixedDelay(this::writeChanges, nanos, nanos, TimeUnit.NANOSECONDS);
+        } else {
+            writer = null;
+        }
+    }
+
+    /**
+     * Check if an event has been created
+     * @param eventId of the event
+     * @return true if the event is saved in the directory
+     */
+    public boolean exists(String eventId) {
+        return new GuestsListStore(directory, checkId(eventId)).exists();
+    }
+
+    /**
+     * Create a new event with an empty guests list
+     * @param eventId letters, digits, '_' and '-'
+     * @param numberOfPlaces of the event
+     * @throws IllegalStateException if the event already exists
+     */
+    public void create(String eventId, int numberOfPlaces) throws IOException {
+        Event event = acquire(eventId);
+        event.lock.lock();
+        try {
+            if (event.store != null || event.store().exists()) {
+                throw new IllegalStateException("The event " + eventId + " already exists");
+            }
+            GuestsList guestsList = new GuestsList(numberOfPlaces);
+            onLoad.accept(eventId, guestsList);
+            GuestsListStore store = event.store();
+            store.create(guestsList);
+            event.store = store;
+            event.guestsList = guestsList;
+        } finally {
+            event.lock.unlock();
+            release(event);
+        }
+    }
+
+    /**
+     * Run an action on the guests list of an event, loading the event if needed, and save
+     * the changes made by the action according to the durability mode. No other action runs
+     * on the same event meanwhile.
+     * @param eventId of an existing event
+     * @param action to run
+     * @return the result of the action
+     * @throws IllegalArgumentException if the event doesn't exist
+     */
+    public <T> T withEvent(String eventId, EventAction<T> action) throws IOException {
+        Event event = acquire(eventId);
+        event.lock.lock();
+        try {
+            if (event.guestsList == null) {
+                load(event);
+            }
+            T result = action.apply(event.guestsList);
+            if (durability == Durability.SYNC) {
+                flush(event);
+            }
+            return result;
+        } finally {
+            event.lock.unlock();
+            release(event);
+        }
+    }
+
+    /**
+     * Delete an event and its saved files
+     * @param eventId of the event
+     */
+    public void delete(String eventId) throws IOException {
+        Event event = acquire(eventId);
+        event.lock.lock();
+        try {
+            event.store().delete();
+            GuestsList deleted = event.guestsList;
+            event.store = null;
+            event.guestsList = null;
+            if (deleted != null) {
+                onUnload.accept(eventId, deleted);
+            }
+        } finally {
+            event.lock.unlock();
+            release(event);
+        }
+    }
+
+    /**
+     * Return the IDs of all the saved events, loaded or not
+     * @return the event IDs, sorted
+     */
+    public Set<String> eventIds() throws IOException {
+        Set<String> ids = new TreeSet<>();
+        if (!Files.isDirectory(directory)) {
+            return ids;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.{snapshot,dat}")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String id = name.substring(0, name.lastIndexOf('.'));
+                if (EVENT_ID.matcher(id).matches()) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * @return the number of events currently kept in memory
+     */
+    public int loadedEvents() {
+        synchronized (events) {
+            int loaded = 0;
+            for (Event event : events.values()) {
+                if (event.guestsList != null) {
+                    loaded++;
+                }
+            }
+            return loaded;
+        }
+    }
+
+    /**
+     * Close the events that are not in use and have not been used for the given time
+     * @param idleTime since the last use
+     * @return the number of closed events
+     */
+    public int evictIdle(Duration idleTime) throws IOException {
+        long threshold = System.nanoTime() - idleTime.toNanos();
+        List<Event> idle = new ArrayList<>();
+        synchronized (events) {
+            for (Event event : events.values()) {
+                if (event.users == 0 && event.lastUsed - threshold <= 0) {
+                    startEviction(event);
+                    idle.add(event);
+                }
+            }
+        }
+        int closed = evict(idle);
+        throwWriteFailure();
+        return closed;
+    }
+
+    /**
+     * Write the changes of all the loaded events now, whatever the durability mode
+     */
+    public void flush() throws IOException {
+        for (Event event : acquireLoaded()) {
+            event.lock.lock();
+            try {
+                if (event.store != null && event.store.hasChanges()) {
+                    flush(event);
+                }
+            } finally {
+                event.lock.unlock();
+                release(event);
+            }
+        }
+        throwWriteFailure();
+    }
+
+    /**
+     * Stop the background writer, if any, and close all the loaded events, writing their changes.
+     * Closing the registry again does nothing.
+     */
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (events) {
+            IOException failure = writeFailure;
+            writeFailure = null;
+            for (Event event : events.values()) {
+                event.lock.lock();
+                try {
+                    event.close();
+                } catch (IOException e) {
+                    failure = e;
+                } finally {
+                    event.lock.unlock();
+                }
+            }
+            events.clear();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Write the changes of the loaded events, on the background writer
+     */
+    private void writeChanges() {
+        try {
+            flush();
+        } catch (IOException e) {
+            // reported by the next flush() or close()
+            writeFailure = e;
+        } catch (RuntimeException e) {
+            writeFailure = new IOException(e);
+        }
+    }
+
+    private void throwWriteFailure() throws IOException {
+        IOException failure = writeFailure;
+        if (failure != null) {
+            writeFailure = null;
+            throw failure;
+        }
+    }
+
+    /**
+     * Mark all the loaded events as in use, so that they can be flushed one by one
+     */
+    private List<Event> acquireLoaded() {
+        synchronized (events) {
+            List<Event> loaded = new ArrayList<>();
+            for (Event event : events.values()) {
+                if (event.guestsList != null) {
+                    event.users++;
+                    loaded.add(event);
+                }
+            }
+            return loaded;
+        }
+    }
+
+    private static String checkId(String eventId) {
+        if (eventId == null || !EVENT_ID.matcher(eventId).matches()) {
+            throw new IllegalArgumentException("Invalid event ID: " + eventId);
+        }
+        return eventId;
+    }
+
+    /**
+     * Find or add the entry of an event and mark it as in use, so that it is not evicted
+     */
+    private Event acquire(String eventId) {
+        checkId(eventId);
+        synchronized (events) {
+            Event event = events.computeIfAbsent(eventId, Event::new);
+            event.users++;
+            return event;
+        }
+    }
+
+    /**
+     * Mark the event as no longer in use, and close the least recently used events
+     * that are not in use while too many are loaded
+     */
+    private void release(Event event) {
+        List<Event> victims = new ArrayList<>();
+        synchronized (events) {
+            event.users--;
+            event.lastUsed = System.nanoTime();
+            if (event.users == 0 && event.guestsList == null) {
+                // deleted, or never loaded because it doesn't exist
+                events.remove(event.id);
+            }
+            Iterator<Event> leastRecentlyUsed = events.values().iterator();
+            while (events.size() - evictingEvents > maxLoadedEvents && leastRecentlyUsed.hasNext()) {
+                Event candidate = leastRecentlyUsed.next();
+                if (candidate.users == 0) {
+                    startEviction(candidate);
+                    victims.add(candidate);
+                }
+            }
+        }
+        // the victims write their changes outside the monitor, so that the other events don't wait for them
+        evict(victims);
+    }
+
+    /**
+     * Mark an event as in use until it is closed, so that it isn't evicted twice, and stays in the
+     * map: an action on it waits for the eviction instead of loading the files being written
+     */
+    private void startEviction(Event event) {
+        event.users++;
+        evictingEvents++;
+    }
+
+    /**
+     * Close the events marked by startEviction(), without holding the map's monitor. An event that
+     * can't be closed keeps its changes and stays loaded; the failure is reported by the next flush()
+     * or close() instead of the caller, whose action may be on another event.
+     * @return the number of closed events
+     */
+    private int evict(List<Event> victims) {
+        int closed = 0;
+        for (Event event : victims) {
+            event.lock.lock();
+            try {
+                event.close();
+                closed++;
+            } catch (IOException e) {
+                writeFailure = e;
+            } catch (RuntimeException e) {
+                writeFailure = new IOException(e);
+            } finally {
+                event.lock.unlock();
+            }
+            synchronized (events) {
+                evictingEvents--;
+                event.users--;
+                if (event.users == 0 && event.guestsList == null) {
+                    // unless the registry has been closed meanwhile and the ID used again
+                    events.remove(event.id, event);
+                }
+            }
+        }
+        return closed;
+    }
+
+    private void load(Event event) throws IOException {
+        GuestsListStore store = event.store();
+        if (!store.exists()) {
+            throw new IllegalArgumentException("The event " + event.id + " doesn't exist");
+        }
+        try {
+            event.guestsList = store.open();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("The event " + event.id + " was saved by an incompatible version", e);
+        }
+        event.store = store;
+        onLoad.accept(event.id, event.guestsList);
+    }
+
+    private static void flush(Event event) throws IOException {
+        GuestsListMetrics metrics = event.guestsList.getMetrics();
+        long start = metrics == null ? 0 : System.nanoTime();
+        event.store.flush();
+        if (metrics != null) {
+            metrics.record(GuestsListMetrics.Operation.PERSIST, System.nanoTime() - start);
+        }
+    }
+
+    private class Event {
+        final String id;
+        final ReentrantLock lock = new ReentrantLock();
+        // guarded by the registry's map
+        int users;
+        long lastUsed = System.nanoTime();
+        // guarded by lock, null while the event is not loaded
+        GuestsListStore store;
+        GuestsList guestsList;
+
+        Event(String id) {
+            this.id = id;
+        }
+
+        GuestsListStore store() {
+            return store != null ? store : new GuestsListStore(directory, id);
+        }
+
+        /**
+         * Write the changes that haven't been written yet and close the files
+         */
+        void close() throws IOException {
+            if (store != null) {
+                if (store.hasChanges()) {
+                    flush(this);
+                }
+                store.close();
+                GuestsList closed = guestsList;
+                store = null;
+                guestsList = null;
+                onUnload.accept(id, closed);
+            }
+        }
+    }
+}
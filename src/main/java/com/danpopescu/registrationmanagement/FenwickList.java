@@ -0,0 +1,515 @@
+package com.danpopescu.registrationmanagement;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * An ordered list of distinct elements (compared by identity) that supports
+ * order statistics in logarithmic time.
+ *
+ * Every appended element gets the next insertion slot. Removed elements leave an
+ * empty slot behind, and a Fenwick tree over the slots counts how many elements
+ * are still present before a given slot. This way the position of an element,
+ * the element at a given position, and the removal of an element from any position
+ * all run in O(log n), without shifting the other elements. The slots are
+ * compacted in O(n) only when they run out, so appends are amortized O(1).
+ * @param <E> type of the elements
+ */
+class FenwickList<E> implements Iterable<E> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Object[] items = new Object[INITIAL_CAPACITY];
+    // 1-based Fenwick tree: tree[i] counts the elements in the slots (i - lowbit(i), i]
+    private int[] tree = new int[INITIAL_CAPACITY + 1];
+    private final IdentitySlotMap slots = new IdentitySlotMap();
+    // next free slot
+    private int end;
+    // no element is stored before this slot
+    private int head;
+    private int size;
+    private int modCount;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(E element) {
+        return slots.containsKey(element);
+    }
+
+    /**
+     * Append an element at the end of the list
+     * @param element not already in the list
+     */
+    void add(E element) {
+        if (end == items.length) {
+            // reuse the empty slots if at least half of them are free, grow otherwise
+            rebuild(size <= items.length / 2 ? items.length : items.length * 2, 0);
+        }
+        items[end] = element;
+        slots.put(element, end);
+        increment(end, 1);
+        end++;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Return the position of the element in the list
+     * @param element to look for
+     * @return the 0-based position of the element, or -1 if the element is not in the list
+     */
+    int indexOf(E element) {
+        int slot = slots.get(element);
+        return slot < 0 ? -1 : prefixCount(slot) - 1;
+    }
+
+    /**
+     * Return the element at the given position
+     * @param index 0-based position in the list
+     * @return the element at that position
+     */
+    @SuppressWarnings("unchecked")
+    E get(int index) {
+        checkIndex(index);
+        return (E) items[slotOf(index)];
+    }
+
+    /**
+     * Remove the element at the head of the list
+     * @return the removed element
+     */
+    @SuppressWarnings("unchecked")
+    E removeFirst() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        while (items[head] == null) {
+            head++;
+        }
+        E element = (E) items[head];
+        removeSlot(head);
+        return element;
+    }
+
+    /**
+     * Remove the first elements of the list at once
+     * @param count the number of elements to remove, at most size()
+     * @return the removed elements, in list order
+     */
+    List<E> removeFirst(int count) {
+        checkCount(count);
+        List<E> removed = new ArrayList<>(count);
+        int slot = head;
+        while (removed.size() < count) {
+            if (items[slot] != null) {
+                removed.add(elementAt(slot));
+                removeSlot(slot);
+            }
+            slot++;
+        }
+        head = slot;
+        return removed;
+    }
+
+    /**
+     * Remove the last elements of the list at once. The slots they leave empty at the end
+     * are reused by the next appends.
+     * @param count the number of elements to remove, at most size()
+     * @return the removed elements, in list order
+     */
+    List<E> removeLast(int count) {
+        checkCount(count);
+        Object[] removed = new Object[count];
+        int slot = end;
+        for (int i = count - 1; i >= 0; i--) {
+            do {
+                slot--;
+            } while (items[slot] == null);
+            removed[i] = items[slot];
+            removeSlot(slot);
+        }
+        end = slot;
+        @SuppressWarnings("unchecked")
+        List<E> elements = (List<E>) Arrays.asList(removed);
+        return elements;
+    }
+
+    /**
+     * Insert elements at the head of the list, keeping their order. They take the empty slots
+     * before the head of the list; when there aren't enough, the slots are compacted once
+     * leaving room for all of them in front.
+     * @param elements none of them already in the list
+     */
+    void addAllFirst(List<E> elements) {
+        int count = elements.size();
+        if (count > head) {
+            int capacity = items.length;
+            while (capacity < size + count) {
+                capacity *= 2;
+            }
+            rebuild(capacity, count);
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            E element = elements.get(i);
+            head--;
+            items[head] = element;
+            slots.put(element, head);
+            increment(head, 1);
+            size++;
+        }
+        modCount++;
+    }
+
+    /**
+     * Remove the element at the given position
+     * @param index 0-based position in the list
+     * @return the removed element
+     */
+    @SuppressWarnings("unchecked")
+    E remove(int index) {
+        checkIndex(index);
+        int slot = slotOf(index);
+        E element = (E) items[slot];
+        removeSlot(slot);
+        return element;
+    }
+
+    /**
+     * Remove the given element from the list
+     * @param element to be removed
+     * @return true if the element was in the list
+     */
+    boolean remove(E element) {
+        int slot = slots.get(element);
+        if (slot < 0) {
+            return false;
+        }
+        removeSlot(slot);
+        return true;
+    }
+
+    void clear() {
+        items = new Object[INITIAL_CAPACITY];
+        tree = new int[INITIAL_CAPACITY + 1];
+        slots.clear();
+        end = 0;
+        head = 0;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Return a copy of the elements in list order
+     * @return a new List with the elements
+     */
+    List<E> toList() {
+        List<E> list = new ArrayList<>(size);
+        for (E element : this) {
+            list.add(element);
+        }
+        return list;
+    }
+
+    /**
+     * Return a copy of a range of the list, e.g. one page of a listing. Only the
+     * returned elements are visited, so a page costs O(log n + limit).
+     * @param offset 0-based position of the first element
+     * @param limit maximum number of elements
+     * @return a new List with the elements at positions [offset, offset + limit),
+     *         empty if offset is past the end of the list
+     */
+    List<E> page(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset: " + offset + ", limit: " + limit);
+        }
+        int count = Math.max(0, Math.min(limit, size - offset));
+        List<E> page = new ArrayList<>(count);
+        if (count > 0) {
+            forEachInRange(offset, offset + count, page::add);
+        }
+        return page;
+    }
+
+    /**
+     * Return a read-only view of the list. The view reflects the later changes of
+     * the list, and its iterators and spliterators fail fast if the list is changed
+     * while they are in use.
+     * @return an unmodifiable List backed by this list
+     */
+    List<E> view() {
+        return new View();
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        forEachInRange(0, size, action);
+    }
+
+    /**
+     * Return a spliterator over the elements. It splits by position, so both halves
+     * know their exact size and parallel streams get balanced work.
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new RangeSpliterator(0, size, modCount);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private final int expectedModCount = modCount;
+            private int slot = head;
+            private int remaining = size;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                while (items[slot] == null) {
+                    slot++;
+                }
+                remaining--;
+                return (E) items[slot++];
+            }
+        };
+    }
+
+    /**
+     * Visit the elements at positions [from, to) in list order
+     */
+    private void forEachInRange(int from, int to, Consumer<? super E> action) {
+        int expectedModCount = modCount;
+        int slot = slotOf(from);
+        for (int i = from; i < to; i++) {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            while (items[slot] == null) {
+                slot++;
+            }
+            action.accept(elementAt(slot++));
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    private void removeSlot(int slot) {
+        slots.remove(items[slot]);
+        items[slot] = null;
+        increment(slot, -1);
+        size--;
+        modCount++;
+    }
+
+    private void checkCount(int count) {
+        if (count < 0 || count > size) {
+            throw new IndexOutOfBoundsException("Count: " + count + ", Size: " + size);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private void increment(int slot, int delta) {
+        for (int i = slot + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Count the elements stored in the slots [0, slot]
+     */
+    private int prefixCount(int slot) {
+        int count = 0;
+        for (int i = slot + 1; i > 0; i -= i & -i) {
+            count += tree[i];
+        }
+        return count;
+    }
+
+    /**
+     * Find the slot holding the element at the given position by descending the Fenwick tree
+     */
+    private int slotOf(int index) {
+        int position = 0;
+        int remaining = index + 1;
+        for (int step = Integer.highestOneBit(items.length); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next < tree.length && tree[next] < remaining) {
+                position = next;
+                remaining -= tree[next];
+            }
+        }
+        // position is the largest 1-based slot whose prefix count is below index + 1
+        return position;
+    }
+
+    /**
+     * Move the elements to consecutive slots of new arrays of the given capacity
+     * and rebuild the Fenwick tree in linear time
+     * @param first the slot of the first element; the slots before it are left empty
+     */
+    private void rebuild(int capacity, int first) {
+        Object[] newItems = new Object[capacity];
+        int[] newTree = new int[capacity + 1];
+        int slot = first;
+        for (int i = head; i < end; i++) {
+            if (items[i] != null) {
+                newItems[slot] = items[i];
+                slots.put(elementAt(i), slot);
+                newTree[slot + 1] = 1;
+                slot++;
+            }
+        }
+        for (int i = 1; i <= capacity; i++) {
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                newTree[parent] += newTree[i];
+            }
+        }
+        items = newItems;
+        tree = newTree;
+        end = slot;
+        head = first;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E elementAt(int slot) {
+        return (E) items[slot];
+    }
+
+    private class View extends AbstractList<E> implements RandomAccess {
+        @Override
+        public E get(int index) {
+            return FenwickList.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return FenwickList.this.iterator();
+        }
+
+        @Override
+        public void forEach(Consumer<? super E> action) {
+            FenwickList.this.forEach(action);
+        }
+
+        @Override
+        public Spliterator<E> spliterator() {
+            return FenwickList.this.spliterator();
+        }
+    }
+
+    /**
+     * Spliterator over the positions [index, fence). The list is only read while
+     * traversing, so the halves of a split can be traversed on different threads.
+     */
+    private class RangeSpliterator implements Spliterator<E> {
+        private final int expectedModCount;
+        private int index;
+        private final int fence;
+        // slot of the element at position index, -1 until the traversal starts
+        private int slot = -1;
+
+        RangeSpliterator(int index, int fence, int expectedModCount) {
+            this.index = index;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            checkModCount();
+            if (index >= fence) {
+                return false;
+            }
+            slot = slot < 0 ? slotOf(index) : slot;
+            while (items[slot] == null) {
+                slot++;
+            }
+            index++;
+            action.accept(elementAt(slot++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            checkModCount();
+            if (index < fence) {
+                slot = slot < 0 ? slotOf(index) : slot;
+                for (; index < fence; index++) {
+                    checkModCount();
+                    while (items[slot] == null) {
+                        slot++;
+                    }
+                    action.accept(elementAt(slot++));
+                }
+            }
+            checkModCount();
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            int middle = (index + fence) >>> 1;
+            if (slot >= 0 || middle <= index) {
+                return null;
+            }
+            Spliterator<E> prefix = new RangeSpliterator(index, middle, expectedModCount);
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | NONNULL | SIZED | SUBSIZED;
+        }
+
+        private void checkModCount() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
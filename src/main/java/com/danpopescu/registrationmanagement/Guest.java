@@ -1,5 +1,8 @@
 package com.danpopescu.registrationmanagement;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Comparator;
 import java.util.Objects;
@@ -11,8 +14,19 @@ public class Guest implements Serializable {
     private String firstName;
     private String lastName;
     private String email;
+    // null when the number is written in the E.164 format, which is kept only in phoneCode
     private String phoneNumber;
 
+    // case folded copies of the fields and the hash code, recomputed by the setters
+    private transient String firstNameKey;
+    private transient String lastNameKey;
+    private transient String emailKey;
+    // null, like phoneNumber, when the number is written in the E.164 format
+    private transient String phoneKey;
+    // the phone number normalized by PhoneNumbers.pack(), -1 if it can't be normalized
+    private transient long phoneCode;
+    private transient int hash;
+
     public static final Comparator<Guest> BY_NAME_ORDER = new NameComparator();
     public static final Comparator<Guest> BY_EMAIL_ORDER = new EmailComparator();
     public static final Comparator<Guest> BY_PHONE_ORDER = new PhoneComparator();
@@ -22,6 +36,7 @@ public class Guest implements Serializable {
         this.lastName = lastName;
         this.email = email;
         this.phoneNumber = phoneNumber;
+        computeKeys();
     }
 
     public String getFirstName() {
@@ -30,6 +45,8 @@ public class Guest implements Serializable {
 
     public void setFirstName(String firstName) {
         this.firstName = firstName;
+        this.firstNameKey = CaseInsensitive.fold(firstName);
+        this.hash = computeHash();
     }
 
     public String getLastName() {
@@ -38,6 +55,8 @@ public class Guest implements Serializable {
 
     public void setLastName(String lastName) {
         this.lastName = lastName;
+        this.lastNameKey = CaseInsensitive.fold(lastName);
+        this.hash = computeHash();
     }
 
     public String getEmail() {
@@ -46,21 +65,74 @@ public class Guest implements Serializable {
 
     public void setEmail(String email) {
         this.email = email;
+        this.emailKey = CaseInsensitive.fold(email);
+        this.hash = computeHash();
     }
 
     public String getPhoneNumber() {
-        return phoneNumber;
+        return phoneNumber != null ? phoneNumber : PhoneNumbers.format(phoneCode);
     }
 
     public void setPhoneNumber(String phoneNumber) {
-        this.phoneNumber = phoneNumber;
+        storePhoneNumber(phoneNumber);
+        this.hash = computeHash();
+    }
+
+    String firstNameKey() {
+        return firstNameKey;
+    }
+
+    String lastNameKey() {
+        return lastNameKey;
+    }
+
+    String emailKey() {
+        return emailKey;
+    }
+
+    String phoneKey() {
+        return phoneKey != null ? phoneKey : PhoneNumbers.format(phoneCode);
+    }
+
+    long phoneCode() {
+        return phoneCode;
+    }
+
+    /**
+     * Replace the names and their keys by the equal instances found in the pool, adding
+     * the ones that are not there yet. The content of the fields doesn't change.
+     * Every call should be matched by a call to releaseNames() with the same pool.
+     * @param pool of shared Strings
+     */
+    void shareNames(NamePool pool) {
+        this.firstName = pool.share(firstName);
+        this.lastName = pool.share(lastName);
+        this.firstNameKey = pool.share(firstNameKey);
+        this.lastNameKey = pool.share(lastNameKey);
+    }
+
+    /**
+     * Release the names shared by shareNames(), e.g. when the guest is removed or before
+     * its names are changed
+     * @param pool passed to shareNames()
+     */
+    void releaseNames(NamePool pool) {
+        pool.release(firstName);
+        pool.release(lastName);
+        pool.release(firstNameKey);
+        pool.release(lastNameKey);
     }
 
+    /**
+     * Check if any field of the guest contains the given string, ignoring the case
+     * @param string a case folded or lower case string
+     * @return true if any field contains the string
+     */
     public boolean anyFieldContains(String string) {
-        return this.firstName.toLowerCase().contains(string)
-                || this.lastName.toLowerCase().contains(string)
-                || this.email.toLowerCase().contains(string)
-                || this.phoneNumber.contains(string);
+        return this.firstNameKey.contains(string)
+                || this.lastNameKey.contains(string)
+                || this.emailKey.contains(string)
+                || (phoneKey != null ? phoneKey.contains(string) : PhoneNumbers.formatContains(phoneCode, string));
     }
 
     @Override
@@ -73,28 +145,80 @@ public class Guest implements Serializable {
         }
 
         Guest other = (Guest) obj;
-        return Objects.equals(this.phoneNumber, other.phoneNumber)
-                && Objects.equals(this.firstName.toLowerCase(), other.firstName.toLowerCase())
-                && Objects.equals(this.lastName.toLowerCase(), other.lastName.toLowerCase())
-                && Objects.equals(this.email.toLowerCase(), other.email.toLowerCase());
+        return this.hash == other.hash
+                && samePhone(other)
+                && Objects.equals(this.firstNameKey, other.firstNameKey)
+                && Objects.equals(this.lastNameKey, other.lastNameKey)
+                && Objects.equals(this.emailKey, other.emailKey);
     }
 
     @Override
     public int hashCode() {
+        return hash;
+    }
+
+    private int computeHash() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + Objects.hashCode(this.firstName.toLowerCase());
-        result = prime * result + Objects.hashCode(this.lastName.toLowerCase());
-        result = prime * result + Objects.hashCode(this.email.toLowerCase());
-        result = prime * result + Objects.hashCode(this.phoneNumber);
+        result = prime * result + Objects.hashCode(this.firstNameKey);
+        result = prime * result + Objects.hashCode(this.lastNameKey);
+        result = prime * result + Objects.hashCode(this.emailKey);
+        result = prime * result + (phoneCode >= 0 ? Long.hashCode(phoneCode) : Objects.hashCode(this.phoneNumber));
         return result;
     }
 
+    /**
+     * Two phone numbers are the same if they normalize to the same E.164 number,
+     * or, when they can't be normalized, if they are equal
+     */
+    private boolean samePhone(Guest other) {
+        return this.phoneCode == other.phoneCode
+                && (phoneCode >= 0 || Objects.equals(this.phoneNumber, other.phoneNumber));
+    }
+
+    /**
+     * Keep a phone number as its packed E.164 form and, only when it is written differently,
+     * as its text, so that the usual +40733386463 doesn't cost a String per guest
+     */
+    private void storePhoneNumber(String phoneNumber) {
+        this.phoneCode = PhoneNumbers.pack(phoneNumber);
+        if (phoneCode >= 0 && PhoneNumbers.format(phoneCode).equals(phoneNumber)) {
+            this.phoneNumber = null;
+            this.phoneKey = null;
+        } else {
+            this.phoneNumber = phoneNumber;
+            this.phoneKey = CaseInsensitive.fold(phoneNumber);
+        }
+    }
+
+    private void computeKeys() {
+        this.firstNameKey = CaseInsensitive.fold(firstName);
+        this.lastNameKey = CaseInsensitive.fold(lastName);
+        this.emailKey = CaseInsensitive.fold(email);
+        storePhoneNumber(phoneNumber);
+        this.hash = computeHash();
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        // the serialized form keeps the phone number as text
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("firstName", firstName);
+        fields.put("lastName", lastName);
+        fields.put("email", email);
+        fields.put("phoneNumber", getPhoneNumber());
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        computeKeys();
+    }
+
     @Override
     public String toString() {
         return "Nume: " + this.lastName + " " + this.firstName +
                 ", Email: " + this.email +
-                ", Telefon: " + this.phoneNumber;
+                ", Telefon: " + getPhoneNumber();
     }
 
     /**
@@ -127,7 +251,7 @@ public class Guest implements Serializable {
     private static class PhoneComparator implements Comparator<Guest> {
         @Override
         public int compare(Guest g1, Guest g2) {
-            return String.CASE_INSENSITIVE_ORDER.compare(g1.phoneNumber, g2.phoneNumber);
+            return String.CASE_INSENSITIVE_ORDER.compare(g1.getPhoneNumber(), g2.getPhoneNumber());
         }
     }
 }
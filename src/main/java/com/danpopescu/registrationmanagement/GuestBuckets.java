@@ -0,0 +1,55 @@
+package com.danpopescu.registrationmanagement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buckets of Guests in the maps of PrefixIndex and SortedIndex. Most keys have a single guest, so
+ * the value of such a key is the Guest itself; the value of a key with more guests is a list of
+ * them, in the order they were added. The guests are compared by identity.
+ */
+final class GuestBuckets {
+
+    private GuestBuckets() {
+    }
+
+    /**
+     * Add a guest to the bucket of a key
+     */
+    @SuppressWarnings("unchecked")
+    static <K> void add(Map<K, Object> buckets, K key, Guest guest) {
+        buckets.merge(key, guest, (existing, added) -> {
+            if (existing instanceof Guest) {
+                List<Guest> list = new ArrayList<>(2);
+                list.add((Guest) existing);
+                list.add(guest);
+                return list;
+            }
+            ((List<Guest>) existing).add(guest);
+            return existing;
+        });
+    }
+
+    /**
+     * Remove a guest from the bucket of a key, if it is there
+     */
+    @SuppressWarnings("unchecked")
+    static <K> void remove(Map<K, Object> buckets, K key, Guest guest) {
+        Object existing = buckets.get(key);
+        if (existing == guest) {
+            buckets.remove(key);
+        } else if (existing instanceof List) {
+            List<Guest> list = (List<Guest>) existing;
+            for (int i = 0; i < list.size(); i++) {
+                if (list.get(i) == guest) {
+                    list.remove(i);
+                    break;
+                }
+            }
+            if (list.size() == 1) {
+                buckets.put(key, list.get(0));
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.danpopescu.registrationmanagement;
+
+/**
+ * A change made to the guests list of an event, as published by com.danpopescu.registrationmanagement.NotificationPipeline.
+ * The fields of the guest are copied when the change is made, so the event doesn't change
+ * if the guest is updated later.
+ */
+public final class GuestEvent {
+
+    public enum Type {
+        /** the guest got a place on the guests list when registering */
+        REGISTERED,
+        /** the guest was added to the waitlist when registering */
+        WAITLISTED,
+        /** the guest was moved from the waitlist to the guests list */
+        PROMOTED,
+        /** the guest was moved back from the guests list to the waitlist, because places were removed */
+        DEMOTED,
+        /** the guest was removed from one of the lists */
+        REMOVED,
+        /** a field of the guest was changed */
+        UPDATED
+    }
+
+    private final String eventId;
+    private final Type type;
+    private final String lastName;
+    private final String firstName;
+    private final String email;
+    private final String phoneNumber;
+    private final GuestField field;
+    private final String oldValue;
+    private final long timestamp;
+
+    GuestEvent(String eventId, Type type, Guest guest, GuestField field, String oldValue) {
+        this.eventId = eventId;
+        this.type = type;
+        this.lastName = guest.getLastName();
+        this.firstName = guest.getFirstName();
+        this.email = guest.getEmail();
+        this.phoneNumber = guest.getPhoneNumber();
+        this.field = field;
+        this.oldValue = oldValue;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the ID of the event whose list changed, or null if the list is not part of a registry
+     */
+    public String getEventId() {
+        return eventId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    /**
+     * @return the changed field for UPDATED, null for the other types
+     */
+    public GuestField getField() {
+        return field;
+    }
+
+    /**
+     * @return the value of the field before an UPDATED change, null for the other types
+     */
+    public String getOldValue() {
+        return oldValue;
+    }
+
+    /**
+     * @return when the change was made, in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + lastName + " " + firstName + (eventId == null ? "" : " (" + eventId + ")");
+    }
+}
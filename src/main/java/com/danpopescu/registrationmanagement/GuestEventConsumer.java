@@ -0,0 +1,18 @@
+package com.danpopescu.registrationmanagement;
+
+import java.util.List;
+
+/**
+ * Receives the events published by a com.danpopescu.registrationmanagement.NotificationPipeline,
+ * on the dispatcher thread of the pipeline, in batches
+ */
+@FunctionalInterface
+public interface GuestEventConsumer {
+
+    /**
+     * @param events the next events, in the order the changes were made (for the changes of the same event);
+     *               the list is reused after the call returns
+     * @throws Exception counted as a failure of the batch; the pipeline goes on with the next batch
+     */
+    void accept(List<GuestEvent> events) throws Exception;
+}
@@ -0,0 +1,9 @@
+package com.danpopescu.registrationmanagement;
+
+/**
+ * Fields of a com.danpopescu.registrationmanagement.Guest that can be changed
+ * by the UPDATE operation on the com.danpopescu.registrationmanagement.GuestsList class
+ */
+public enum GuestField {
+    LAST_NAME, FIRST_NAME, EMAIL, PHONE_NUMBER
+}
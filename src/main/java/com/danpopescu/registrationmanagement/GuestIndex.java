@@ -0,0 +1,288 @@
+package com.danpopescu.registrationmanagement;
+
+/**
+ * Case insensitive hash index of the Guests registered for an event, keyed
+ * by one of their identifying fields (name, email or phone number).
+ * Several guests may share the same key. Most keys belong to a single guest, so
+ * the entry of such a key is the Guest itself, and only the keys of several guests
+ * get a Bucket holding them in the order they were indexed. The lookups return
+ * the entry, which is read with the static size() and get() methods.
+ *
+ * The index is an open addressing hash table with linear probing, keyed by the case
+ * folded fields that every Guest caches. The keys are not stored: they are read from
+ * the guests, whose Strings cache their hash codes. The table is probed with CharSequences
+ * that are folded on the fly, so a lookup doesn't allocate any object.
+ */
+class GuestIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // the key is made of a primary part and, for the names, a secondary part (the first name)
+    private final GuestField primaryField;
+    private final boolean withFirstName;
+
+    // a Guest, a Bucket of guests sharing a key, or null for a free slot
+    private Object[] table = new Object[INITIAL_CAPACITY];
+    private int size;
+
+    private GuestIndex(GuestField primaryField, boolean withFirstName) {
+        this.primaryField = primaryField;
+        this.withFirstName = withFirstName;
+    }
+
+    static GuestIndex byName() {
+        return new GuestIndex(GuestField.LAST_NAME, true);
+    }
+
+    static GuestIndex byEmail() {
+        return new GuestIndex(GuestField.EMAIL, false);
+    }
+
+    static GuestIndex byPhone() {
+        return new GuestIndex(GuestField.PHONE_NUMBER, false);
+    }
+
+    private String primaryKey(Guest guest) {
+        switch (primaryField) {
+            case LAST_NAME:
+                return guest.lastNameKey();
+            case EMAIL:
+                return guest.emailKey();
+            default:
+                return guest.phoneKey();
+        }
+    }
+
+    private String secondaryKey(Guest guest) {
+        return withFirstName ? guest.firstNameKey() : null;
+    }
+
+    /**
+     * @param entry returned by a lookup, or null
+     * @return the number of guests of the entry
+     */
+    static int size(Object entry) {
+        if (entry == null) {
+            return 0;
+        }
+        return entry instanceof Guest ? 1 : ((Bucket) entry).size;
+    }
+
+    /**
+     * @param entry returned by a lookup
+     * @param index of the guest, in the order the guests were indexed
+     * @return a guest of the entry
+     */
+    static Guest get(Object entry, int index) {
+        return entry instanceof Guest ? (Guest) entry : ((Bucket) entry).guests[index];
+    }
+
+    /**
+     * The guests sharing the same key, in the order they were indexed.
+     * A Bucket is only allocated when a second guest gets the key of an indexed one.
+     */
+    static final class Bucket {
+        private Guest[] guests;
+        private int size;
+
+        Bucket(Guest first, Guest second) {
+            guests = new Guest[]{first, second};
+            size = 2;
+        }
+
+        Guest first() {
+            return guests[0];
+        }
+
+        void add(Guest guest) {
+            if (size == guests.length) {
+                Guest[] grown = new Guest[guests.length * 2];
+                System.arraycopy(guests, 0, grown, 0, size);
+                guests = grown;
+            }
+            guests[size++] = guest;
+        }
+
+        /**
+         * Remove a guest (compared by identity) from the bucket
+         * @return the entry that replaces the bucket: the bucket itself, or its last guest
+         */
+        Object remove(Guest guest) {
+            for (int i = 0; i < size; i++) {
+                if (guests[i] == guest) {
+                    System.arraycopy(guests, i + 1, guests, i, size - i - 1);
+                    guests[--size] = null;
+                    break;
+                }
+            }
+            return size == 1 ? guests[0] : this;
+        }
+    }
+
+    /**
+     * Add a guest to an entry
+     * @return the entry that replaces the given one
+     */
+    static Object add(Object entry, Guest guest) {
+        if (entry instanceof Guest) {
+            return new Bucket((Guest) entry, guest);
+        }
+        ((Bucket) entry).add(guest);
+        return entry;
+    }
+
+    /**
+     * Remove a guest (compared by identity) from an entry
+     * @return the entry that replaces the given one, null if no guest is left
+     */
+    static Object remove(Object entry, Guest guest) {
+        if (entry instanceof Guest) {
+            return entry == guest ? null : entry;
+        }
+        return ((Bucket) entry).remove(guest);
+    }
+
+    /**
+     * @return a guest of the entry, whose keys are the keys of the entry
+     */
+    private static Guest first(Object entry) {
+        return entry instanceof Guest ? (Guest) entry : ((Bucket) entry).first();
+    }
+
+    void add(Guest guest) {
+        String primary = primaryKey(guest);
+        String secondary = secondaryKey(guest);
+        int i = find(primary, secondary, hash(primary, secondary));
+        if (table[i] != null) {
+            table[i] = add(table[i], guest);
+            return;
+        }
+        table[i] = guest;
+        if (++size > table.length * 3 / 4) {
+            resize();
+        }
+    }
+
+    /**
+     * Remove the given guest (compared by identity) from the index
+     * @param guest to be removed
+     */
+    void remove(Guest guest) {
+        String primary = primaryKey(guest);
+        String secondary = secondaryKey(guest);
+        int i = find(primary, secondary, hash(primary, secondary));
+        if (table[i] == null) {
+            return;
+        }
+        table[i] = remove(table[i], guest);
+        if (table[i] == null) {
+            delete(i);
+        }
+    }
+
+    /**
+     * Return the guests indexed under a single part key (email or phone number)
+     * @param key to look up, in any case
+     * @return the entry of the guests, or null if no guest has this key
+     */
+    Object get(CharSequence key) {
+        int mask = table.length - 1;
+        for (int i = slot(hash(CaseInsensitive.hash(key), 0), mask); table[i] != null; i = (i + 1) & mask) {
+            if (CaseInsensitive.equals(primaryKey(first(table[i])), key)) {
+                return table[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the guests indexed under a two part key (last and first name)
+     * @param primary part of the key (last name), in any case
+     * @param secondary part of the key (first name), in any case
+     * @return the entry of the guests, or null if no guest has this key
+     */
+    Object get(CharSequence primary, CharSequence secondary) {
+        int mask = table.length - 1;
+        int hash = hash(CaseInsensitive.hash(primary), CaseInsensitive.hash(secondary));
+        for (int i = slot(hash, mask); table[i] != null; i = (i + 1) & mask) {
+            Guest first = first(table[i]);
+            if (CaseInsensitive.equals(primaryKey(first), primary)
+                    && CaseInsensitive.equals(secondaryKey(first), secondary)) {
+                return table[i];
+            }
+        }
+        return null;
+    }
+
+    void clear() {
+        table = new Object[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * @return the slot of the key, or the free slot where it should be added
+     */
+    private int find(String primary, String secondary, int hash) {
+        int mask = table.length - 1;
+        int i = slot(hash, mask);
+        while (table[i] != null) {
+            Guest first = first(table[i]);
+            if (primaryKey(first).equals(primary)
+                    && (secondary == null || secondary.equals(secondaryKey(first)))) {
+                break;
+            }
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Free a slot, moving back the following entries of the cluster that could no longer be found
+     */
+    private void delete(int i) {
+        int mask = table.length - 1;
+        size--;
+        for (int j = (i + 1) & mask; table[j] != null; j = (j + 1) & mask) {
+            int home = slot(hash(first(table[j])), mask);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                table[i] = table[j];
+                table[j] = null;
+                i = j;
+            }
+        }
+    }
+
+    private void resize() {
+        Object[] oldTable = table;
+        table = new Object[oldTable.length * 2];
+        int mask = table.length - 1;
+        for (Object entry : oldTable) {
+            if (entry != null) {
+                int i = slot(hash(first(entry)), mask);
+                while (table[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = entry;
+            }
+        }
+    }
+
+    private int hash(Guest guest) {
+        return hash(primaryKey(guest), secondaryKey(guest));
+    }
+
+    private static int hash(String primary, String secondary) {
+        return hash(primary.hashCode(), secondary == null ? 0 : secondary.hashCode());
+    }
+
+    private static int hash(int primaryHash, int secondaryHash) {
+        int hash = primaryHash * 31 + secondaryHash;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int slot(int hash, int mask) {
+        // spread the hash codes of similar Strings, which would make long clusters
+        int spread = hash * 0x9E3779B9;
+        return (spread ^ (spread >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,84 @@
+package com.danpopescu.registrationmanagement;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the guests to be imported from a CSV file with the columns:
+ *      last name, first name, email, phone number
+ * (the same order in which the ADD command asks for them).
+ * Fields may be quoted with double quotes, and a quote inside a quoted field is written twice.
+ * Blank lines, lines starting with '#' and an optional header line are skipped.
+ */
+public final class GuestsCsv {
+
+    private static final String HEADER = "nume,prenume,email,telefon";
+
+    private GuestsCsv() {
+    }
+
+    /**
+     * Read all the guests from a CSV file
+     * @param path of the file, encoded in UTF-8
+     * @return the guests, in the order of the lines
+     * @throws IOException if the file can't be read, or a line doesn't have exactly four fields;
+     *                     the message contains the number of the line
+     */
+    public static List<Guest> read(Path path) throws IOException {
+        List<Guest> guests = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")
+                        || (lineNumber == 1 && HEADER.equalsIgnoreCase(line.replace(" ", "")))) {
+                    continue;
+                }
+                List<String> fields = parseLine(line, lineNumber);
+                if (fields.size() != 4) {
+                    throw new IOException("Linia " + lineNumber + ": sunt necesare 4 campuri, " +
+                            "dar au fost gasite " + fields.size());
+                }
+                guests.add(new Guest(fields.get(1), fields.get(0), fields.get(2), fields.get(3)));
+            }
+        }
+        return guests;
+    }
+
+    static List<String> parseLine(String line, int lineNumber) throws IOException {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().strip());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IOException("Linia " + lineNumber + ": ghilimele neinchise");
+        }
+        fields.add(field.toString().strip());
+        return fields;
+    }
+}
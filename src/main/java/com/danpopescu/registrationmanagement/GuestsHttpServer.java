@@ -0,0 +1,341 @@
+package com.danpopescu.registrationmanagement;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP/JSON API over the events of an com.danpopescu.registrationmanagement.EventRegistry, built on the
+ * HTTP server of the JDK. The requests are (the guest is identified by email, phone,
+ * or firstName and lastName in the query):
+ *      PUT    /events/{id}?places=N              create an event
+ *      PATCH  /events/{id}?places=N              change the number of places, {"result": moved guests, as
+ *                                                returned by setNumberOfPlaces()}
+ *      POST   /events/{id}/guests                add the guest in the body {"lastName", "firstName", "email", "phone"}
+ *      GET    /events/{id}/guests?offset=&limit= a page of the guests list
+ *      GET    /events/{id}/waitlist?offset=&limit= a page of the waitlist
+ *      GET    /events/{id}/check?email=...       {"result": the code of checkByEmail()}
+ *      GET    /events/{id}/guest?email=...       the guest, with its "result" code as for check
+ *      DELETE /events/{id}/guest?email=...       {"result": the code of removeByEmail()}
+ *      PATCH  /events/{id}/guest?email=...       update a field, with the body {"field": "lastName", "value": "..."}
+ *      GET    /events/{id}/search?q=...          the guests that contain q in any field
+ *      GET    /events/{id}/similar?firstName=&lastName=&limit= the guests with the closest names
+ *      GET    /events/{id}/suggest?prefix=&limit= the guests whose last name, first name or email starts with prefix
+ *      GET    /events/{id}/sorted?by=name|email|phone&from=&to=&limit= the guests sorted by a field, with
+ *                                                the field from "from" (included) to "to" (excluded), or
+ *                                                starting with prefix= instead
+ *      GET    /events/{id}/counters              the places and the number of persons on each list
+ * An invalid request gets 400, a missing event or guest 404, both with {"error": message}.
+ *
+ * The requests are handled on the given executor. The requests on different events run in parallel,
+ * and those on the same event one after the other, as for every action of the registry.
+ */
+public class GuestsHttpServer {
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
+    static {
+        // without TCP_NODELAY, every response on a kept-alive connection waits for the delayed
+        // ACK of the client (about 40 ms); read once, when the first server is created
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final EventRegistry registry;
+    private final HttpServer server;
+
+    /**
+     * @param registry of the events
+     * @param address to listen on; port 0 picks a free port
+     * @param executor that runs the handlers
+     */
+    public GuestsHttpServer(EventRegistry registry, InetSocketAddress address, ExecutorService executor)
+            throws IOException {
+        this.registry = registry;
+        this.server = HttpServer.create(address, 0);
+        server.createContext("/events/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Create the executor for the handlers
+     * @param threads the number of threads, or 0 for a virtual thread per request when the JDK
+     *                supports them (JDK 21 and newer), and a thread per processor otherwise
+     */
+    public static ExecutorService newExecutor(int threads) {
+        if (threads == 0) {
+            try {
+                // looked up by reflection, the code is compiled for older JDKs
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                threads = Runtime.getRuntime().availableProcessors();
+            }
+        }
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop accepting requests, and wait at most delaySeconds for the current ones to finish
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String[] path = exchange.getRequestURI().getRawPath().split("/");
+            // "", "events", id[, resource]
+            if (path.length < 3 || path.length > 4) {
+                send(exchange, 404, error("Unknown resource"));
+                return;
+            }
+            String eventId = decode(path[2]);
+            String resource = path.length == 4 ? path[3] : "";
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String method = exchange.getRequestMethod();
+            try {
+                if (resource.isEmpty() && !method.equals("PATCH")) {
+                    createEvent(exchange, method, eventId, query);
+                    return;
+                }
+                String body = method.equals("POST") || method.equals("PATCH") ? readBody(exchange) : null;
+                Response response = registry.withEvent(eventId,
+                        list -> respond(list, method, resource, query, body));
+                send(exchange, response.status, response.body);
+            } catch (IllegalArgumentException e) {
+                boolean missing = isValidId(eventId) && !registry.exists(eventId);
+                send(exchange, missing ? 404 : 400,
+                        error(missing ? "The event " + eventId + " doesn't exist" : e.getMessage()));
+            } catch (RuntimeException e) {
+                // the details stay in the server log: they may name files or internal state
+                System.err.println("Cererea " + method + " " + exchange.getRequestURI() + " a esuat:");
+                e.printStackTrace();
+                send(exchange, 500, error("internal error"));
+            }
+        }
+    }
+
+    private void createEvent(HttpExchange exchange, String method, String eventId, Map<String, String> query)
+            throws IOException {
+        if (!method.equals("PUT")) {
+            send(exchange, 405, error("Use PUT to create an event"));
+            return;
+        }
+        try {
+            registry.create(eventId, Integer.parseInt(required(query, "places")));
+            send(exchange, 201, "{\"event\":" + Json.quote(new StringBuilder(), eventId) + "}");
+        } catch (IllegalStateException e) {
+            send(exchange, 409, error(e.getMessage()));
+        }
+    }
+
+    /**
+     * Run a request on the guests list of the event
+     */
+    private static Response respond(GuestsList list, String method, String resource,
+                                    Map<String, String> query, String body) {
+        StringBuilder out = new StringBuilder();
+        switch (method + " " + resource) {
+            case "POST guests" -> {
+                Map<String, String> guest = Json.parseObject(body);
+                int result = list.add(new Guest(required(guest, "firstName"), required(guest, "lastName"),
+                        required(guest, "email"), required(guest, "phone")));
+                return new Response(result == -1 ? 200 : 201, result(result));
+            }
+            case "GET guests" -> Json.guests(out, list.getGuestsPage(offset(query), limit(query)));
+            case "GET waitlist" -> Json.guests(out, list.getWaitListPage(offset(query), limit(query)));
+            case "PATCH " -> {
+                return new Response(200, result(list.setNumberOfPlaces(Integer.parseInt(required(query, "places")))));
+            }
+            case "GET check" -> {
+                return new Response(200, result(switch (mode(query)) {
+                    case BY_NAME -> list.checkByName(query.get("firstName"), query.get("lastName"));
+                    case BY_EMAIL -> list.checkByEmail(query.get("email"));
+                    case BY_PHONE -> list.checkByPhone(query.get("phone"));
+                }));
+            }
+            case "GET guest" -> {
+                Optional<Guest> guest = find(list, query);
+                if (guest.isEmpty()) {
+                    return new Response(404, error("The guest is not registered"));
+                }
+                Json.guest(out, guest.get());
+                out.setLength(out.length() - 1);
+                out.append(",\"result\":").append(list.check(guest.get())).append('}');
+            }
+            case "DELETE guest" -> {
+                int result = switch (mode(query)) {
+                    case BY_NAME -> list.removeByName(query.get("firstName"), query.get("lastName"));
+                    case BY_EMAIL -> list.removeByEmail(query.get("email"));
+                    case BY_PHONE -> list.removeByPhone(query.get("phone"));
+                };
+                return new Response(result == -1 ? 404 : 200, result(result));
+            }
+            case "PATCH guest" -> {
+                Map<String, String> update = Json.parseObject(body);
+                GuestField field = field(required(update, "field"));
+                String value = required(update, "value");
+                Optional<Guest> guest = find(list, query);
+                boolean updated = guest.isPresent() && list.update(guest.get(), field, value);
+                return new Response(updated ? 200 : 404, result(updated ? 0 : -1));
+            }
+            case "GET search" -> Json.guests(out, list.search(required(query, "q")));
+            case "GET similar" -> Json.guests(out, list.findSimilarNames(required(query, "firstName"),
+                    required(query, "lastName"), Integer.parseInt(query.getOrDefault("limit", "5"))));
+            case "GET suggest" -> Json.guests(out, list.suggest(required(query, "prefix"),
+                    Integer.parseInt(query.getOrDefault("limit", "10"))));
+            case "GET sorted" -> {
+                SearchMode by = sortedBy(required(query, "by"));
+                int limit = Integer.parseInt(query.getOrDefault("limit", String.valueOf(Integer.MAX_VALUE)));
+                Json.guests(out, query.containsKey("prefix") ? list.getWithPrefix(by, query.get("prefix"), limit)
+                        : list.getRange(by, query.get("from"), query.get("to"), limit));
+            }
+            case "GET counters" -> out.append("{\"places\":").append(list.getNumberOfPlaces())
+                    .append(",\"available\":").append(list.getNoAvailablePlaces())
+                    .append(",\"guests\":").append(list.getTotalNoParticipants())
+                    .append(",\"waiting\":").append(list.getTotalNoWaiting())
+                    .append(",\"registered\":").append(list.getTotalNoRegistered()).append('}');
+            default -> {
+                return new Response(404, error("Unknown request " + method + " " + resource));
+            }
+        }
+        return new Response(200, out.toString());
+    }
+
+    private static Optional<Guest> find(GuestsList list, Map<String, String> query) {
+        return switch (mode(query)) {
+            case BY_NAME -> list.getByName(query.get("firstName"), query.get("lastName"));
+            case BY_EMAIL -> list.getByEmail(query.get("email"));
+            case BY_PHONE -> list.getByPhone(query.get("phone"));
+        };
+    }
+
+    /**
+     * Choose the search mode from the parameters present in the query
+     */
+    private static SearchMode mode(Map<String, String> query) {
+        if (query.containsKey("email")) {
+            return SearchMode.BY_EMAIL;
+        }
+        if (query.containsKey("phone")) {
+            return SearchMode.BY_PHONE;
+        }
+        if (query.containsKey("firstName") && query.containsKey("lastName")) {
+            return SearchMode.BY_NAME;
+        }
+        throw new IllegalArgumentException("The guest should be identified by email, phone, or firstName and lastName");
+    }
+
+    private static SearchMode sortedBy(String name) {
+        return switch (name) {
+            case "name" -> SearchMode.BY_NAME;
+            case "email" -> SearchMode.BY_EMAIL;
+            case "phone" -> SearchMode.BY_PHONE;
+            default -> throw new IllegalArgumentException("Unknown sort field " + name);
+        };
+    }
+
+    private static GuestField field(String name) {
+        return switch (name) {
+            case "lastName" -> GuestField.LAST_NAME;
+            case "firstName" -> GuestField.FIRST_NAME;
+            case "email" -> GuestField.EMAIL;
+            case "phone" -> GuestField.PHONE_NUMBER;
+            default -> throw new IllegalArgumentException("Unknown field " + name);
+        };
+    }
+
+    private static int offset(Map<String, String> query) {
+        return Integer.parseInt(query.getOrDefault("offset", "0"));
+    }
+
+    private static int limit(Map<String, String> query) {
+        return Integer.parseInt(query.getOrDefault("limit", String.valueOf(DEFAULT_PAGE_SIZE)));
+    }
+
+    private static String required(Map<String, String> values, String name) {
+        String value = values.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + name);
+        }
+        return value;
+    }
+
+    private static boolean isValidId(String eventId) {
+        return eventId.matches("[A-Za-z0-9_-]{1,100}");
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0) {
+                query.put(decode(parameter.substring(0, equals)), decode(parameter.substring(equals + 1)));
+            }
+        }
+        return query;
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String result(int result) {
+        return "{\"result\":" + result + "}";
+    }
+
+    private static String error(String message) {
+        return Json.quote(new StringBuilder("{\"error\":"), String.valueOf(message)).append('}').toString();
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static final class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
@@ -1,21 +1,89 @@
 package com.danpopescu.registrationmanagement;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class GuestsList implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
-    private final int numberOfPlaces;
-    private List<Guest> guestsList = new ArrayList<>();
-    private List<Guest> waitList = new ArrayList<>();
+    // below this total number of guests, splitting a scan among threads costs more than it saves
+    static final int PARALLEL_SEARCH_THRESHOLD = 10_000;
+
+    // the serialized form keeps the two lists as plain Lists
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("numberOfPlaces", int.class),
+            new ObjectStreamField("guestsList", List.class),
+            new ObjectStreamField("waitList", List.class)
+    };
+
+    private int numberOfPlaces;
+    private transient FenwickList<Guest> guestsList = new FenwickList<>();
+    private transient FenwickList<Guest> waitList = new FenwickList<>();
+
+    // case insensitive lookup indexes spanning both lists, rebuilt after deserialization
+    private transient GuestIndex byName;
+    private transient GuestIndex byEmail;
+    private transient PhoneIndex byPhone;
+    // one shared instance of every first and last name (and of its case folded key) of the
+    // guests in memory, so that the guests with a common name don't each keep a copy
+    private transient NamePool names;
+    // optional index used by search(), null when disabled
+    private transient TrigramIndex searchIndex;
+    // optional index used by findSimilarNames(), null when disabled
+    private transient NameIndex nameIndex;
+    // optional index used by suggest(), null when disabled
+    private transient PrefixIndex prefixIndex;
+    // optional indexes used by getRange() and getWithPrefix(), by search mode, null when disabled
+    private transient Map<SearchMode, SortedIndex> sortedIndexes;
+    // whether search() scans large lists on several threads
+    private transient boolean parallelSearch;
+    // the end of the waitlist kept in files, null while the whole waitlist is in memory,
+    // and the number of waitlisted guests kept in memory before it (see enableWaitListSpill())
+    private transient WaitListTail waitListTail;
+    private transient int waitListHead;
+    private transient List<GuestsListListener> listeners = new ArrayList<>();
+    // latencies of the public operations, null when not measured
+    private transient GuestsListMetrics metrics;
 
     public GuestsList(int numberOfPlaces) {
         this.numberOfPlaces = numberOfPlaces;
+        buildIndexes();
+    }
+
+    /**
+     * Rebuild a list from its saved content, keeping the lists exactly as they were saved
+     * @param numberOfPlaces the total number of places for the event
+     * @param guests the guests list, in order
+     * @param waiting the waitlist, in order
+     * @return the restored list
+     */
+    static GuestsList restore(int numberOfPlaces, Iterable<Guest> guests, Iterable<Guest> waiting) {
+        GuestsList restored = new GuestsList(numberOfPlaces);
+        for (Guest guest : guests) {
+            restored.guestsList.add(guest);
+        }
+        for (Guest guest : waiting) {
+            restored.waitList.add(guest);
+        }
+        restored.buildIndexes();
+        return restored;
     }
 
     /**
@@ -29,75 +97,101 @@ public class GuestsList implements Serializable {
      *                   OR the guest was already on the waitlist with order number X
      */
     public int add(Guest guest) {
-        // already registered
-        if (guestsList.contains(guest)) {
-            return -1;
+        long start = startTimer();
+        int result = register(guest);
+        if (metrics != null && result == -1) {
+            metrics.duplicateRejected();
         }
+        return stopTimer(GuestsListMetrics.Operation.ADD, start, result);
+    }
 
-        // already on the waitlist
-        int index = waitList.indexOf(guest);
-        if (index >= 0) {
-            return index + 1;
+    private int register(Guest guest) {
+        Guest registered = findIndexed(guest);
+        if (registered != null) {
+            // already registered OR already on the waitlist
+            return guestsList.contains(registered) ? -1 : waitList.indexOf(registered) + 1;
+        }
+        if (waitListTail != null) {
+            WaitListTail.Match spilled = waitListTail.findEqual(guest);
+            if (spilled != null) {
+                return spilledOrder(spilled);
+            }
         }
 
         // add to guests list if there are free spots
         if (guestsList.size() < numberOfPlaces) {
             guestsList.add(guest);
+            index(guest);
+            for (GuestsListListener listener : listeners) {
+                listener.guestAdded(guest, false);
+            }
             return 0;
         }
 
-        // add to waitlist by default
-        waitList.add(guest);
-        return waitList.size();
+        // add to waitlist by default, to its files once the part in memory is full
+        if (waitListTail != null && (!waitListTail.isEmpty() || waitList.size() >= waitListHead)) {
+            waitListTail.append(guest);
+        } else {
+            waitList.add(guest);
+            index(guest);
+        }
+        for (GuestsListListener listener : listeners) {
+            listener.guestAdded(guest, true);
+        }
+        return getTotalNoWaiting();
     }
 
     /**
-     * Return the index of the element that is similar to the key.
-     * The similarity is based on the provided comparator.
-     * @param list in which to search for the elements similar to the key
-     * @param key a similar element to the one we are looking for
-     * @param comparator for elements comparison
-     * @param <E> generic element
-     * @return index    of the element that is similar to the key based on the provided comparator
-     *            -1    if no similar element has been found
+     * Register several guests at once, e.g. when importing a partner list. The guests are
+     * processed in order, exactly as if add() was called for each one: duplicates (within the
+     * batch or with the registered guests) are detected through the hash indexes, the free
+     * places are filled first and the rest of the guests are appended to the waitlist.
+     * @param guests to be registered, in order
+     * @return the result code of add() for each guest, in the same order
      */
-    private static <E> int indexOfSimilar(List<E> list, E key, Comparator<E> comparator) {
-        int index = 0;
-        for (E element : list) {
-            if (comparator.compare(element, key) == 0) {
-                return index;
-            }
-            index++;
+    public int[] addAll(List<Guest> guests) {
+        int[] codes = new int[guests.size()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = add(guests.get(i));
         }
-        return -1;
+        return codes;
     }
 
     /**
-     * Search for a guest similar to the similarGuest in the guests list/waitlist.
-     * The similarity is based on the provided comparator.
-     * @param similarGuest guest against which the similarity is tested
-     * @param comparator Comparator of com.danpopescu.registrationmanagement.Guest objects that will determine if two Guests are similar
+     * Search for a guest among the guests matching a key in the guests list/waitlist.
+     * @param matches the entry of the guests indexed under the searched key, null if there are none
      * @return an integer with the following meanings:
      *            -1 - no similar guest has been found in the guests list/waitlist
      *             0 - a similar guest is on the guests list
      *             X - a similar guest is on the waitlist with order number X
      */
-    private int checkSimilar(Guest similarGuest, Comparator<Guest> comparator) {
-        if (indexOfSimilar(guestsList, similarGuest, comparator) >= 0) {
-            return 0;
-        }
-
-        int indexInWaitList = indexOfSimilar(waitList, similarGuest, comparator);
-        if (indexInWaitList >= 0) {
-            return indexInWaitList + 1;
+    private int checkSimilar(Object matches) {
+        int order = -1;
+        for (int i = 0; i < GuestIndex.size(matches); i++) {
+            Guest guest = GuestIndex.get(matches, i);
+            if (guestsList.contains(guest)) {
+                return 0;
+            }
+            int orderInWaitList = waitList.indexOf(guest) + 1;
+            if (order < 0 || orderInWaitList < order) {
+                order = orderInWaitList;
+            }
         }
+        return order;
+    }
 
-        return -1;
+    /**
+     * @param spilled a guest found in the files of the waitlist, or null
+     * @return the order number of the guest on the waitlist, or -1 if it is null
+     */
+    private int spilledOrder(WaitListTail.Match spilled) {
+        return spilled == null ? -1 : waitList.size() + waitListTail.positionOf(spilled) + 1;
     }
 
     /**
      * Search for a guest in the guests list/waitlist based on the first and last name.
      * The search is case insensitive.
+     * The lookup doesn't allocate, so the key can be a reused buffer such as a StringBuilder.
      * @param firstName of the person
      * @param lastName of the person
      * @return an integer with the following meanings:
@@ -105,65 +199,189 @@ public class GuestsList implements Serializable {
      *             0 - the person is on the guests list
      *             X - the person is on the waitlist with order number X
      */
-    public int checkByName(String firstName, String lastName) {
-        return checkSimilar(new Guest(firstName, lastName, "", ""), Guest.BY_NAME_ORDER);
+    public int checkByName(CharSequence firstName, CharSequence lastName) {
+        long start = startTimer();
+        int result = checkSimilar(byName.get(lastName, firstName));
+        if (result < 0 && waitListTail != null) {
+            result = spilledOrder(waitListTail.findByName(firstName, lastName));
+        }
+        return stopTimer(GuestsListMetrics.Operation.CHECK, start, result);
     }
 
     /**
      * Search for a guest in the guests list/waitlist list based on the email.
      * The search is case insensitive.
+     * The lookup doesn't allocate, so the key can be a reused buffer such as a StringBuilder.
      * @param email of the person
      * @return an integer with the following meanings:
      *            -1 - the person is not on the guests list nor the waitlist
      *             0 - the person is on the guests list
      *             X - the person is on the waitlist with order number X
      */
-    public int checkByEmail(String email) {
-        return checkSimilar(new Guest("", "", email, ""), Guest.BY_EMAIL_ORDER);
+    public int checkByEmail(CharSequence email) {
+        long start = startTimer();
+        int result = checkSimilar(byEmail.get(email));
+        if (result < 0 && waitListTail != null) {
+            result = spilledOrder(waitListTail.findByEmail(email));
+        }
+        return stopTimer(GuestsListMetrics.Operation.CHECK, start, result);
     }
 
     /**
      * Search for a guest in the guests list/waitlist based on the phone number.
-     * @param phoneNumber in the format +40733386463
+     * The number is normalized, so "+40733386463" and "0733 386 463" find the same guest.
+     * The lookup doesn't allocate, so the key can be a reused buffer such as a StringBuilder.
+     * @param phoneNumber in the format +40733386463, or a national number starting with 0
      * @return an integer with the following meanings:
      *            -1 - the person is not on the guests list nor the waitlist
      *             0 - the person is on the guests list
      *             X - the person is on the waitlist with order number X
      */
-    public int checkByPhone(String phoneNumber) {
-        return checkSimilar(new Guest("", "", "", phoneNumber), Guest.BY_PHONE_ORDER);
+    public int checkByPhone(CharSequence phoneNumber) {
+        long start = startTimer();
+        int result = checkSimilar(byPhone.get(phoneNumber));
+        if (result < 0 && waitListTail != null) {
+            result = spilledOrder(waitListTail.findByPhone(phoneNumber));
+        }
+        return stopTimer(GuestsListMetrics.Operation.CHECK, start, result);
     }
 
     /**
-     * Delete a guest similar to the similarGuest in the guests list/waitlist.
-     * The similarity is based on the provided comparator.
-     * @param similarGuest guest against which the similarity is tested
-     * @param comparator Comparator of com.danpopescu.registrationmanagement.Guest objects that will determine if two Guests are similar
+     * Delete a guest among the guests matching a key in the guests list/waitlist.
+     * A guest from the guests list is preferred to one from the waitlist.
+     * @param matches the entry of the guests indexed under the searched key, null if there are none
      * @return -1   if no similar object has been deleted
      *          0   if a similar com.danpopescu.registrationmanagement.Guest object has been removed from the waitlist OR from guests
      *              list and the waitlist was empty
      *          1   if a similar com.danpopescu.registrationmanagement.Guest object has been removed from the guests list AND the next
      *              guest on the waitlist was transferred to the guests list
      */
-    private int removeSimilar(Guest similarGuest, Comparator<Guest> comparator) {
-        int index = indexOfSimilar(guestsList, similarGuest, comparator);
-        if (index >= 0) {
-            guestsList.remove(index);
+    private int removeSimilar(Object matches) {
+        Guest toRemove = null;
+        for (int i = 0; i < GuestIndex.size(matches); i++) {
+            Guest guest = GuestIndex.get(matches, i);
+            if (guestsList.contains(guest)) {
+                toRemove = guest;
+                break;
+            }
+            if (toRemove == null || waitList.indexOf(guest) < waitList.indexOf(toRemove)) {
+                toRemove = guest;
+            }
+        }
+        if (toRemove == null) {
+            return -1;
+        }
+        return removeRegistered(toRemove);
+    }
+
+    /**
+     * Delete a registered guest from the guests list/waitlist and promote the first guest
+     * on the waitlist if a place has been freed.
+     * @param guest a Guest on one of the lists
+     * @return the same codes as removeSimilar()
+     */
+    private int removeRegistered(Guest guest) {
+        unindex(guest);
+        if (guestsList.remove(guest)) {
+            for (GuestsListListener listener : listeners) {
+                listener.guestRemoved(guest);
+            }
             if (!waitList.isEmpty()) {
-                Guest firstOnWaitList = waitList.remove(0);
+                Guest firstOnWaitList = waitList.removeFirst();
                 guestsList.add(firstOnWaitList);
+                refillWaitList();
+                for (GuestsListListener listener : listeners) {
+                    listener.guestPromoted(firstOnWaitList);
+                }
                 return 1;
             }
             return 0;
         }
 
-        index = indexOfSimilar(waitList, similarGuest, comparator);
-        if (index >= 0) {
-            waitList.remove(index);
-            return 0;
+        waitList.remove(guest);
+        refillWaitList();
+        for (GuestsListListener listener : listeners) {
+            listener.guestRemoved(guest);
         }
+        return 0;
+    }
 
-        return -1;
+    /**
+     * Delete a guest found in the files of the waitlist
+     * @param spilled the guest, or null
+     * @return 0 if the guest was deleted, -1 if it is null
+     */
+    private int removeSpilled(WaitListTail.Match spilled) {
+        if (spilled == null) {
+            return -1;
+        }
+        waitListTail.remove(spilled);
+        for (GuestsListListener listener : listeners) {
+            listener.guestRemoved(spilled.guest);
+        }
+        return 0;
+    }
+
+    /**
+     * Delete the guest equal to the given one (all the fields match) from the guests list/waitlist.
+     * @param guest with the fields of the guest to be deleted
+     * @return -1   if no equal object has been deleted
+     *          0   if an equal com.danpopescu.registrationmanagement.Guest object has been removed from the waitlist OR from guests
+     *              list and the waitlist was empty
+     *          1   if an equal com.danpopescu.registrationmanagement.Guest object has been removed from the guests list AND the next
+     *              guest on the waitlist was transferred to the guests list
+     */
+    public int remove(Guest guest) {
+        long start = startTimer();
+        Guest registered = findIndexed(guest);
+        int result = registered != null ? removeRegistered(registered)
+                : waitListTail != null ? removeSpilled(waitListTail.findEqual(guest)) : -1;
+        return stopTimer(GuestsListMetrics.Operation.REMOVE, start, result);
+    }
+
+    /**
+     * Search for the guest equal to the given one (all the fields match) in the guests list/waitlist.
+     * @param guest with the fields of the searched guest
+     * @return an integer with the following meanings:
+     *            -1 - the person is not on the guests list nor the waitlist
+     *             0 - the person is on the guests list
+     *             X - the person is on the waitlist with order number X
+     */
+    public int check(Guest guest) {
+        long start = startTimer();
+        Guest registered = findIndexed(guest);
+        int result = registered != null ? (guestsList.contains(registered) ? 0 : waitList.indexOf(registered) + 1)
+                : waitListTail != null ? spilledOrder(waitListTail.findEqual(guest)) : -1;
+        return stopTimer(GuestsListMetrics.Operation.CHECK, start, result);
+    }
+
+    /**
+     * Return the registered guest that is equal to the given one
+     * @param guest with the fields of the searched guest
+     * @return the registered Guest (a copy read from the files, for a guest at the end of a long
+     *         waitlist), or null if there is none
+     */
+    Guest findEqual(Guest guest) {
+        Guest registered = findIndexed(guest);
+        if (registered == null && waitListTail != null) {
+            WaitListTail.Match spilled = waitListTail.findEqual(guest);
+            return spilled == null ? null : spilled.guest;
+        }
+        return registered;
+    }
+
+    /**
+     * Return the guest in memory that is equal to the given one
+     */
+    private Guest findIndexed(Guest guest) {
+        // all the fields are compared, so an equal guest shares the email key
+        Object sameEmail = byEmail.get(guest.emailKey());
+        for (int i = 0; i < GuestIndex.size(sameEmail); i++) {
+            if (GuestIndex.get(sameEmail, i).equals(guest)) {
+                return GuestIndex.get(sameEmail, i);
+            }
+        }
+        return null;
     }
 
     /**
@@ -177,8 +395,13 @@ public class GuestsList implements Serializable {
      *          1   if a similar com.danpopescu.registrationmanagement.Guest object has been removed from the guests list AND the next
      *              guest on the waitlist was transferred to the guests list
      */
-    public int removeByName(String firstName, String lastName) {
-        return removeSimilar(new Guest(firstName, lastName, "", ""), Guest.BY_NAME_ORDER);
+    public int removeByName(CharSequence firstName, CharSequence lastName) {
+        long start = startTimer();
+        int result = removeSimilar(byName.get(lastName, firstName));
+        if (result < 0 && waitListTail != null) {
+            result = removeSpilled(waitListTail.findByName(firstName, lastName));
+        }
+        return stopTimer(GuestsListMetrics.Operation.REMOVE, start, result);
     }
 
     /**
@@ -191,12 +414,18 @@ public class GuestsList implements Serializable {
      *          1   if a similar com.danpopescu.registrationmanagement.Guest object has been removed from the guests list AND the next
      *              guest on the waitlist was transferred to the guests list
      */
-    public int removeByEmail(String email) {
-        return removeSimilar(new Guest("", "", email, ""), Guest.BY_EMAIL_ORDER);
+    public int removeByEmail(CharSequence email) {
+        long start = startTimer();
+        int result = removeSimilar(byEmail.get(email));
+        if (result < 0 && waitListTail != null) {
+            result = removeSpilled(waitListTail.findByEmail(email));
+        }
+        return stopTimer(GuestsListMetrics.Operation.REMOVE, start, result);
     }
 
     /**
      * Delete a guest from the guests list/waitlist based on the phone number.
+     * The number is normalized, as in checkByPhone().
      * @param phoneNumber of the guest to be deleted
      * @return -1   if no similar object has been deleted
      *          0   if a similar com.danpopescu.registrationmanagement.Guest object has been removed from the waitlist OR from guests
@@ -204,33 +433,56 @@ public class GuestsList implements Serializable {
      *          1   if a similar com.danpopescu.registrationmanagement.Guest object has been removed from the guests list AND the next
      *              guest on the waitlist was transferred to the guests list
      */
-    public int removeByPhone(String phoneNumber) {
-        return removeSimilar(new Guest("", "", "", phoneNumber), Guest.BY_PHONE_ORDER);
+    public int removeByPhone(CharSequence phoneNumber) {
+        long start = startTimer();
+        int result = removeSimilar(byPhone.get(phoneNumber));
+        if (result < 0 && waitListTail != null) {
+            result = removeSpilled(waitListTail.findByPhone(phoneNumber));
+        }
+        return stopTimer(GuestsListMetrics.Operation.REMOVE, start, result);
     }
 
     /**
-     * Get a guest similar to the similarGuest in the guests list/waitlist.
-     * The similarity is based on the provided comparator.
-     * @param similarGuest guest against which the similarity is tested
-     * @param comparator Comparator of com.danpopescu.registrationmanagement.Guest objects that will determine if two Guests are similar
+     * Get a guest among the guests matching a key in the guests list/waitlist.
+     * A guest from the waitlist is preferred to one from the guests list.
+     * @param matches the entry of the guests indexed under the searched key, null if there are none
      * @return com.danpopescu.registrationmanagement.Guest    if a similar object has been found in the guests list/waitlist
      *         null     if no similar object has been found
      */
-    private Optional<Guest> getSimilar(Guest similarGuest, Comparator<Guest> comparator) {
-        int index = indexOfSimilar(guestsList, similarGuest, comparator);
+    private Optional<Guest> getSimilar(Object matches) {
         Guest guest = null;
-        if (index >= 0) {
-            guest = guestsList.get(index);
-        }
-
-        index = indexOfSimilar(waitList, similarGuest, comparator);
-        if (index >= 0) {
-            guest = waitList.get(index);
+        int order = -1;
+        for (int i = 0; i < GuestIndex.size(matches); i++) {
+            Guest match = GuestIndex.get(matches, i);
+            if (guestsList.contains(match)) {
+                if (guest == null) {
+                    guest = match;
+                }
+                continue;
+            }
+            int orderInWaitList = waitList.indexOf(match) + 1;
+            if (order < 0 || orderInWaitList < order) {
+                guest = match;
+                order = orderInWaitList;
+            }
         }
 
         return Optional.ofNullable(guest);
     }
 
+    /**
+     * Check if getSimilar() should prefer a guest found in the files of the waitlist
+     * @param found the guest found in memory
+     * @return true if the files may hold a guest on the waitlist before it
+     */
+    private boolean preferSpilled(Optional<Guest> found) {
+        return waitListTail != null && (found.isEmpty() || guestsList.contains(found.get()));
+    }
+
+    private static Optional<Guest> orElse(Optional<Guest> found, WaitListTail.Match spilled) {
+        return spilled == null ? found : Optional.of(spilled.guest);
+    }
+
     /**
      * Get a com.danpopescu.registrationmanagement.Guest object from the guests/wait list based on the first and last name.
      * Search is case insensitive.
@@ -239,8 +491,13 @@ public class GuestsList implements Serializable {
      * @return com.danpopescu.registrationmanagement.Guest    if a com.danpopescu.registrationmanagement.Guest with the provided first and last name has been found
      *         null     if no com.danpopescu.registrationmanagement.Guest has been found
      */
-    public Optional<Guest> getByName(String firstName, String lastName) {
-        return getSimilar(new Guest(firstName, lastName, "", ""), Guest.BY_NAME_ORDER);
+    public Optional<Guest> getByName(CharSequence firstName, CharSequence lastName) {
+        long start = startTimer();
+        Optional<Guest> found = getSimilar(byName.get(lastName, firstName));
+        if (preferSpilled(found)) {
+            found = orElse(found, waitListTail.findByName(firstName, lastName));
+        }
+        return stopTimer(GuestsListMetrics.Operation.GET, start, found);
     }
 
     /**
@@ -250,19 +507,464 @@ public class GuestsList implements Serializable {
      * @return com.danpopescu.registrationmanagement.Guest    if a com.danpopescu.registrationmanagement.Guest with the provided email has been found
      *         null     if no com.danpopescu.registrationmanagement.Guest has been found
      */
-    public Optional<Guest> getByEmail(String email) {
-        return getSimilar(new Guest("", "", email, ""), Guest.BY_EMAIL_ORDER);
+    public Optional<Guest> getByEmail(CharSequence email) {
+        long start = startTimer();
+        Optional<Guest> found = getSimilar(byEmail.get(email));
+        if (preferSpilled(found)) {
+            found = orElse(found, waitListTail.findByEmail(email));
+        }
+        return stopTimer(GuestsListMetrics.Operation.GET, start, found);
     }
 
     /**
-     * Get a com.danpopescu.registrationmanagement.Guest object from the guests list/waitlist based on the first and last name.
-     * Search is case insensitive.
+     * Get a com.danpopescu.registrationmanagement.Guest object from the guests list/waitlist based on the phone number.
+     * The number is normalized, as in checkByPhone().
      * @param phoneNumber of the searched guest
      * @return com.danpopescu.registrationmanagement.Guest    if a com.danpopescu.registrationmanagement.Guest with the provided phone number has been found
      *         null     if no com.danpopescu.registrationmanagement.Guest has been found
      */
-    public Optional<Guest> getByPhone(String phoneNumber) {
-        return getSimilar(new Guest("", "", "", phoneNumber), Guest.BY_PHONE_ORDER);
+    public Optional<Guest> getByPhone(CharSequence phoneNumber) {
+        long start = startTimer();
+        Optional<Guest> found = getSimilar(byPhone.get(phoneNumber));
+        if (preferSpilled(found)) {
+            found = orElse(found, waitListTail.findByPhone(phoneNumber));
+        }
+        return stopTimer(GuestsListMetrics.Operation.GET, start, found);
+    }
+
+    /**
+     * Change one field of a registered guest, keeping the lookup indexes up to date.
+     * The fields of a registered guest should only be changed through this method.
+     * @param guest a Guest previously returned by one of the getBy...() methods
+     * @param field to be changed
+     * @param value the new value of the field
+     * @return true if the guest was updated, false if the guest is not registered on this list, or if the
+     *         change would make it equal to another registered guest (a person is registered only once,
+     *         and the journal finds the guest of a change by its fields)
+     */
+    public boolean update(Guest guest, GuestField field, String value) {
+        long start = startTimer();
+        if (isDuplicatedBy(guest, field, value)) {
+            return stopTimer(GuestsListMetrics.Operation.UPDATE, start, false);
+        }
+        if (!guestsList.contains(guest) && !waitList.contains(guest)) {
+            return stopTimer(GuestsListMetrics.Operation.UPDATE, start,
+                    waitListTail != null && updateSpilled(guest, field, value));
+        }
+
+        unindex(guest);
+        String oldValue = change(guest, field, value);
+        index(guest);
+        for (GuestsListListener listener : listeners) {
+            listener.guestUpdated(guest, field, oldValue);
+        }
+        return stopTimer(GuestsListMetrics.Operation.UPDATE, start, true);
+    }
+
+    /**
+     * Check if changing a field of a guest would make it equal to another registered guest
+     */
+    private boolean isDuplicatedBy(Guest guest, GuestField field, String value) {
+        Guest changed = new Guest(guest.getFirstName(), guest.getLastName(), guest.getEmail(), guest.getPhoneNumber());
+        change(changed, field, value);
+        Guest registered = findEqual(changed);
+        // the guest itself, e.g. when only the case of a name changes; two registered guests are never equal
+        return registered != null && !registered.equals(guest);
+    }
+
+    /**
+     * Change one field of a guest found in the files of the waitlist, and write its new version
+     * @param guest a copy returned by one of the getBy...() methods
+     * @return false if the guest is not in the files
+     */
+    private boolean updateSpilled(Guest guest, GuestField field, String value) {
+        WaitListTail.Match spilled = waitListTail.findEqual(guest);
+        if (spilled == null) {
+            return false;
+        }
+        String oldValue = change(guest, field, value);
+        waitListTail.update(spilled, guest);
+        for (GuestsListListener listener : listeners) {
+            listener.guestUpdated(guest, field, oldValue);
+        }
+        return true;
+    }
+
+    /**
+     * Set one field of a guest
+     * @return the old value of the field
+     */
+    private static String change(Guest guest, GuestField field, String value) {
+        String oldValue = null;
+        switch (field) {
+            case LAST_NAME -> {
+                oldValue = guest.getLastName();
+                guest.setLastName(value);
+            }
+            case FIRST_NAME -> {
+                oldValue = guest.getFirstName();
+                guest.setFirstName(value);
+            }
+            case EMAIL -> {
+                oldValue = guest.getEmail();
+                guest.setEmail(value);
+            }
+            case PHONE_NUMBER -> {
+                oldValue = guest.getPhoneNumber();
+                guest.setPhoneNumber(value);
+            }
+        }
+        return oldValue;
+    }
+
+    /**
+     * Register a listener that will be notified of every change made to the lists.
+     * Listeners are not serialized with the list.
+     * @param listener to be notified
+     */
+    public void addListener(GuestsListListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(GuestsListListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Start measuring the latency of the operations, replacing the previous metrics.
+     * The metrics are not serialized with the list.
+     * @param metrics where the latencies are recorded, null to stop measuring
+     */
+    public void setMetrics(GuestsListMetrics metrics) {
+        if (this.metrics != null) {
+            this.metrics.attach(null);
+        }
+        this.metrics = metrics;
+        if (metrics != null) {
+            metrics.attach(this);
+        }
+    }
+
+    public GuestsListMetrics getMetrics() {
+        return metrics;
+    }
+
+    private long startTimer() {
+        return metrics == null ? 0 : metrics.start();
+    }
+
+    private int stopTimer(GuestsListMetrics.Operation operation, long start, int result) {
+        if (metrics != null) {
+            metrics.stop(operation, start);
+        }
+        return result;
+    }
+
+    private <T> T stopTimer(GuestsListMetrics.Operation operation, long start, T result) {
+        if (metrics != null) {
+            metrics.stop(operation, start);
+        }
+        return result;
+    }
+
+    private void index(Guest guest) {
+        guest.shareNames(names);
+        byName.add(guest);
+        byEmail.add(guest);
+        byPhone.add(guest);
+        if (searchIndex != null) {
+            searchIndex.add(guest);
+        }
+        if (nameIndex != null) {
+            nameIndex.add(guest);
+        }
+        if (prefixIndex != null) {
+            prefixIndex.add(guest);
+        }
+        if (sortedIndexes != null) {
+            for (SortedIndex index : sortedIndexes.values()) {
+                index.add(guest);
+            }
+        }
+    }
+
+    private void unindex(Guest guest) {
+        guest.releaseNames(names);
+        byName.remove(guest);
+        byEmail.remove(guest);
+        byPhone.remove(guest);
+        if (searchIndex != null) {
+            searchIndex.remove(guest);
+        }
+        if (nameIndex != null) {
+            nameIndex.remove(guest);
+        }
+        if (prefixIndex != null) {
+            prefixIndex.remove(guest);
+        }
+        if (sortedIndexes != null) {
+            for (SortedIndex index : sortedIndexes.values()) {
+                index.remove(guest);
+            }
+        }
+    }
+
+    /**
+     * Enable the trigram index used by search(). The index is built from the current
+     * content of the lists and then kept up to date by every add, remove and update.
+     * It trades memory for search speed, so it is worth enabling for large events.
+     */
+    public void enableSearchIndex() {
+        if (searchIndex != null) {
+            return;
+        }
+        searchIndex = new TrigramIndex();
+        for (Guest guest : guestsList) {
+            searchIndex.add(guest);
+        }
+        for (Guest guest : waitList) {
+            searchIndex.add(guest);
+        }
+    }
+
+    /**
+     * Drop the trigram index, search() goes back to scanning both lists
+     */
+    public void disableSearchIndex() {
+        searchIndex = null;
+    }
+
+    public boolean isSearchIndexEnabled() {
+        return searchIndex != null;
+    }
+
+    /**
+     * Enable the phonetic name index used by findSimilarNames(). Like the search index,
+     * it is built from the current content of the lists and then kept up to date.
+     */
+    public void enableNameIndex() {
+        if (nameIndex != null) {
+            return;
+        }
+        nameIndex = new NameIndex();
+        for (Guest guest : guestsList) {
+            nameIndex.add(guest);
+        }
+        for (Guest guest : waitList) {
+            nameIndex.add(guest);
+        }
+    }
+
+    /**
+     * Drop the name index, findSimilarNames() goes back to scanning both lists
+     */
+    public void disableNameIndex() {
+        nameIndex = null;
+    }
+
+    public boolean isNameIndexEnabled() {
+        return nameIndex != null;
+    }
+
+    /**
+     * Enable the sorted index used by suggest(), built from the current content of the lists
+     * and then kept up to date like the other indexes
+     */
+    public void enablePrefixIndex() {
+        if (prefixIndex != null) {
+            return;
+        }
+        prefixIndex = new PrefixIndex();
+        for (Guest guest : guestsList) {
+            prefixIndex.add(guest);
+        }
+        for (Guest guest : waitList) {
+            prefixIndex.add(guest);
+        }
+    }
+
+    /**
+     * Drop the prefix index, suggest() goes back to scanning both lists
+     */
+    public void disablePrefixIndex() {
+        prefixIndex = null;
+    }
+
+    public boolean isPrefixIndexEnabled() {
+        return prefixIndex != null;
+    }
+
+    /**
+     * Enable the sorted indexes used by getRange() and getWithPrefix(), one by name, one by email
+     * and one by phone number, built from the current content of the lists and then kept up to
+     * date like the other indexes
+     */
+    public void enableSortedIndexes() {
+        if (sortedIndexes != null) {
+            return;
+        }
+        sortedIndexes = new EnumMap<>(SearchMode.class);
+        for (SearchMode mode : SearchMode.values()) {
+            SortedIndex index = SortedIndex.of(mode);
+            for (Guest guest : guestsList) {
+                index.add(guest);
+            }
+            for (Guest guest : waitList) {
+                index.add(guest);
+            }
+            sortedIndexes.put(mode, index);
+        }
+    }
+
+    /**
+     * Drop the sorted indexes, getRange() and getWithPrefix() go back to scanning and sorting both lists
+     */
+    public void disableSortedIndexes() {
+        sortedIndexes = null;
+    }
+
+    public boolean isSortedIndexesEnabled() {
+        return sortedIndexes != null;
+    }
+
+    /**
+     * Let search() scan the lists on several threads when they hold at least
+     * PARALLEL_SEARCH_THRESHOLD guests, as a parallel stream. The stream runs in the fork/join
+     * pool of the calling thread if it is a worker of one, otherwise in the common pool.
+     * The result is the same as that of a sequential scan, in the same order. Searches answered
+     * by the trigram index don't scan the lists and are not affected.
+     */
+    public void enableParallelSearch() {
+        parallelSearch = true;
+    }
+
+    /**
+     * Scan the lists on the calling thread only
+     */
+    public void disableParallelSearch() {
+        parallelSearch = false;
+    }
+
+    public boolean isParallelSearchEnabled() {
+        return parallelSearch;
+    }
+
+    /**
+     * Keep only the first headSize guests of the waitlist in memory, and the others in files
+     * in a new directory inside the given one, for events with very long waitlists. The guests
+     * in the files are read back, a segment of headSize / 2 guests at a time, as the waitlist
+     * moves forward. All the operations keep working the same way: the lookups use an index
+     * kept in the files, and search(), suggest() and findSimilarNames() read the files too, so
+     * they are slower once the waitlist is spilled. The guests returned from the files are
+     * copies: getBy...() returns a new copy every time, which can still be passed to update().
+     * The optional indexes only cover the guests in memory. The files are deleted by
+     * disableWaitListSpill(); they don't survive the application.
+     * @param directory where the files are written, created if needed
+     * @param headSize the number of waitlisted guests kept in memory, at least 1
+     * @throws IOException if the files can't be created
+     */
+    public void enableWaitListSpill(Path directory, int headSize) throws IOException {
+        if (headSize < 1) {
+            throw new IllegalArgumentException("The waitlist should keep at least one guest in memory: " + headSize);
+        }
+        if (waitListTail != null) {
+            return;
+        }
+        Files.createDirectories(directory);
+        waitListTail = new WaitListTail(Files.createTempDirectory(directory, "waitlist"), Math.max(1, headSize / 2));
+        waitListHead = headSize;
+        if (waitList.size() > headSize) {
+            for (Guest guest : waitList.removeLast(waitList.size() - headSize)) {
+                unindex(guest);
+                waitListTail.append(guest);
+            }
+        }
+    }
+
+    /**
+     * Read the whole waitlist back into memory and delete its files
+     * @throws IOException if the files can't be deleted
+     */
+    public void disableWaitListSpill() throws IOException {
+        if (waitListTail == null) {
+            return;
+        }
+        while (!waitListTail.isEmpty()) {
+            for (Guest guest : waitListTail.pageIn()) {
+                waitList.add(guest);
+                index(guest);
+            }
+        }
+        WaitListTail tail = waitListTail;
+        waitListTail = null;
+        tail.close();
+    }
+
+    public boolean isWaitListSpillEnabled() {
+        return waitListTail != null;
+    }
+
+    /**
+     * Read the oldest guests in the files of the waitlist back into memory,
+     * as long as they fit in the head of the waitlist
+     */
+    private void refillWaitList() {
+        if (waitListTail == null) {
+            return;
+        }
+        while (!waitListTail.isEmpty() && waitList.size() + waitListTail.firstSegmentSize() <= waitListHead) {
+            for (Guest guest : waitListTail.pageIn()) {
+                waitList.add(guest);
+                index(guest);
+            }
+        }
+    }
+
+    /**
+     * @return the number of waitlisted guests kept in files
+     */
+    private int spilled() {
+        return waitListTail == null ? 0 : waitListTail.size();
+    }
+
+    /**
+     * Build the lookup indexes from the content of the guests list and the waitlist
+     */
+    private void buildIndexes() {
+        names = new NamePool();
+        byName = GuestIndex.byName();
+        byEmail = GuestIndex.byEmail();
+        byPhone = new PhoneIndex();
+        for (Guest guest : guestsList) {
+            index(guest);
+        }
+        for (Guest guest : waitList) {
+            index(guest);
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("numberOfPlaces", numberOfPlaces);
+        fields.put("guestsList", guestsList.toList());
+        fields.put("waitList", getWaitList());
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        numberOfPlaces = fields.get("numberOfPlaces", 0);
+        listeners = new ArrayList<>();
+        guestsList = new FenwickList<>();
+        waitList = new FenwickList<>();
+        for (Guest guest : (List<Guest>) fields.get("guestsList", List.of())) {
+            guestsList.add(guest);
+        }
+        for (Guest guest : (List<Guest>) fields.get("waitList", List.of())) {
+            waitList.add(guest);
+        }
+        buildIndexes();
     }
 
     /**
@@ -274,7 +976,36 @@ public class GuestsList implements Serializable {
      *         an empty list if no match has been found
      */
     public List<Guest> search(String str) {
-        str = str.toLowerCase();
+        long start = startTimer();
+        return stopTimer(GuestsListMetrics.Operation.SEARCH, start, find(CaseInsensitive.fold(str)));
+    }
+
+    /**
+     * Search for the guests containing the case folded string in any of their fields
+     */
+    private List<Guest> find(String str) {
+        List<Guest> result = findInMemory(str);
+        if (waitListTail != null) {
+            // the files hold the end of the waitlist, so their guests come last
+            result.addAll(waitListTail.filter(guest -> guest.anyFieldContains(str)));
+        }
+        return result;
+    }
+
+    /**
+     * Search for the guests in memory containing the case folded string in any of their fields
+     */
+    private List<Guest> findInMemory(String str) {
+        if (searchIndex != null && str.length() >= TrigramIndex.GRAM_LENGTH) {
+            return inListOrder(searchIndex.candidates(str), str);
+        }
+        if (parallelSearch && guestsList.size() + waitList.size() >= PARALLEL_SEARCH_THRESHOLD) {
+            // the views split by position and the streams are ordered, so the matches are
+            // collected in list order, the guests list first
+            return Stream.concat(guestsList.view().parallelStream(), waitList.view().parallelStream())
+                    .filter(guest -> guest.anyFieldContains(str))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
 
         List<Guest> result = new ArrayList<>();
 
@@ -292,6 +1023,268 @@ public class GuestsList implements Serializable {
         return result;
     }
 
+    /**
+     * Return the guests whose last name, first name or email starts with a prefix, e.g. for
+     * autocompleting what the user has typed so far. The search is case insensitive.
+     * With the prefix index enabled, the cost depends on the number of guests returned,
+     * not on the size of the lists.
+     * @param prefix the beginning of a last name, first name or email
+     * @param limit the largest number of guests returned
+     * @return the matching guests sorted by the matching field (the guests with the same
+     *         value of that field in no particular order), each guest once
+     */
+    public List<Guest> suggest(String prefix, int limit) {
+        long start = startTimer();
+        String foldedPrefix = CaseInsensitive.fold(prefix);
+        if (prefixIndex != null && waitListTail == null) {
+            return stopTimer(GuestsListMetrics.Operation.SUGGEST, start, prefixIndex.withPrefix(foldedPrefix, limit));
+        }
+
+        List<Guest> found = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        List<Iterable<Guest>> lists = prefixIndex != null ? List.of(prefixIndex.withPrefix(foldedPrefix, limit))
+                : List.of(guestsList, waitList);
+        if (waitListTail != null) {
+            lists = new ArrayList<>(lists);
+            lists.add(waitListTail);
+        }
+        for (Iterable<Guest> list : lists) {
+            for (Guest guest : list) {
+                String key = PrefixIndex.sortKey(guest, foldedPrefix);
+                if (key != null) {
+                    found.add(guest);
+                    keys.add(key);
+                }
+            }
+        }
+        return stopTimer(GuestsListMetrics.Operation.SUGGEST, start, sortByKey(found, keys, limit));
+    }
+
+    /**
+     * Return the registered guests (guests list and waitlist) sorted by a field, with the
+     * field between two values, e.g. the last names from "A" to "Ca" for a check-in sheet.
+     * The values are compared case insensitively, in the order of Guest.BY_NAME_ORDER,
+     * BY_EMAIL_ORDER; the phone numbers are compared in the E.164 format (see SortedIndex), so
+     * "0722000000" is between "+4072" and "+4073".
+     * With the sorted indexes enabled, the cost is O(log n + limit) instead of a scan and a sort.
+     * @param mode BY_NAME for the last name (the guests with the same last name sorted by
+     *             first name), BY_EMAIL or BY_PHONE
+     * @param from the lowest value, included, or null to start with the first guest
+     * @param to the highest value, excluded, or null to go on until the last guest
+     * @param limit the largest number of guests returned
+     * @return the guests sorted by the field (the guests with the same value of the field
+     *         in no particular order)
+     */
+    public List<Guest> getRange(SearchMode mode, String from, String to, int limit) {
+        long start = startTimer();
+        return stopTimer(GuestsListMetrics.Operation.RANGE, start,
+                sorted(mode, SortedIndex.key(mode, from), SortedIndex.key(mode, to), null, limit));
+    }
+
+    /**
+     * Return all the registered guests sorted by a field (see getRange())
+     */
+    public List<Guest> getSorted(SearchMode mode) {
+        return getRange(mode, null, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Return the registered guests whose field starts with a prefix, sorted by the field, e.g.
+     * the phone numbers starting with +4072 or 072 (see getRange())
+     * @param mode BY_NAME for the last name, BY_EMAIL or BY_PHONE
+     * @param prefix the beginning of the field, case insensitive
+     * @param limit the largest number of guests returned
+     * @return the guests sorted by the field
+     */
+    public List<Guest> getWithPrefix(SearchMode mode, String prefix, int limit) {
+        long start = startTimer();
+        return stopTimer(GuestsListMetrics.Operation.RANGE, start,
+                sorted(mode, null, null, SortedIndex.key(mode, prefix), limit));
+    }
+
+    /**
+     * Return the guests with a key in a range, or starting with a prefix (see SortedIndex.inRange())
+     */
+    private List<Guest> sorted(SearchMode mode, String foldedFrom, String foldedTo, String foldedPrefix, int limit) {
+        SortedIndex index = sortedIndexes != null ? sortedIndexes.get(mode) : null;
+        if (index != null && waitListTail == null) {
+            return foldedPrefix != null ? index.withPrefix(foldedPrefix, limit) : index.range(foldedFrom, foldedTo, limit);
+        }
+
+        List<Iterable<Guest>> lists = new ArrayList<>();
+        if (index != null) {
+            lists.add(foldedPrefix != null ? index.withPrefix(foldedPrefix, limit) : index.range(foldedFrom, foldedTo, limit));
+        } else {
+            index = SortedIndex.of(mode);
+            lists.add(guestsList);
+            lists.add(waitList);
+        }
+        if (waitListTail != null) {
+            lists.add(waitListTail);
+        }
+        List<Guest> found = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        for (Iterable<Guest> list : lists) {
+            for (Guest guest : list) {
+                String key = index.keyOf(guest);
+                if (SortedIndex.inRange(key, foldedFrom, foldedTo, foldedPrefix)) {
+                    found.add(guest);
+                    keys.add(key);
+                }
+            }
+        }
+        return sortByKey(found, keys, limit);
+    }
+
+    /**
+     * Sort guests by their keys, the guests with equal keys in the order they were found
+     * @param keys the key of each guest, at the same position
+     * @return the first guests in the order of their keys, at most limit of them
+     */
+    private static List<Guest> sortByKey(List<Guest> guests, List<String> keys, int limit) {
+        Integer[] order = new Integer[guests.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> keys.get(a).compareTo(keys.get(b)));
+
+        List<Guest> result = new ArrayList<>(Math.min(limit, order.length));
+        for (int i = 0; i < order.length && i < limit; i++) {
+            result.add(guests.get(order[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Find the guests whose names are closest to a name that may be misspelled, e.g. to
+     * suggest the right person when checkByName() doesn't find anyone. The names are compared
+     * without diacritics and case, and with letters that sound alike treated as equal; a typo
+     * (a missing, extra, wrong or swapped letter) counts as one edit. Only the guests within
+     * one edit of a short name (up to 5 letters for the first and last name together) and
+     * within two edits of a longer one are returned.
+     * @param firstName of the person, possibly misspelled
+     * @param lastName of the person, possibly misspelled
+     * @param limit the largest number of guests returned
+     * @return the closest guests, the fewest edits first, then the guests list before
+     *         the waitlist, each in list order
+     */
+    public List<Guest> findSimilarNames(String firstName, String lastName, int limit) {
+        long start = startTimer();
+        String firstKey = NameIndex.key(firstName);
+        String lastKey = NameIndex.key(lastName);
+        int length = firstKey.length() + lastKey.length();
+        int maxDistance = length <= 5 ? 1 : 2;
+
+        List<Guest> found = new ArrayList<>();
+        List<Integer> distances = new ArrayList<>();
+        // the largest distance of the guests in memory that were found
+        int searched = maxDistance;
+        if (nameIndex != null) {
+            // widen the search one edit at a time, the closest guests are usually found early
+            for (int radius = 0; radius <= maxDistance && found.size() < limit; radius++) {
+                found.clear();
+                distances.clear();
+                nameIndex.find(firstName, lastName, radius, (guest, distance) -> {
+                    found.add(guest);
+                    distances.add(distance);
+                });
+                searched = radius;
+            }
+        } else {
+            for (FenwickList<Guest> list : List.of(guestsList, waitList)) {
+                for (Guest guest : list) {
+                    addSimilar(guest, firstKey, lastKey, maxDistance, found, distances);
+                }
+            }
+        }
+        if (waitListTail != null) {
+            // the guests in the files are never closer than those in memory at the same distance,
+            // so the ones past the searched radius can't be among the first ones
+            for (Guest guest : waitListTail) {
+                addSimilar(guest, firstKey, lastKey, searched, found, distances);
+            }
+        }
+        return stopTimer(GuestsListMetrics.Operation.SIMILAR, start, closest(found, distances, limit));
+    }
+
+    /**
+     * Add a guest to those found by findSimilarNames() if its name is close enough
+     */
+    private static void addSimilar(Guest guest, String firstKey, String lastKey, int maxDistance,
+                                   List<Guest> found, List<Integer> distances) {
+        int distance = NameIndex.distance(lastKey, guest.getLastName());
+        if (distance <= maxDistance) {
+            distance += NameIndex.distance(firstKey, guest.getFirstName());
+        }
+        if (distance <= maxDistance) {
+            found.add(guest);
+            distances.add(distance);
+        }
+    }
+
+    /**
+     * Sort the guests found by findSimilarNames() and keep the first ones
+     */
+    private List<Guest> closest(List<Guest> found, List<Integer> distances, int limit) {
+        // sort key: distance (8 bits) | list (1 bit) | position in the list (31 bits) | index in found (24 bits)
+        long[] order = new long[found.size()];
+        for (int i = 0; i < found.size(); i++) {
+            Guest guest = found.get(i);
+            int position = guestsList.indexOf(guest);
+            long list = 0;
+            if (position < 0) {
+                position = waitList.indexOf(guest);
+                list = 1;
+            }
+            if (position < 0) {
+                // read from the files of the waitlist, which are scanned in order after the
+                // guests in memory, so the index in found keeps them in order
+                position = Integer.MAX_VALUE;
+            }
+            order[i] = ((long) distances.get(i) << 56) | (list << 55) | ((long) position << 24) | i;
+        }
+        Arrays.sort(order);
+
+        List<Guest> result = new ArrayList<>(Math.min(limit, order.length));
+        for (int i = 0; i < order.length && i < limit; i++) {
+            result.add(found.get((int) (order[i] & 0xFFFFFF)));
+        }
+        return result;
+    }
+
+    /**
+     * Keep the candidates matching the search and sort them the way a full scan
+     * would return them: the guests list first, then the waitlist, each in list order.
+     * @param candidates returned by the trigram index
+     * @param str the case folded searched string
+     * @return the matching guests in list order
+     */
+    private List<Guest> inListOrder(List<Guest> candidates, String str) {
+        // sort key: list (1 bit) | position in the list (31 bits) | index in candidates (31 bits)
+        long[] order = new long[candidates.size()];
+        int matches = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            Guest guest = candidates.get(i);
+            if (!guest.anyFieldContains(str)) {
+                continue;
+            }
+            int position = guestsList.indexOf(guest);
+            long list = 0;
+            if (position < 0) {
+                position = waitList.indexOf(guest);
+                list = 1;
+            }
+            order[matches++] = (list << 62) | ((long) position << 31) | i;
+        }
+        Arrays.sort(order, 0, matches);
+
+        List<Guest> result = new ArrayList<>(matches);
+        for (int i = 0; i < matches; i++) {
+            result.add(candidates.get((int) (order[i] & Integer.MAX_VALUE)));
+        }
+        return result;
+    }
+
     /**
      * Return the number of available spots for the event
      * @return an integer representing available spots. Zero if the event is fully booked.
@@ -313,7 +1306,7 @@ public class GuestsList implements Serializable {
      * @return an integer representing the number of person on the wait list
      */
     public int getTotalNoWaiting() {
-        return waitList.size();
+        return waitList.size() + spilled();
     }
 
     /**
@@ -322,7 +1315,7 @@ public class GuestsList implements Serializable {
      * @return an integer representing the total number of registrants
      */
     public int getTotalNoRegistered() {
-        return guestsList.size() + waitList.size();
+        return guestsList.size() + waitList.size() + spilled();
     }
 
     /**
@@ -333,12 +1326,56 @@ public class GuestsList implements Serializable {
         return numberOfPlaces;
     }
 
+    /**
+     * Change the total number of places for the event, e.g. when seats are added or removed
+     * at the venue. With more places, the first guests on the waitlist are moved to the end
+     * of the guests list, as many as the new places allow. With fewer places, the guests who
+     * got the last places are moved back to the head of the waitlist, in the same order, so
+     * they are the first to be promoted again. The guests are moved all at once, and the
+     * listeners get a single placesChanged() for the whole change.
+     * @param numberOfPlaces the new total number of places, not negative
+     * @return the number of guests moved to the guests list, or minus the number of
+     *         guests moved back to the waitlist
+     */
+    public int setNumberOfPlaces(int numberOfPlaces) {
+        if (numberOfPlaces < 0) {
+            throw new IllegalArgumentException("The number of places should not be negative: " + numberOfPlaces);
+        }
+        long start = startTimer();
+        List<Guest> promoted = List.of();
+        List<Guest> demoted = List.of();
+        int participants = guestsList.size();
+        if (numberOfPlaces > participants && waitListTail != null) {
+            // the head of the waitlist is refilled from its files as the guests are promoted
+            promoted = new ArrayList<>();
+            while (guestsList.size() < numberOfPlaces && !waitList.isEmpty()) {
+                Guest guest = waitList.removeFirst();
+                guestsList.add(guest);
+                promoted.add(guest);
+                refillWaitList();
+            }
+        } else if (numberOfPlaces > participants) {
+            promoted = waitList.removeFirst(Math.min(numberOfPlaces - participants, waitList.size()));
+            for (Guest guest : promoted) {
+                guestsList.add(guest);
+            }
+        } else if (numberOfPlaces < participants) {
+            demoted = guestsList.removeLast(participants - numberOfPlaces);
+            waitList.addAllFirst(demoted);
+        }
+        this.numberOfPlaces = numberOfPlaces;
+        for (GuestsListListener listener : listeners) {
+            listener.placesChanged(numberOfPlaces, promoted, demoted);
+        }
+        return stopTimer(GuestsListMetrics.Operation.PLACES, start, promoted.size() - demoted.size());
+    }
+
     /**
      * Return a copy of the guests list
      * @return a List of com.danpopescu.registrationmanagement.Guest who are attending the event
      */
     public List<Guest> getGuestsList() {
-        return new ArrayList<>(guestsList);
+        return guestsList.toList();
     }
 
     /**
@@ -346,7 +1383,88 @@ public class GuestsList implements Serializable {
      * @return a List of com.danpopescu.registrationmanagement.Guest who are on the wait list for the event
      */
     public List<Guest> getWaitList() {
-        return new ArrayList<>(waitList);
+        List<Guest> copy = waitList.toList();
+        if (waitListTail != null) {
+            waitListTail.forEach(copy::add);
+        }
+        return copy;
+    }
+
+    /**
+     * Return a read-only view of the guests list, without copying it. The view follows
+     * the changes of the list; iterating it while the list is changed throws
+     * ConcurrentModificationException. Its spliterator splits evenly, so the view
+     * can be used with parallel streams.
+     * @return an unmodifiable List of com.danpopescu.registrationmanagement.Guest who are attending the event
+     */
+    public List<Guest> getGuestsListView() {
+        return guestsList.view();
+    }
+
+    /**
+     * Return a read-only view of the wait list, without copying it (see getGuestsListView())
+     * @return an unmodifiable List of com.danpopescu.registrationmanagement.Guest who are on the wait list
+     */
+    public List<Guest> getWaitListView() {
+        if (waitListTail == null) {
+            return waitList.view();
+        }
+        List<Guest> head = waitList.view();
+        WaitListTail tail = waitListTail;
+        return new AbstractList<>() {
+            @Override
+            public Guest get(int index) {
+                Objects.checkIndex(index, size());
+                return index < head.size() ? head.get(index) : tail.page(index - head.size(), 1).get(0);
+            }
+
+            @Override
+            public int size() {
+                return head.size() + tail.size();
+            }
+
+            @Override
+            public Iterator<Guest> iterator() {
+                Iterator<Guest> inMemory = head.iterator();
+                Iterator<Guest> inFiles = tail.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return inMemory.hasNext() || inFiles.hasNext();
+                    }
+
+                    @Override
+                    public Guest next() {
+                        return inMemory.hasNext() ? inMemory.next() : inFiles.next();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Return one page of the guests list
+     * @param offset 0-based position of the first guest on the page
+     * @param limit maximum number of guests on the page
+     * @return a List with at most limit guests, empty if offset is past the end of the list
+     */
+    public List<Guest> getGuestsPage(int offset, int limit) {
+        return guestsList.page(offset, limit);
+    }
+
+    /**
+     * Return one page of the wait list
+     * @param offset 0-based position of the first guest on the page
+     * @param limit maximum number of guests on the page
+     * @return a List with at most limit guests, empty if offset is past the end of the list
+     */
+    public List<Guest> getWaitListPage(int offset, int limit) {
+        List<Guest> page = waitList.page(offset, limit);
+        if (waitListTail != null && page.size() < limit) {
+            page = new ArrayList<>(page);
+            page.addAll(waitListTail.page(Math.max(0, offset - waitList.size()), limit - page.size()));
+        }
+        return page;
     }
 
 }
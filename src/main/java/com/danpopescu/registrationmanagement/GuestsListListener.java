@@ -0,0 +1,52 @@
+package com.danpopescu.registrationmanagement;
+
+import java.util.List;
+
+/**
+ * Receives the changes made to a com.danpopescu.registrationmanagement.GuestsList,
+ * after each change has been applied. A single operation may produce several
+ * changes, e.g. removing a guest from the guests list also promotes the first
+ * guest on the waitlist.
+ */
+public interface GuestsListListener {
+
+    /**
+     * A new guest has been registered
+     * @param guest the registered guest
+     * @param waitListed true if the guest has been added to the waitlist, false for the guests list
+     */
+    default void guestAdded(Guest guest, boolean waitListed) {
+    }
+
+    /**
+     * A guest has been removed from the guests list or the waitlist
+     * @param guest the removed guest
+     */
+    default void guestRemoved(Guest guest) {
+    }
+
+    /**
+     * The first guest on the waitlist has been moved to the guests list
+     * @param guest the promoted guest
+     */
+    default void guestPromoted(Guest guest) {
+    }
+
+    /**
+     * A field of a registered guest has been changed
+     * @param guest the updated guest, holding the new value
+     * @param field that has been changed
+     * @param oldValue the value of the field before the change
+     */
+    default void guestUpdated(Guest guest, GuestField field, String oldValue) {
+    }
+
+    /**
+     * The number of places of the event has been changed, which may have moved guests between the lists
+     * @param numberOfPlaces the new number of places
+     * @param promoted the guests moved from the head of the waitlist to the end of the guests list, in order
+     * @param demoted the guests moved from the end of the guests list to the head of the waitlist, in order
+     */
+    default void placesChanged(int numberOfPlaces, List<Guest> promoted, List<Guest> demoted) {
+    }
+}
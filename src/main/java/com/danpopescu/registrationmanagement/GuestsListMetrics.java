@@ -0,0 +1,201 @@
+package com.danpopescu.registrationmanagement;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latencies and counters of the operations of a com.danpopescu.registrationmanagement.GuestsList.
+ *
+ * A list records its operations once the metrics are attached with GuestsList.setMetrics().
+ * Every operation has its own com.danpopescu.registrationmanagement.LatencyHistogram, allocated
+ * up front, so recording does not allocate. The operations are all counted, but only one in
+ * sampleInterval is timed: reading the clock twice costs about as much as a lookup in the
+ * indexes, so timing every call would double the cost of the fast operations. The metrics can
+ * be published as a platform MXBean with register(), and then read with any JMX client.
+ *
+ * The counters are not synchronized: an instance belongs to a single list, and is only updated by the
+ * thread using that list (for an EventRegistry, under the lock of the event, including PERSIST).
+ */
+public class GuestsListMetrics implements GuestsListMetricsMXBean, GuestsListListener {
+
+    /**
+     * The timed operations. CHECK, REMOVE and GET include the lookups by name, email and phone.
+     * Every kind of query has its own operation, so that the fast index lookups (SUGGEST, RANGE)
+     * are not mixed with the scans of SEARCH in the same histogram: SUGGEST is GuestsList.suggest(),
+     * SIMILAR findSimilarNames(), RANGE getRange() and getWithPrefix(), and PLACES setNumberOfPlaces().
+     */
+    public enum Operation {
+        ADD, CHECK, REMOVE, GET, UPDATE, PLACES, SEARCH, SUGGEST, SIMILAR, RANGE, PERSIST
+    }
+
+    // indexed by Operation.ordinal()
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Operation.values().length];
+    private final long[] counts = new long[Operation.values().length];
+    private final int sampleMask;
+    private int calls;
+    private GuestsList guestsList;
+    // the name under which the metrics are published, null while they are not
+    private ObjectName objectName;
+    private long promotions;
+    private long duplicateRejections;
+
+    /**
+     * Create metrics that time one in 16 operations
+     */
+    public GuestsListMetrics() {
+        this(16);
+    }
+
+    /**
+     * @param sampleInterval time one in sampleInterval operations; a power of two, 1 to time all of them
+     */
+    public GuestsListMetrics(int sampleInterval) {
+        if (sampleInterval < 1 || Integer.bitCount(sampleInterval) != 1) {
+            throw new IllegalArgumentException("sampleInterval should be a power of two: " + sampleInterval);
+        }
+        sampleMask = sampleInterval - 1;
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Publish the metrics in the platform MBean server
+     * @param name of the event, used in the ObjectName
+     * @return the name under which the metrics were registered
+     */
+    public ObjectName register(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("com.danpopescu.registrationmanagement:type=GuestsList,name="
+                + ObjectName.quote(name));
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+        server.registerMBean(this, objectName);
+        this.objectName = objectName;
+        return objectName;
+    }
+
+    /**
+     * Remove the metrics from the platform MBean server, if they were published by register()
+     */
+    public void unregister() throws JMException {
+        ObjectName name = objectName;
+        objectName = null;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (name != null && server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+    }
+
+    /**
+     * Record the latency of an operation. Unlike the operations of the list, which are
+     * sampled, every recorded latency is kept.
+     * @param operation that was timed
+     * @param nanos the duration of the operation, in nanoseconds
+     */
+    public void record(Operation operation, long nanos) {
+        counts[operation.ordinal()]++;
+        histograms[operation.ordinal()].record(nanos);
+    }
+
+    /**
+     * Called by the list when an operation starts
+     * @return the start time if this operation is sampled, 0 otherwise
+     */
+    long start() {
+        return (++calls & sampleMask) == 0 ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Called by the list when an operation ends
+     * @param start returned by start()
+     */
+    void stop(Operation operation, long start) {
+        counts[operation.ordinal()]++;
+        if (start != 0) {
+            histograms[operation.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    void duplicateRejected() {
+        duplicateRejections++;
+    }
+
+    /**
+     * Called by GuestsList.setMetrics(). The list sizes are read from the attached list.
+     */
+    void attach(GuestsList guestsList) {
+        if (this.guestsList != null) {
+            this.guestsList.removeListener(this);
+        }
+        this.guestsList = guestsList;
+        if (guestsList != null) {
+            guestsList.addListener(this);
+        }
+    }
+
+    @Override
+    public void guestPromoted(Guest guest) {
+        promotions++;
+    }
+
+    @Override
+    public Map<String, LatencyStats> getLatencies() {
+        Map<String, LatencyStats> latencies = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation.name(), getLatency(operation));
+        }
+        return latencies;
+    }
+
+    /**
+     * @return the latencies of one operation
+     */
+    public LatencyStats getLatency(Operation operation) {
+        return LatencyStats.of(counts[operation.ordinal()], histograms[operation.ordinal()]);
+    }
+
+    @Override
+    public long getPromotions() {
+        return promotions;
+    }
+
+    @Override
+    public long getDuplicateRejections() {
+        return duplicateRejections;
+    }
+
+    @Override
+    public int getParticipants() {
+        GuestsList list = guestsList;
+        return list == null ? 0 : list.getTotalNoParticipants();
+    }
+
+    @Override
+    public int getWaiting() {
+        GuestsList list = guestsList;
+        return list == null ? 0 : list.getTotalNoWaiting();
+    }
+
+    @Override
+    public int getAvailablePlaces() {
+        GuestsList list = guestsList;
+        return list == null ? 0 : list.getNoAvailablePlaces();
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        Arrays.fill(counts, 0);
+        promotions = 0;
+        duplicateRejections = 0;
+    }
+}
@@ -0,0 +1,36 @@
+package com.danpopescu.registrationmanagement;
+
+import java.util.Map;
+
+/**
+ * Management interface of com.danpopescu.registrationmanagement.GuestsListMetrics,
+ * as seen from JMX clients such as jconsole or VisualVM
+ */
+public interface GuestsListMetricsMXBean {
+
+    /**
+     * @return the latencies of each operation, by operation name (ADD, CHECK, REMOVE ...)
+     */
+    Map<String, LatencyStats> getLatencies();
+
+    /**
+     * @return how many guests were moved from the wait list to the guests list
+     */
+    long getPromotions();
+
+    /**
+     * @return how many add() calls were rejected because the guest was already registered
+     */
+    long getDuplicateRejections();
+
+    int getParticipants();
+
+    int getWaiting();
+
+    int getAvailablePlaces();
+
+    /**
+     * Clear the latencies and the counters
+     */
+    void reset();
+}
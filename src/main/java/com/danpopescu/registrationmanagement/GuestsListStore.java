@@ -0,0 +1,246 @@
+package com.danpopescu.registrationmanagement;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Persists a com.danpopescu.registrationmanagement.GuestsList as a snapshot plus a journal
+ * of the changes made since the snapshot.
+ *
+ * Every change is appended to the journal as a small record, so saving a change costs
+ * O(1) I/O instead of rewriting the whole list. When the journal holds more records
+ * than there are registrants, flush() compacts it: the list is written to a new snapshot,
+ * which atomically replaces the old one, and the journal is emptied. The snapshot keeps
+ * the sequence number of the last record it includes, so the records of a journal that
+ * could not be emptied before a crash are skipped on the next restore.
+ *
+ * Snapshots are written in the binary format of com.danpopescu.registrationmanagement.Snapshot.
+ * A list saved with Java serialization by older versions (the name.dat file) is migrated
+ * to the binary format the first time it is opened.
+ */
+public class GuestsListStore implements Closeable {
+
+    private static final int MIN_COMPACTION_RECORDS = 10_000;
+
+    private final Path directory;
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private final Path legacyPath;
+
+    private GuestsList guestsList;
+    private Journal journal;
+
+    /**
+     * @param directory where the files are stored, created if missing
+     * @param name of the event, used as base name of the files
+     */
+    public GuestsListStore(Path directory, String name) {
+        this.directory = directory;
+        this.snapshotPath = directory.resolve(name + ".snapshot");
+        this.journalPath = directory.resolve(name + ".journal");
+        this.legacyPath = directory.resolve(name + ".dat");
+    }
+
+    /**
+     * Check if a list has been saved
+     * @return true if the snapshot file, or a file saved by an older version, exists
+     */
+    public boolean exists() {
+        return Files.exists(snapshotPath) || Files.exists(legacyPath);
+    }
+
+    /**
+     * Restore the list from the snapshot and the journal, and start recording its changes
+     * @return the restored list
+     */
+    public GuestsList open() throws IOException, ClassNotFoundException {
+        if (!Files.exists(snapshotPath) && Files.exists(legacyPath)) {
+            migrateLegacy();
+        }
+        Snapshot snapshot = Snapshot.read(snapshotPath);
+        guestsList = snapshot.guestsList;
+        long snapshotSequence = snapshot.sequence;
+
+        journal = new Journal(journalPath);
+        long lastSequence = journal.replay(guestsList, snapshotSequence);
+        journal.openForAppend(lastSequence);
+        guestsList.addListener(new JournalWriter());
+        return guestsList;
+    }
+
+    /**
+     * Save a new list, replacing any saved one, and start recording its changes
+     * @param guestsList to be saved
+     */
+    public void create(GuestsList guestsList) throws IOException {
+        Files.createDirectories(directory);
+        this.guestsList = guestsList;
+        writeSnapshot(0);
+        Files.deleteIfExists(journalPath);
+        journal = new Journal(journalPath);
+        journal.openForAppend(0);
+        guestsList.addListener(new JournalWriter());
+    }
+
+    /**
+     * Write the recorded changes to the journal file, and compact the journal
+     * if it grew larger than the list.
+     */
+    public void flush() throws IOException {
+        journal.flush();
+        if (journal.records() >= Math.max(MIN_COMPACTION_RECORDS, guestsList.getTotalNoRegistered())) {
+            compact();
+        }
+    }
+
+    /**
+     * Check if changes have been recorded since the last flush
+     * @return true if the journal holds records that haven't been written to the file
+     */
+    public boolean hasChanges() {
+        return journal != null && journal.hasUnflushedRecords();
+    }
+
+    /**
+     * Write the whole list to a new snapshot and empty the journal
+     */
+    public void compact() throws IOException {
+        journal.flush();
+        writeSnapshot(journal.sequence());
+        journal.reset();
+    }
+
+    /**
+     * Stop recording and delete the saved files
+     */
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(snapshotPath);
+        Files.deleteIfExists(journalPath);
+        Files.deleteIfExists(legacyPath);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    /**
+     * Replace the snapshot with a new one. The new file is forced to the disk before it is renamed,
+     * and the rename before this method returns, so the journal can be emptied afterwards: after a
+     * crash, either the old snapshot and the whole journal, or the complete new snapshot are found.
+     */
+    private void writeSnapshot(long sequence) throws IOException {
+        Path temporary = directory.resolve(snapshotPath.getFileName() + ".tmp");
+        Snapshot.write(temporary, guestsList, sequence);
+        Files.move(temporary, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory();
+    }
+
+    /**
+     * Force the entries of the directory (the rename of the snapshot) to the disk. Not every
+     * platform can open a directory: Windows can't, but there the file system makes the rename
+     * durable by itself, so a failure to open it is ignored.
+     */
+    private void forceDirectory() throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Convert the Java serialized list of an older version to a binary snapshot. The old
+     * file is kept as name.dat.migrated, and is not read again once the snapshot exists.
+     */
+    private void migrateLegacy() throws IOException, ClassNotFoundException {
+        long sequence;
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(legacyPath)))) {
+            guestsList = (GuestsList) in.readObject();
+            sequence = readSequence(in);
+        }
+        writeSnapshot(sequence);
+        Files.move(legacyPath, legacyPath.resolveSibling(legacyPath.getFileName() + ".migrated"),
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Read the sequence number that follows the list in a Java serialized file. Files written
+     * before the journal existed contain only the list, and are at sequence 0.
+     */
+    private static long readSequence(ObjectInputStream in) throws IOException {
+        try {
+            return in.readLong();
+        } catch (EOFException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Appends every change of the list to the journal
+     */
+    private class JournalWriter implements GuestsListListener {
+        @Override
+        public void guestAdded(Guest guest, boolean waitListed) {
+            try {
+                journal.appendAdd(guest);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void guestRemoved(Guest guest) {
+            try {
+                journal.appendRemove(guest);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void guestPromoted(Guest guest) {
+            try {
+                journal.appendPromote(guest);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void guestUpdated(Guest guest, GuestField field, String oldValue) {
+            try {
+                journal.appendUpdate(guest, field, oldValue);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void placesChanged(int numberOfPlaces, List<Guest> promoted, List<Guest> demoted) {
+            try {
+                journal.appendPlaces(numberOfPlaces);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.danpopescu.registrationmanagement;
+
+import java.util.Arrays;
+
+/**
+ * A map from objects, compared by identity, to non-negative ints.
+ *
+ * It replaces an IdentityHashMap&lt;E, Integer&gt; where the values are stored for millions
+ * of elements: the keys and the values are kept in two parallel arrays (open addressing with
+ * linear probing), so a mapping costs two array slots instead of two slots and a boxed Integer.
+ */
+final class IdentitySlotMap {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Object[] keys = new Object[INITIAL_CAPACITY];
+    private int[] values = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * @return the value mapped to the key, or -1 if the key is not in the map
+     */
+    int get(Object key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return -1;
+    }
+
+    boolean containsKey(Object key) {
+        return get(key) >= 0;
+    }
+
+    void put(Object key, int value) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        for (; keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length / 2) {
+            resize(keys.length * 2);
+        }
+    }
+
+    void remove(Object key) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != key) {
+            if (keys[i] == null) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = null;
+        size--;
+        // move back the following keys of the cluster that can no longer be reached
+        for (int j = (i + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                keys[j] = null;
+                i = j;
+            }
+        }
+    }
+
+    void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new Object[capacity];
+        values = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != null) {
+                int i = slot(oldKeys[j], mask);
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private static int slot(Object key, int mask) {
+        int hash = System.identityHashCode(key) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
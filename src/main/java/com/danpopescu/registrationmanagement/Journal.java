@@ -0,0 +1,296 @@
+package com.danpopescu.registrationmanagement;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the changes made to a com.danpopescu.registrationmanagement.GuestsList
+ * since its last snapshot.
+ *
+ * Every record is written as:
+ *      int     length of the body
+ *      body    long sequence number, byte record type, type specific fields
+ *      int     CRC32 of the body
+ * so that a record torn by a crash in the middle of a write is detected on replay
+ * and cut from the end of the file.
+ */
+class Journal implements Closeable {
+
+    static final byte ADD = 1;
+    static final byte REMOVE = 2;
+    static final byte PROMOTE = 3;
+    static final byte UPDATE = 4;
+    static final byte PLACES = 5;
+
+    // larger than any valid record, a bigger length means a corrupted record
+    private static final int MAX_RECORD_LENGTH = 1 << 20;
+
+    private final Path path;
+    private final RecordBuffer body = new RecordBuffer();
+    private final DataOutputStream bodyOut = new DataOutputStream(body);
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel channel;
+    private DataOutputStream out;
+    private long sequence;
+    // sequence number of the last record written to the file
+    private long flushedSequence;
+    private int records;
+
+    Journal(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Apply the records of the journal file to the list, skipping the ones that are already
+     * included in the snapshot. A torn or corrupted record ends the journal: it is truncated
+     * from the file together with everything after it.
+     * @param guestsList restored from the snapshot
+     * @param snapshotSequence sequence number of the last record included in the snapshot
+     * @return the sequence number of the last valid record, at least snapshotSequence
+     * @throws IOException if the file can't be read, or a record can't be applied to the list
+     */
+    long replay(GuestsList guestsList, long snapshotSequence) throws IOException {
+        long lastSequence = snapshotSequence;
+        if (!Files.exists(path)) {
+            return lastSequence;
+        }
+
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                byte[] record = readRecord(in);
+                if (record == null) {
+                    break;
+                }
+                DataInputStream recordIn = new DataInputStream(new ByteArrayInputStream(record));
+                long recordSequence = recordIn.readLong();
+                if (recordSequence > snapshotSequence) {
+                    apply(guestsList, recordIn, recordSequence);
+                    lastSequence = recordSequence;
+                }
+                validLength += Integer.BYTES + record.length + Integer.BYTES;
+                records++;
+            }
+        }
+
+        if (validLength < Files.size(path)) {
+            try (FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                file.truncate(validLength);
+            }
+        }
+        return lastSequence;
+    }
+
+    /**
+     * Read the body of the next record
+     * @return the body, or null at the end of the file or at a torn/corrupted record
+     */
+    private byte[] readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length <= 0 || length > MAX_RECORD_LENGTH) {
+                return null;
+            }
+            byte[] record = new byte[length];
+            in.readFully(record);
+            int checksum = in.readInt();
+            crc.reset();
+            crc.update(record);
+            return (int) crc.getValue() == checksum ? record : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static void apply(GuestsList guestsList, DataInputStream in, long sequence) throws IOException {
+        byte type = in.readByte();
+        if (type == PLACES) {
+            // the guests moved between the lists are moved again by the replay
+            guestsList.setNumberOfPlaces(in.readInt());
+            return;
+        }
+        Guest guest = readGuest(in);
+        boolean applied = switch (type) {
+            case ADD -> guestsList.add(guest) >= 0;
+            case REMOVE -> guestsList.remove(guest) >= 0;
+            // the promotion is replayed by the preceding REMOVE, check that it had the same outcome
+            case PROMOTE -> guestsList.check(guest) == 0;
+            case UPDATE -> {
+                GuestField field = GuestField.values()[in.readByte()];
+                String value = in.readUTF();
+                Guest registered = guestsList.findEqual(guest);
+                yield registered != null && guestsList.update(registered, field, value);
+            }
+            default -> throw new IOException("Unknown journal record type " + type + " at sequence " + sequence);
+        };
+        if (!applied) {
+            throw new IOException("Journal record " + sequence + " doesn't match the snapshot");
+        }
+    }
+
+    /**
+     * Open the journal file for appending new records
+     * @param lastSequence sequence number of the last record in the snapshot or the journal
+     */
+    void openForAppend(long lastSequence) throws IOException {
+        sequence = lastSequence;
+        flushedSequence = lastSequence;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+    }
+
+    void appendAdd(Guest guest) throws IOException {
+        beginRecord(ADD);
+        writeGuest(bodyOut, guest.getLastName(), guest.getFirstName(), guest.getEmail(), guest.getPhoneNumber());
+        endRecord();
+    }
+
+    void appendRemove(Guest guest) throws IOException {
+        beginRecord(REMOVE);
+        writeGuest(bodyOut, guest.getLastName(), guest.getFirstName(), guest.getEmail(), guest.getPhoneNumber());
+        endRecord();
+    }
+
+    void appendPromote(Guest guest) throws IOException {
+        beginRecord(PROMOTE);
+        writeGuest(bodyOut, guest.getLastName(), guest.getFirstName(), guest.getEmail(), guest.getPhoneNumber());
+        endRecord();
+    }
+
+    /**
+     * Append the update of a guest, identified by the values of its fields before the update
+     */
+    void appendUpdate(Guest guest, GuestField field, String oldValue) throws IOException {
+        beginRecord(UPDATE);
+        writeGuest(bodyOut,
+                field == GuestField.LAST_NAME ? oldValue : guest.getLastName(),
+                field == GuestField.FIRST_NAME ? oldValue : guest.getFirstName(),
+                field == GuestField.EMAIL ? oldValue : guest.getEmail(),
+                field == GuestField.PHONE_NUMBER ? oldValue : guest.getPhoneNumber());
+        bodyOut.writeByte(field.ordinal());
+        bodyOut.writeUTF(switch (field) {
+            case LAST_NAME -> guest.getLastName();
+            case FIRST_NAME -> guest.getFirstName();
+            case EMAIL -> guest.getEmail();
+            case PHONE_NUMBER -> guest.getPhoneNumber();
+        });
+        endRecord();
+    }
+
+    /**
+     * Append a change of the number of places; a single record covers all the guests it moves
+     */
+    void appendPlaces(int numberOfPlaces) throws IOException {
+        beginRecord(PLACES);
+        bodyOut.writeInt(numberOfPlaces);
+        endRecord();
+    }
+
+    private void beginRecord(byte type) throws IOException {
+        body.reset();
+        bodyOut.writeLong(++sequence);
+        bodyOut.writeByte(type);
+    }
+
+    private void endRecord() throws IOException {
+        bodyOut.flush();
+        crc.reset();
+        crc.update(body.array(), 0, body.size());
+        out.writeInt(body.size());
+        body.writeTo(out);
+        out.writeInt((int) crc.getValue());
+        records++;
+    }
+
+    /**
+     * Write the buffered records to the file, and force them to the disk: once flush() returns,
+     * the records survive a crash of the machine, not only of the process
+     */
+    void flush() throws IOException {
+        out.flush();
+        if (sequence != flushedSequence) {
+            // only the content matters for replay, the metadata (e.g. the modification time) doesn't
+            channel.force(false);
+        }
+        flushedSequence = sequence;
+    }
+
+    /**
+     * Check if records have been appended since the last flush
+     */
+    boolean hasUnflushedRecords() {
+        return sequence != flushedSequence;
+    }
+
+    /**
+     * Drop all the records, after they have been included in a snapshot
+     */
+    void reset() throws IOException {
+        flush();
+        channel.truncate(0);
+        records = 0;
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Return the number of records in the journal file
+     */
+    int records() {
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    private static void writeGuest(DataOutputStream out, String lastName, String firstName,
+                                   String email, String phoneNumber) throws IOException {
+        out.writeUTF(lastName);
+        out.writeUTF(firstName);
+        out.writeUTF(email);
+        out.writeUTF(phoneNumber);
+    }
+
+    private static Guest readGuest(DataInputStream in) throws IOException {
+        String lastName = in.readUTF();
+        String firstName = in.readUTF();
+        String email = in.readUTF();
+        String phoneNumber = in.readUTF();
+        return new Guest(firstName, lastName, email, phoneNumber);
+    }
+
+    /**
+     * Record body buffer that exposes its array to compute the checksum without a copy
+     */
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+        RecordBuffer() {
+            super(256);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.danpopescu.registrationmanagement;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The small subset of JSON used by the HTTP API: objects whose values are strings or numbers,
+ * and arrays of such objects. Numbers are read as strings, and converted by the caller.
+ */
+final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * Parse an object with string, number, boolean or null values
+     * @param text of the object
+     * @return the values by name, in the order of the text; null values are left out
+     * @throws IllegalArgumentException if the text is not such an object
+     */
+    static Map<String, String> parseObject(String text) {
+        Parser parser = new Parser(text);
+        Map<String, String> values = parser.object();
+        parser.skipWhitespace();
+        if (parser.position != text.length()) {
+            throw parser.error("unexpected text after the object");
+        }
+        return values;
+    }
+
+    /**
+     * Append a string as a JSON string literal
+     */
+    static StringBuilder quote(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        return out.append('"');
+    }
+
+    /**
+     * Write a guest as an object with the fields lastName, firstName, email and phone
+     */
+    static StringBuilder guest(StringBuilder out, Guest guest) {
+        out.append("{\"lastName\":");
+        quote(out, guest.getLastName()).append(",\"firstName\":");
+        quote(out, guest.getFirstName()).append(",\"email\":");
+        quote(out, guest.getEmail()).append(",\"phone\":");
+        return quote(out, guest.getPhoneNumber()).append('}');
+    }
+
+    /**
+     * Write a list of guests as an array of objects
+     */
+    static StringBuilder guests(StringBuilder out, List<Guest> guests) {
+        out.append('[');
+        for (int i = 0; i < guests.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            guest(out, guests.get(i));
+        }
+        return out.append(']');
+    }
+
+    private static final class Parser {
+        private final String text;
+        private int position;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Map<String, String> object() {
+            Map<String, String> values = new LinkedHashMap<>();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+                return values;
+            }
+            do {
+                skipWhitespace();
+                String name = string();
+                expect(':');
+                skipWhitespace();
+                String value = value();
+                if (value != null) {
+                    values.put(name, value);
+                }
+                skipWhitespace();
+            } while (consume(','));
+            expect('}');
+            return values;
+        }
+
+        private String value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            int start = position;
+            while (position < text.length() && "+-.0123456789eEtruefalsn".indexOf(text.charAt(position)) >= 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.isEmpty() || !(literal.equals("true") || literal.equals("false")
+                    || literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?"))) {
+                throw error("expected a string, a number or a boolean");
+            }
+            return literal;
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (position >= text.length()) {
+                    throw error("unterminated string");
+                }
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    throw error("unterminated string");
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case '"', '\\', '/' -> value.append(escaped);
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        if (position + 4 > text.length()) {
+                            throw error("invalid unicode escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("invalid unicode escape");
+                        }
+                        position += 4;
+                    }
+                    default -> throw error("invalid escape \\" + escaped);
+                }
+            }
+        }
+
+        void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private char peek() {
+            if (position >= text.length()) {
+                throw error("unexpected end");
+            }
+            return text.charAt(position);
+        }
+
+        private boolean consume(char c) {
+            if (position < text.length() && text.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            skipWhitespace();
+            if (!consume(c)) {
+                throw error("expected '" + c + "'");
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid JSON at position " + position + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.danpopescu.registrationmanagement;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of latencies in nanoseconds, in the style of HdrHistogram.
+ *
+ * Values below 32 get a bucket each. Larger values are grouped by their highest set bit,
+ * and every power of two is split in 32 equal buckets, so a value is counted in a bucket
+ * that is at most 1/32 (about 3%) wider than the value itself. All the buckets are allocated
+ * up front: recording a value is a few arithmetic operations and an array increment.
+ *
+ * The histogram is written by a single thread. Other threads (e.g. a JMX client) may read it
+ * at any time; they can see a value counted in its bucket but not yet in the total.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // values up to 2^63 - 1: the highest set bit goes from SUB_BUCKET_BITS to 62
+    private static final int BUCKETS = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long totalCount;
+    private long totalNanos;
+    private long maxNanos;
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts[bucketOf(nanos)]++;
+        totalCount++;
+        totalNanos += nanos;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+    }
+
+    long count() {
+        return totalCount;
+    }
+
+    long max() {
+        return maxNanos;
+    }
+
+    double mean() {
+        long count = totalCount;
+        return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    /**
+     * Return the latency under which the given percentage of the recorded values fall
+     * @param percentile between 0 and 100
+     * @return the highest value of the bucket holding the percentile, never more than max()
+     */
+    long percentile(double percentile) {
+        long count = 0;
+        for (long bucketCount : counts) {
+            count += bucketCount;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(bucket), maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        int shift = highestBit - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
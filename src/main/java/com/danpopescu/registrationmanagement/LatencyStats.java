@@ -0,0 +1,63 @@
+package com.danpopescu.registrationmanagement;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * A summary of the latencies recorded for one operation, in microseconds.
+ * count is the number of operations; the latencies may come from a sample of them.
+ */
+public class LatencyStats {
+
+    private final long count;
+    private final double mean;
+    private final double p50;
+    private final double p99;
+    private final double p999;
+    private final double max;
+
+    @ConstructorProperties({"count", "mean", "p50", "p99", "p999", "max"})
+    public LatencyStats(long count, double mean, double p50, double p99, double p999, double max) {
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    static LatencyStats of(long count, LatencyHistogram histogram) {
+        return new LatencyStats(count, histogram.mean() / 1000,
+                histogram.percentile(50) / 1000.0, histogram.percentile(99) / 1000.0,
+                histogram.percentile(99.9) / 1000.0, histogram.max() / 1000.0);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getP50() {
+        return p50;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    public double getP999() {
+        return p999;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1fus p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                count, mean, p50, p99, p999, max);
+    }
+}
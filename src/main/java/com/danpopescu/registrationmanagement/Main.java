@@ -1,12 +1,27 @@
 package com.danpopescu.registrationmanagement;
 
-import java.io.*;
+import javax.management.JMException;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.function.IntFunction;
 
 public class Main {
 
@@ -14,17 +29,98 @@ public class Main {
 
     private static Scanner scanner;
 
-    private static Path path = Path.of("projects/registrationmanagement/src/main/resources/guestsList.dat");
+    // number of persons printed at once by the guests and waitlist commands
+    private static final int PAGE_SIZE = 50;
 
-    public static void main(String[] args) throws IOException, ClassNotFoundException {
-        scanner = new Scanner(System.in);
+    // number of registered persons suggested when a name is not found
+    private static final int SUGGESTED_NAMES = 5;
 
-        if (Files.exists(path)) {
-            restore();
-        } else {
-            int numberOfPlaces = Integer.parseInt(ask("Introduceti numarul de locuri disponibile:"));
-            guestsList = new GuestsList(numberOfPlaces);
+    private static final String DEFAULT_EVENT = "guestsList";
+
+    private static final Path DATA_DIRECTORY = Path.of("projects/registrationmanagement/src/main/resources");
+
+    // the events are loaded on demand; the console works on one of them at a time
+    private static EventRegistry registry;
+
+    private static String eventId;
+
+    // group commit in script mode: the changes are saved once per batch of commands
+    private static final int DEFAULT_BATCH_COMMANDS = 1000;
+    private static final long DEFAULT_BATCH_MILLIS = 100;
+
+    // sends the notifications of the promoted guests, null unless enabled with --notifications
+    private static NotificationPipeline notifications;
+    private static final int NOTIFICATION_QUEUE_CAPACITY = 1 << 14;
+    private static final int NOTIFICATION_BATCH_SIZE = 256;
+
+    // how often the changes are saved in the interval durability mode
+    private static final long DEFAULT_DURABILITY_MILLIS = 200;
+
+    /**
+     * Options, in the form --name value:
+     *      --durability sync|interval|on_shutdown  when the changes are saved (default sync, after every command)
+     *      --durability-ms T                       save every T milliseconds in the interval mode (default 200)
+     *      --notifications fisier                  write the email and SMS messages for the promoted guests to the file
+     * and the options of the script mode (see runScript()) or of the HTTP server (see runHttpServer()).
+     */
+    public static void main(String[] args) throws IOException, JMException {
+        Map<String, String> options = parseOptions(args);
+        if (options == null) {
+            System.err.println("Utilizare: [--durability sync|interval|on_shutdown] [--durability-ms T] [--notifications fisier] " +
+                    "[--script fisier|- [--event cod] [--batch N] [--batch-ms T]] [--http port [--http-threads N]]");
+            return;
+        }
+        EventRegistry.Durability durability = EventRegistry.Durability.valueOf(
+                options.getOrDefault("--durability", "sync").toUpperCase(Locale.ROOT));
+        long durabilityMillis = Long.parseLong(
+                options.getOrDefault("--durability-ms", String.valueOf(DEFAULT_DURABILITY_MILLIS)));
+        if (options.containsKey("--notifications")) {
+            notifications = new NotificationPipeline(NOTIFICATION_QUEUE_CAPACITY, NOTIFICATION_BATCH_SIZE,
+                    List.of(new PromotionNotifier(Files.newBufferedWriter(Path.of(options.get("--notifications")),
+                            StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND))));
+            notifications.register();
+        }
+        registry = new EventRegistry(DATA_DIRECTORY, 16, (id, list) -> {
+            list.enableSearchIndex();
+            list.enableNameIndex();
+            list.enablePrefixIndex();
+            list.enableSortedIndexes();
+            list.enableParallelSearch();
+            // every event has its own metrics, published under its ID while it is loaded
+            GuestsListMetrics metrics = new GuestsListMetrics();
+            list.setMetrics(metrics);
+            try {
+                metrics.register(id);
+            } catch (JMException e) {
+                System.err.println("Metricile evenimentului " + id + " nu pot fi publicate: " + e.getMessage());
+            }
+            if (notifications != null) {
+                list.addListener(notifications.listener(id));
+            }
+        }, (id, list) -> {
+            GuestsListMetrics metrics = list.getMetrics();
+            if (metrics != null) {
+                try {
+                    metrics.unregister();
+                } catch (JMException e) {
+                    System.err.println("Metricile evenimentului " + id + " nu pot fi retrase: " + e.getMessage());
+                }
+            }
+        }, durability, Duration.ofMillis(durabilityMillis));
+        // the changes not saved yet are written when the JVM stops, even without QUIT
+        Runtime.getRuntime().addShutdownHook(new Thread(Main::closeRegistry, "registry-shutdown"));
+
+        if (options.containsKey("--script")) {
+            runScript(options);
+            return;
+        }
+        if (options.containsKey("--http")) {
+            runHttpServer(options);
+            return;
         }
+        scanner = new Scanner(System.in);
+
+        selectEvent();
 
         Menu menuCommand = Menu.HELP;
         Menu.printMenu();
@@ -39,41 +135,186 @@ public class Main {
 
             switch (menuCommand) {
                 case HELP -> Menu.printMenu();
-                case ADD -> add();
-                case CHECK -> check();
-                case REMOVE -> remove();
-                case UPDATE -> update();
-                case GUESTS -> guests();
-                case WAITLIST -> waitlist();
-                case AVAILABLE -> available();
-                case GUESTS_NO -> guest_no();
-                case WAITLIST_NO -> waitlist_no();
-                case SUBSCRIBE_NO -> subscribe_no();
-                case SEARCH -> search();
+                case EVENT -> selectEvent();
                 case RESET -> reset();
-                case QUIT -> System.out.println("O zi frumoasa!");
+                case QUIT -> {
+                    closeRegistry();
+                    System.out.println("O zi frumoasa!");
+                }
+                default -> {
+                    Menu command = menuCommand;
+                    // the registry saves the changes made by the command once it returns
+                    registry.withEvent(eventId, list -> {
+                        guestsList = list;
+                        run(command);
+                        return null;
+                    });
+                }
+            }
+        }
+    }
+
+    /**
+     * Parse the command line arguments
+     * @return the value of each option, or null if the arguments are not pairs of --name value or a value
+     *         is not valid for its option
+     */
+    private static Map<String, String> parseOptions(String[] args) {
+        if (args.length % 2 != 0) {
+            return null;
+        }
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                return null;
             }
+            options.put(args[i], args[i + 1]);
+        }
+        String durability = options.get("--durability");
+        if (durability != null && Arrays.stream(EventRegistry.Durability.values())
+                .noneMatch(mode -> mode.name().equalsIgnoreCase(durability))) {
+            return null;
         }
+        if (!isInRange(options.get("--durability-ms"), 1, Long.MAX_VALUE)
+                || !isInRange(options.get("--batch"), 1, Integer.MAX_VALUE)
+                || !isInRange(options.get("--batch-ms"), 1, Long.MAX_VALUE)
+                || !isInRange(options.get("--http"), 0, 65535)
+                || !isInRange(options.get("--http-threads"), 0, Integer.MAX_VALUE)) {
+            return null;
+        }
+        return options;
     }
 
-    public static void persist() throws IOException {
-        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
-            out.writeObject(guestsList);
+    /**
+     * @return true if the value of an option is missing, or is a whole number between min and max
+     */
+    private static boolean isInRange(String value, long min, long max) {
+        if (value == null) {
+            return true;
+        }
+        try {
+            long number = Long.parseLong(value);
+            return number >= min && number <= max;
+        } catch (NumberFormatException e) {
+            return false;
         }
     }
 
-    public static void restore() throws IOException, ClassNotFoundException {
-        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
-            guestsList = (GuestsList) in.readObject();
+    private static void closeRegistry() {
+        try {
+            registry.close();
+        } catch (IOException e) {
+            System.err.println("Modificarile nu au putut fi salvate: " + e.getMessage());
+        }
+        if (notifications != null) {
+            // after the registry, so that the notifications of the last changes are sent
+            notifications.close();
         }
     }
 
-    private static void reset() throws IOException {
-        if (Files.exists(path)) {
-            Files.delete(path);
+    /**
+     * Run the commands of a script (see com.danpopescu.registrationmanagement.ScriptRunner) instead of
+     * the interactive menu. The options are:
+     *      --script fisier|-  the script, or - for the standard input
+     *      --event cod        the event the script starts on (default guestsList, if it exists)
+     *      --batch N          save the changes at least once every N commands (default 1000)
+     *      --batch-ms T       save the changes at least once every T milliseconds (default 100)
+     * The results are written to the standard output, and a summary to the standard error.
+     */
+    private static void runScript(Map<String, String> options) throws IOException {
+        String script = options.get("--script");
+        String event = options.getOrDefault("--event", registry.exists(DEFAULT_EVENT) ? DEFAULT_EVENT : null);
+        int batchCommands = Integer.parseInt(
+                options.getOrDefault("--batch", String.valueOf(DEFAULT_BATCH_COMMANDS)));
+        long batchMillis = Long.parseLong(
+                options.getOrDefault("--batch-ms", String.valueOf(DEFAULT_BATCH_MILLIS)));
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        ScriptRunner runner = new ScriptRunner(registry, event, out, batchCommands, Duration.ofMillis(batchMillis));
+        long start = System.nanoTime();
+        try (BufferedReader in = script.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16)
+                : Files.newBufferedReader(Path.of(script), StandardCharsets.UTF_8)) {
+            runner.run(in);
+        } finally {
+            out.flush();
+            registry.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%d comenzi (%d erori) in %.3f s: %.0f comenzi/s, %d salvari%n", runner.getCommands(),
+                runner.getErrors(), seconds, runner.getCommands() / seconds, runner.getBatches());
+    }
+
+    /**
+     * Serve the events over HTTP (see com.danpopescu.registrationmanagement.GuestsHttpServer) instead of
+     * the interactive menu, until the JVM is stopped. The options are:
+     *      --http port         the port to listen on
+     *      --http-threads N    the threads that handle the requests (default 0: virtual threads if the JDK has them)
+     */
+    private static void runHttpServer(Map<String, String> options) throws IOException {
+        int port = Integer.parseInt(options.get("--http"));
+        int threads = Integer.parseInt(options.getOrDefault("--http-threads", "0"));
+        GuestsHttpServer server = new GuestsHttpServer(registry, new InetSocketAddress(port),
+                GuestsHttpServer.newExecutor(threads));
+        // the shutdown hooks run concurrently: closing the registry waits for the requests in progress
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1), "http-shutdown"));
+        server.start();
+        System.out.println("Serverul HTTP asculta pe portul " + server.getPort());
+    }
+
+    /**
+     * Run a command on the guests list of the current event
+     */
+    private static void run(Menu command) {
+        switch (command) {
+            case ADD -> add();
+            case CHECK -> check();
+            case REMOVE -> remove();
+            case UPDATE -> update();
+            case IMPORT -> importCsv();
+            case GUESTS -> guests();
+            case WAITLIST -> waitlist();
+            case AVAILABLE -> available();
+            case PLACES -> places();
+            case GUESTS_NO -> guest_no();
+            case WAITLIST_NO -> waitlist_no();
+            case SUBSCRIBE_NO -> subscribe_no();
+            case SEARCH -> search();
+            case SUGGEST -> suggest();
         }
-        guestsList = new GuestsList(guestsList.getNumberOfPlaces());
-        persist();
+    }
+
+    /**
+     * Ask for the event to work on, and create it if it doesn't exist
+     */
+    private static void selectEvent() throws IOException {
+        Set<String> events = registry.eventIds();
+        if (!events.isEmpty()) {
+            System.out.println("Evenimente existente: " + String.join(", ", events));
+        }
+        String id = ask("Introduceti codul evenimentului (Enter pentru " + DEFAULT_EVENT + "):").strip();
+        if (id.isEmpty()) {
+            id = DEFAULT_EVENT;
+        }
+        try {
+            if (!registry.exists(id)) {
+                int numberOfPlaces = Integer.parseInt(ask("Introduceti numarul de locuri disponibile:"));
+                registry.create(id, numberOfPlaces);
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println("Cod invalid: sunt permise doar litere, cifre, '_' si '-'.");
+            if (eventId == null) {
+                selectEvent();
+            }
+            return;
+        }
+        eventId = id;
+    }
+
+    private static void reset() throws IOException {
+        int numberOfPlaces = registry.withEvent(eventId, GuestsList::getNumberOfPlaces);
+        registry.delete(eventId);
+        registry.create(eventId, numberOfPlaces);
         System.out.println("List a fost resetata cu succes.");
     }
 
@@ -81,7 +322,7 @@ public class Main {
      * Register a new person. If the event is not booked up, the person is added
      * to the guests list, otherwise to the wait list.
      */
-    private static void add() throws IOException {
+    private static void add() {
         System.out.println("Pentru a adauga o noua persoana introduceti datele de mai jos:");
         String lastName = askLastName();
         String firstName = askFirstName();
@@ -92,7 +333,6 @@ public class Main {
         switch (response) {
             case 0:
                 System.out.println("Locul la eveniment este confirmat.");
-                persist();
                 break;
             case -1:
                 System.out.println("Persoana este deja inscrisa pe lista de participanti.");
@@ -100,11 +340,39 @@ public class Main {
             default:
                 System.out.println("Persoana a fost inscrisa cu succes pe lista de asteptare si a primit numarul de " +
                     "ordine " + response + ". Aceasta va fi mutata automat pe lista de participanti da un loc devine disponibil.");
-                persist();
                 break;
         }
     }
 
+    /**
+     * Register all the persons from a CSV file (nume,prenume,email,telefon), in the order
+     * of the lines. The changes are saved once, after the whole file has been imported.
+     */
+    private static void importCsv() {
+        List<Guest> guests;
+        try {
+            guests = GuestsCsv.read(Path.of(ask("Introduceti calea fisierului CSV:")));
+        } catch (IOException e) {
+            System.out.println("Fisierul nu a putut fi citit: " + e.getMessage());
+            return;
+        }
+
+        int confirmed = 0;
+        int waiting = 0;
+        int duplicates = 0;
+        for (int response : guestsList.addAll(guests)) {
+            if (response == 0) {
+                confirmed++;
+            } else if (response == -1) {
+                duplicates++;
+            } else {
+                waiting++;
+            }
+        }
+        System.out.println("Au fost importate " + guests.size() + " persoane: " + confirmed + " cu loc confirmat, " +
+                waiting + " pe lista de asteptare, " + duplicates + " deja inscrise.");
+    }
+
     /**
      * Ask the user how he would like to search for a person in the database:
      * by name, email or phone, and return the appropriate com.danpopescu.registrationmanagement.SearchMode.
@@ -139,6 +407,11 @@ public class Main {
                 String lastName = askLastName();
                 String firstName = askFirstName();
                 responseCode = guestsList.checkByName(firstName, lastName);
+                Notification.showCheckMessage(responseCode);
+                if (responseCode == -1) {
+                    suggestSimilarNames(firstName, lastName);
+                }
+                return;
             }
             case BY_EMAIL -> {
                 String email = askEmail();
@@ -152,12 +425,27 @@ public class Main {
         Notification.showCheckMessage(responseCode);
     }
 
+    /**
+     * Print the registered persons with names close to a name that wasn't found, if there are any
+     */
+    private static void suggestSimilarNames(String firstName, String lastName) {
+        List<Guest> similar = guestsList.findSimilarNames(firstName, lastName, SUGGESTED_NAMES);
+        if (!similar.isEmpty()) {
+            System.out.println("Ati vrut sa spuneti:");
+            for (Guest guest : similar) {
+                System.out.println("\t" + guest.getLastName() + " " + guest.getFirstName());
+            }
+        }
+    }
+
     /**
      * Remove a registered person from the database or print an error message if the
      * requested guest has not been found.
      */
-    private static void remove() throws IOException {
+    private static void remove() {
         SearchMode mode = askSearchMode();
+        // the first person on the waitlist gets the place if a participant is removed
+        List<Guest> firstWaiting = guestsList.getWaitListPage(0, 1);
         int responseCode = -1;
         switch (mode) {
             case BY_NAME -> {
@@ -181,11 +469,11 @@ public class Main {
             case 0:
             case 1:
                 System.out.println("Stergerea persoanei s-a realizat cu succes.");
-                List<Guest> guests = guestsList.getGuestsList();
-                Guest transferredGuest = guests.get(guests.size() - 1);
-                System.out.println(transferredGuest.getLastName() + " " + transferredGuest.getFirstName() +
-                        "a fost transferat pe lista de participanti.");
-                persist();
+                if (!firstWaiting.isEmpty() && guestsList.check(firstWaiting.get(0)) == 0) {
+                    Guest transferredGuest = firstWaiting.get(0);
+                    System.out.println(transferredGuest.getLastName() + " " + transferredGuest.getFirstName() +
+                            " a fost transferat pe lista de participanti.");
+                }
                 break;
         }
     }
@@ -194,7 +482,7 @@ public class Main {
      * Update the personal details of a guest or print an error message if the
      * requested guest has not been found in the database.
      */
-    private static void update() throws IOException {
+    private static void update() {
         SearchMode mode = askSearchMode();
         Optional<Guest> guestOptional = Optional.empty();
         switch (mode) {
@@ -229,26 +517,18 @@ public class Main {
             field = ask("Input invalid. Incercati din nou:").charAt(0);
         }
 
-        switch (field) {
-            case '1' -> {
-                String lastName = askLastName();
-                guestOptional.get().setLastName(lastName);
-            }
-            case '2' -> {
-                String firstName = askFirstName();
-                guestOptional.get().setFirstName(firstName);
-            }
-            case '3' -> {
-                String email = askEmail();
-                guestOptional.get().setEmail(email);
-            }
-            case '4' -> {
-                String phone = askPhone();
-                guestOptional.get().setPhoneNumber(phone);
-            }
+        Guest guest = guestOptional.get();
+        boolean updated = switch (field) {
+            case '1' -> guestsList.update(guest, GuestField.LAST_NAME, askLastName());
+            case '2' -> guestsList.update(guest, GuestField.FIRST_NAME, askFirstName());
+            case '3' -> guestsList.update(guest, GuestField.EMAIL, askEmail());
+            default -> guestsList.update(guest, GuestField.PHONE_NUMBER, askPhone());
+        };
+        if (updated) {
+            System.out.println("Campul a fost actualizat cu succes.");
+        } else {
+            System.out.println("Eroare: Exista deja o persoana inregistrata cu aceleasi date.");
         }
-        persist();
-        System.out.println("Campul a fost actualizat cu succes.");
     }
 
     /**
@@ -264,15 +544,27 @@ public class Main {
         }
     }
 
+    /**
+     * Print the first persons whose last name, first name or email starts with the given characters
+     */
+    private static void suggest() {
+        String prefix = ask("Introduceti inceputul numelui, prenumelui sau emailului:");
+        List<Guest> result = guestsList.suggest(prefix, PAGE_SIZE);
+        if (result.isEmpty()) {
+            System.out.println("Nici o persoana nu corespunde sirului introdus.");
+        } else {
+            printList(result);
+        }
+    }
+
     /**
      * Print the persons that are on the guests list
      */
     private static void guests() {
-        List<Guest> list = Main.guestsList.getGuestsList();
-        if (list.isEmpty()) {
+        if (guestsList.getTotalNoParticipants() == 0) {
             System.out.println("Lista de participanti este goala...");
         } else {
-            printList(list);
+            printPages(guestsList.getTotalNoParticipants(), offset -> guestsList.getGuestsPage(offset, PAGE_SIZE));
         }
     }
 
@@ -280,11 +572,29 @@ public class Main {
      * Print the persons that are on the waitlist
      */
     private static void waitlist() {
-        List<Guest> list = Main.guestsList.getWaitList();
-        if (list.isEmpty()) {
+        if (guestsList.getTotalNoWaiting() == 0) {
             System.out.println("Lista de asteptare este goala...");
         } else {
-            printList(list);
+            printPages(guestsList.getTotalNoWaiting(), offset -> guestsList.getWaitListPage(offset, PAGE_SIZE));
+        }
+    }
+
+    /**
+     * Print a list page by page, so that only the page being printed is copied. The user
+     * is asked after each page whether to continue.
+     * @param total number of elements in the list
+     * @param pages returns the page starting at the given offset
+     */
+    private static <E> void printPages(int total, IntFunction<List<E>> pages) {
+        for (int offset = 0; offset < total; offset += PAGE_SIZE) {
+            List<E> page = pages.apply(offset);
+            for (int i = 0; i < page.size(); i++) {
+                System.out.println((offset + i + 1) + ". " + page.get(i));
+            }
+            if (offset + PAGE_SIZE < total && !ask("Afisate " + (offset + page.size()) + " din " + total +
+                    ". Apasati Enter pentru pagina urmatoare sau q pentru a reveni la meniu.").isEmpty()) {
+                return;
+            }
         }
     }
 
@@ -307,6 +617,30 @@ public class Main {
         System.out.println("Numarul de locuri ramase: " + guestsList.getNoAvailablePlaces());
     }
 
+    /**
+     * Change the number of places of the event and print the guests moved between the lists
+     */
+    private static void places() {
+        int numberOfPlaces;
+        try {
+            numberOfPlaces = Integer.parseInt(ask("Numarul actual de locuri este " + guestsList.getNumberOfPlaces() +
+                    ". Introduceti noul numar de locuri:").strip());
+        } catch (NumberFormatException e) {
+            numberOfPlaces = -1;
+        }
+        if (numberOfPlaces < 0) {
+            System.out.println("Numar de locuri invalid.");
+            return;
+        }
+        int moved = guestsList.setNumberOfPlaces(numberOfPlaces);
+        if (moved > 0) {
+            System.out.println(moved + " persoane au fost transferate de pe lista de asteptare pe lista de participanti.");
+        } else if (moved < 0) {
+            System.out.println(-moved + " persoane au fost mutate inapoi la inceputul listei de asteptare.");
+        }
+        System.out.println("Numarul de locuri ramase: " + guestsList.getNoAvailablePlaces());
+    }
+
     /**
      * Print the number of guests
      */
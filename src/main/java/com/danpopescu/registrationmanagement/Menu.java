@@ -9,13 +9,17 @@ public enum Menu {
     CHECK("Verifica daca o persoana este inscrisa la eveniment"),
     REMOVE("Sterge o persoana existenta din lista"),
     UPDATE("Actualizeaza detaliile unei persoane"),
+    IMPORT("Inscrie persoanele dintr-un fisier CSV"),
     GUESTS("Lista de persoane care participa la eveniment"),
     WAITLIST("Persoanele din lista de asteptare"),
     AVAILABLE("Numarul de locuri libere"),
+    PLACES("Modifica numarul de locuri al evenimentului"),
     GUESTS_NO("Numarul de persoane care participa la eveniment"),
     WAITLIST_NO("Numarul de persoane din lista de asteptare"),
     SUBSCRIBE_NO("Numarul total de persoane inscrise"),
     SEARCH("Cauta toti invitatii conform sirului de caractere introdus"),
+    SUGGEST("Primele persoane al caror nume, prenume sau email incepe cu sirul introdus"),
+    EVENT("Schimba evenimentul curent"),
     RESET("Sterge complet toate datele stocate"),
     QUIT("Inchide aplicatia");
 
@@ -0,0 +1,214 @@
+package com.danpopescu.registrationmanagement;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Typo tolerant index of the names of the guests, used by
+ * com.danpopescu.registrationmanagement.GuestsList.findSimilarNames().
+ *
+ * Every name is reduced to a phonetic key: the diacritics are dropped (so "Ştefănescu" and
+ * "Stefanescu" have the same key), doubled letters are collapsed and the letters that sound
+ * alike are replaced by a single one (e.g. "ph" and "f", "k" and "c", "y" and "i"). The distinct
+ * keys of the last names and of the first names are stored in two com.danpopescu.registrationmanagement.BkTree
+ * objects, so a lookup compares the searched names with a small part of the distinct names only,
+ * which are far fewer than the guests. Every last name maps the keys of its first names to the
+ * guests with that name.
+ *
+ * The distance of a guest is the number of edits of the last name plus those of the first name.
+ * Removing the last guest with a name leaves the name in its tree, unused; the trees are rebuilt
+ * once the unused names outnumber the ones still used.
+ */
+class NameIndex {
+
+    // the guests by the key of their last name, then by the key of their first name
+    private BkTree<Map<String, List<Guest>>> lastNames = new BkTree<>();
+    // the number of guests with each first name
+    private BkTree<int[]> firstNames = new BkTree<>();
+    // the keys of both trees without guests
+    private int unusedNames;
+
+    void add(Guest guest) {
+        String firstKey = key(guest.getFirstName());
+        int size = lastNames.size();
+        Map<String, List<Guest>> byFirstName = lastNames.computeIfAbsent(key(guest.getLastName()), HashMap::new);
+        if (byFirstName.isEmpty() && lastNames.size() == size) {
+            unusedNames--;
+        }
+        byFirstName.computeIfAbsent(firstKey, key -> new ArrayList<>(1)).add(guest);
+
+        size = firstNames.size();
+        int[] count = firstNames.computeIfAbsent(firstKey, () -> new int[1]);
+        if (count[0]++ == 0 && firstNames.size() == size) {
+            unusedNames--;
+        }
+    }
+
+    void remove(Guest guest) {
+        String firstKey = key(guest.getFirstName());
+        Map<String, List<Guest>> byFirstName = lastNames.get(key(guest.getLastName()));
+        List<Guest> guests = byFirstName == null ? null : byFirstName.get(firstKey);
+        if (guests == null || !removeSame(guests, guest)) {
+            return;
+        }
+        if (guests.isEmpty()) {
+            byFirstName.remove(firstKey);
+            if (byFirstName.isEmpty()) {
+                unusedNames++;
+            }
+        }
+        if (--firstNames.get(firstKey)[0] == 0) {
+            unusedNames++;
+        }
+        if (unusedNames > 64 && unusedNames > (lastNames.size() + firstNames.size()) / 2) {
+            rebuild();
+        }
+    }
+
+    private static boolean removeSame(List<Guest> guests, Guest guest) {
+        for (int i = 0; i < guests.size(); i++) {
+            if (guests.get(i) == guest) {
+                guests.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find the guests whose names are at most maxDistance edits away from the searched name
+     * @param maxDistance the largest total number of edits of the last and the first name
+     * @param visitor receives every guest found with its distance, in no particular order
+     */
+    void find(String firstName, String lastName, int maxDistance, GuestVisitor visitor) {
+        Map<String, Integer> firstDistances = new HashMap<>();
+        firstNames.search(key(firstName), maxDistance, (key, count, distance) -> {
+            if (count[0] > 0) {
+                firstDistances.put(key, distance);
+            }
+        });
+        if (firstDistances.isEmpty()) {
+            return;
+        }
+        lastNames.search(key(lastName), maxDistance, (lastKey, byFirstName, lastDistance) -> {
+            // walk the smaller of the two sets of first names and look up the other
+            if (byFirstName.size() <= firstDistances.size()) {
+                for (Map.Entry<String, List<Guest>> entry : byFirstName.entrySet()) {
+                    Integer firstDistance = firstDistances.get(entry.getKey());
+                    if (firstDistance != null && lastDistance + firstDistance <= maxDistance) {
+                        visitAll(entry.getValue(), lastDistance + firstDistance, visitor);
+                    }
+                }
+            } else {
+                for (Map.Entry<String, Integer> entry : firstDistances.entrySet()) {
+                    if (lastDistance + entry.getValue() <= maxDistance) {
+                        List<Guest> guests = byFirstName.get(entry.getKey());
+                        if (guests != null) {
+                            visitAll(guests, lastDistance + entry.getValue(), visitor);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private static void visitAll(List<Guest> guests, int distance, GuestVisitor visitor) {
+        for (Guest guest : guests) {
+            visitor.visit(guest, distance);
+        }
+    }
+
+    @FunctionalInterface
+    interface GuestVisitor {
+        void visit(Guest guest, int distance);
+    }
+
+    /**
+     * Rebuild the trees without the unused names
+     */
+    private void rebuild() {
+        List<Guest> guests = new ArrayList<>();
+        lastNames.forEachValue(byFirstName -> byFirstName.values().forEach(guests::addAll));
+        lastNames = new BkTree<>();
+        firstNames = new BkTree<>();
+        unusedNames = 0;
+        for (Guest guest : guests) {
+            add(guest);
+        }
+    }
+
+    /**
+     * The distance between a name and the key of another name, as used by the index
+     * @param key returned by key()
+     */
+    static int distance(String key, String name) {
+        String otherKey = key(name);
+        return BkTree.distance(key, otherKey, new int[BkTree.tableSize(key, otherKey)]);
+    }
+
+    /**
+     * Return the phonetic key of a name: lower case letters a-z only, without diacritics,
+     * doubled letters and the differences between letters that sound alike
+     */
+    static String key(String name) {
+        // the diacritics are split from their letters, unless the name is plain ASCII
+        String letters = isAscii(name) ? name : Normalizer.normalize(name, Normalizer.Form.NFD);
+        letters = letters.toLowerCase(Locale.ROOT);
+        StringBuilder key = new StringBuilder(letters.length());
+        char previous = 0;
+        for (int i = 0; i < letters.length(); i++) {
+            char c = letters.charAt(i);
+            if (c < 'a' || c > 'z') {
+                // accents, spaces and hyphens
+                continue;
+            }
+            char next = i + 1 < letters.length() ? letters.charAt(i + 1) : 0;
+            switch (c) {
+                case 'p' -> {
+                    if (next == 'h') {
+                        c = 'f';
+                        i++;
+                    }
+                }
+                case 't' -> {
+                    if (next == 'h') {
+                        i++;
+                    }
+                }
+                case 'c' -> {
+                    if (next == 'k') {
+                        i++;
+                    }
+                }
+                case 'k', 'q' -> c = 'c';
+                case 'y' -> c = 'i';
+                case 'w' -> c = 'v';
+                case 'x' -> {
+                    if (previous != 'c') {
+                        key.append('c');
+                        previous = 'c';
+                    }
+                    c = 's';
+                }
+            }
+            if (c != previous) {
+                key.append(c);
+                previous = c;
+            }
+        }
+        return key.toString();
+    }
+
+    private static boolean isAscii(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,60 @@
+package com.danpopescu.registrationmanagement;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pool of shared String instances for the names of the registered guests, used by
+ * com.danpopescu.registrationmanagement.GuestsList so that the guests with a common name don't
+ * each keep a copy. Every instance counts the guests using it, and it is dropped from the pool
+ * when the last of them is removed, so the pool only holds the names currently registered.
+ */
+class NamePool {
+
+    private static final class Entry {
+        final String value;
+        int references;
+
+        Entry(String value) {
+            this.value = value;
+        }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * Return the shared instance equal to a String, adding it if it is not there yet,
+     * and count one more use of it
+     * @param string to be shared, may be null
+     * @return the shared instance, or null for null
+     */
+    String share(String string) {
+        if (string == null) {
+            return null;
+        }
+        Entry entry = entries.computeIfAbsent(string, Entry::new);
+        entry.references++;
+        return entry.value;
+    }
+
+    /**
+     * Count one less use of a String returned by share(), and drop it once it is no longer used
+     * @param string returned by share(), may be null
+     */
+    void release(String string) {
+        if (string == null) {
+            return;
+        }
+        Entry entry = entries.get(string);
+        if (entry != null && --entry.references == 0) {
+            entries.remove(string);
+        }
+    }
+
+    /**
+     * @return the number of distinct Strings in the pool
+     */
+    int size() {
+        return entries.size();
+    }
+}
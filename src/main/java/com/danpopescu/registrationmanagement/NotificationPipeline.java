@@ -0,0 +1,222 @@
+package com.danpopescu.registrationmanagement;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes the changes of guests lists as com.danpopescu.registrationmanagement.GuestEvent objects, and
+ * hands them to the consumers (e.g. the com.danpopescu.registrationmanagement.PromotionNotifier) on a
+ * separate thread, so that sending notifications never slows down the operations of a list.
+ *
+ * A list publishes its changes once listener() is added to it. The events go through a bounded
+ * com.danpopescu.registrationmanagement.RingBuffer: publishing is a compare-and-set and never blocks,
+ * and when the consumers fall behind and the queue is full, the new events are dropped and counted.
+ * The dispatcher thread takes up to batchSize events at a time and hands the same batch to every
+ * consumer. The counters can be read through JMX after register().
+ */
+public class NotificationPipeline implements NotificationPipelineMXBean, Closeable {
+
+    // how long the dispatcher sleeps when the queue is empty, unless a producer wakes it up
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private final RingBuffer<GuestEvent> queue;
+    private final int batchSize;
+    private final List<GuestEventConsumer> consumers;
+    private final Thread dispatcher;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    // written by the dispatcher only
+    private volatile long delivered;
+    private volatile long batches;
+    private volatile long failures;
+    private volatile int maxQueueDepth;
+
+    private volatile boolean idle;
+    private volatile boolean closed;
+
+    /**
+     * Create the pipeline and start its dispatcher thread
+     * @param capacity of the queue, a power of two
+     * @param batchSize how many events are handed to the consumers at most at once
+     * @param consumers of the events, called one after the other for each batch
+     */
+    public NotificationPipeline(int capacity, int batchSize, List<GuestEventConsumer> consumers) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize should be positive: " + batchSize);
+        }
+        this.queue = new RingBuffer<>(capacity);
+        this.batchSize = batchSize;
+        this.consumers = List.copyOf(consumers);
+        this.dispatcher = new Thread(this::dispatch, "notification-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Return a listener that publishes the changes of a list
+     * @param eventId of the list, stored in the events; may be null
+     */
+    public GuestsListListener listener(String eventId) {
+        return new GuestsListListener() {
+            @Override
+            public void guestAdded(Guest guest, boolean waitListed) {
+                publish(new GuestEvent(eventId, waitListed ? GuestEvent.Type.WAITLISTED : GuestEvent.Type.REGISTERED,
+                        guest, null, null));
+            }
+
+            @Override
+            public void guestRemoved(Guest guest) {
+                publish(new GuestEvent(eventId, GuestEvent.Type.REMOVED, guest, null, null));
+            }
+
+            @Override
+            public void guestPromoted(Guest guest) {
+                publish(new GuestEvent(eventId, GuestEvent.Type.PROMOTED, guest, null, null));
+            }
+
+            @Override
+            public void guestUpdated(Guest guest, GuestField field, String oldValue) {
+                publish(new GuestEvent(eventId, GuestEvent.Type.UPDATED, guest, field, oldValue));
+            }
+
+            @Override
+            public void placesChanged(int numberOfPlaces, List<Guest> promoted, List<Guest> demoted) {
+                for (Guest guest : promoted) {
+                    publish(new GuestEvent(eventId, GuestEvent.Type.PROMOTED, guest, null, null));
+                }
+                for (Guest guest : demoted) {
+                    publish(new GuestEvent(eventId, GuestEvent.Type.DEMOTED, guest, null, null));
+                }
+            }
+        };
+    }
+
+    /**
+     * Add an event to the queue, without blocking
+     * @return false if the event was dropped because the queue is full or the pipeline is closed
+     */
+    boolean publish(GuestEvent event) {
+        if (closed || !queue.offer(event)) {
+            dropped.increment();
+            return false;
+        }
+        published.increment();
+        if (idle) {
+            LockSupport.unpark(dispatcher);
+        }
+        return true;
+    }
+
+    /**
+     * Publish the counters in the platform MBean server
+     * @return the name under which the counters were registered
+     */
+    public ObjectName register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("com.danpopescu.registrationmanagement:type=NotificationPipeline");
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+        server.registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Stop accepting events, and wait until the events already in the queue are delivered
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(dispatcher);
+        try {
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatch() {
+        List<GuestEvent> batch = new ArrayList<>(batchSize);
+        while (true) {
+            int depth = queue.size();
+            if (depth > maxQueueDepth) {
+                maxQueueDepth = depth;
+            }
+            if (queue.drainTo(batch, batchSize) > 0) {
+                deliver(batch);
+                batch.clear();
+            } else if (closed && queue.size() == 0) {
+                return;
+            } else if (closed) {
+                // a producer claimed a slot but hasn't published its event yet
+                Thread.onSpinWait();
+            } else {
+                idle = true;
+                if (queue.size() == 0) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                idle = false;
+            }
+        }
+    }
+
+    private void deliver(List<GuestEvent> batch) {
+        for (GuestEventConsumer consumer : consumers) {
+            try {
+                consumer.accept(batch);
+            } catch (Exception e) {
+                failures++;
+            }
+        }
+        delivered += batch.size();
+        batches++;
+    }
+
+    @Override
+    public long getPublished() {
+        return published.sum();
+    }
+
+    @Override
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public long getDelivered() {
+        return delivered;
+    }
+
+    @Override
+    public long getBatches() {
+        return batches;
+    }
+
+    @Override
+    public long getFailures() {
+        return failures;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    @Override
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    @Override
+    public int getCapacity() {
+        return queue.capacity();
+    }
+}
@@ -0,0 +1,45 @@
+package com.danpopescu.registrationmanagement;
+
+/**
+ * Management interface of com.danpopescu.registrationmanagement.NotificationPipeline,
+ * as seen from JMX clients such as jconsole or VisualVM
+ */
+public interface NotificationPipelineMXBean {
+
+    /**
+     * @return how many events were added to the queue
+     */
+    long getPublished();
+
+    /**
+     * @return how many events were dropped because the queue was full
+     */
+    long getDropped();
+
+    /**
+     * @return how many events were handed to the consumers
+     */
+    long getDelivered();
+
+    /**
+     * @return how many batches were handed to the consumers
+     */
+    long getBatches();
+
+    /**
+     * @return how many times a consumer failed on a batch
+     */
+    long getFailures();
+
+    /**
+     * @return the number of events waiting in the queue
+     */
+    int getQueueDepth();
+
+    /**
+     * @return the largest number of events that waited in the queue at once
+     */
+    int getMaxQueueDepth();
+
+    int getCapacity();
+}
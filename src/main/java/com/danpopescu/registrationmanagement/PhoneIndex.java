@@ -0,0 +1,136 @@
+package com.danpopescu.registrationmanagement;
+
+/**
+ * Index of the Guests registered for an event, keyed by phone number.
+ *
+ * The phone numbers are normalized and packed in a long by com.danpopescu.registrationmanagement.PhoneNumbers,
+ * so different ways of writing the same number find the same guests. The index is an open
+ * addressing hash table with linear probing: the packed numbers are kept in a long[] and the
+ * guests in a parallel array of entries (the Guest itself, or a GuestIndex.Bucket of the guests
+ * sharing a number), so a lookup neither boxes the key nor compares strings. The few phone numbers that can't be packed are kept in a case
+ * insensitive com.danpopescu.registrationmanagement.GuestIndex.
+ */
+class PhoneIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    // null marks a free slot
+    private Object[] buckets = new Object[INITIAL_CAPACITY];
+    private int size;
+    private final GuestIndex unpacked = GuestIndex.byPhone();
+
+    void add(Guest guest) {
+        long key = guest.phoneCode();
+        if (key < 0) {
+            unpacked.add(guest);
+            return;
+        }
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (buckets[i] != null && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (buckets[i] != null) {
+            buckets[i] = GuestIndex.add(buckets[i], guest);
+            return;
+        }
+        keys[i] = key;
+        buckets[i] = guest;
+        if (++size > keys.length / 2) {
+            resize(keys.length * 2);
+        }
+    }
+
+    /**
+     * Remove the given guest (compared by identity) from the index
+     * @param guest to be removed
+     */
+    void remove(Guest guest) {
+        long key = guest.phoneCode();
+        if (key < 0) {
+            unpacked.remove(guest);
+            return;
+        }
+        int i = find(key);
+        if (i < 0) {
+            return;
+        }
+        buckets[i] = GuestIndex.remove(buckets[i], guest);
+        if (buckets[i] == null) {
+            delete(i);
+        }
+    }
+
+    /**
+     * Return the guests with the given phone number
+     * @param phoneNumber in any of the formats accepted by PhoneNumbers
+     * @return the entry of the guests, read with GuestIndex.size() and get(), or null if no guest has this phone number
+     */
+    Object get(CharSequence phoneNumber) {
+        long key = PhoneNumbers.pack(phoneNumber);
+        if (key < 0) {
+            return unpacked.get(phoneNumber);
+        }
+        int i = find(key);
+        return i < 0 ? null : buckets[i];
+    }
+
+    void clear() {
+        keys = new long[INITIAL_CAPACITY];
+        buckets = new Object[INITIAL_CAPACITY];
+        size = 0;
+        unpacked.clear();
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); buckets[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Free a slot, moving back the following entries of the cluster that could no longer be found
+     */
+    private void delete(int i) {
+        int mask = keys.length - 1;
+        buckets[i] = null;
+        size--;
+        for (int j = (i + 1) & mask; buckets[j] != null; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                buckets[i] = buckets[j];
+                buckets[j] = null;
+                i = j;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldBuckets = buckets;
+        keys = new long[capacity];
+        buckets = new Object[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldBuckets[j] != null) {
+                int i = slot(oldKeys[j], mask);
+                while (buckets[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                buckets[i] = oldBuckets[j];
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,124 @@
+package com.danpopescu.registrationmanagement;
+
+/**
+ * Normalizes phone numbers to the E.164 format (+ followed by at most 15 digits) and packs
+ * them in a long, so that they can be compared and hashed as numbers.
+ *
+ * Spaces, dashes, dots, slashes and parentheses are ignored. A number starting with "00" is
+ * international, and a number starting with a single "0" is a national Romanian number, so
+ * "0733 386 463", "0040733386463" and "+40 733-386-463" are all packed as 40733386463.
+ * The country code of an E.164 number never starts with 0, so the packed value is unique.
+ */
+final class PhoneNumbers {
+
+    // country code of the national numbers (Romania)
+    static final int DEFAULT_COUNTRY_CODE = 40;
+
+    private static final int MAX_DIGITS = 15;
+    private static final String SEPARATORS = " -./()";
+    private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private PhoneNumbers() {
+    }
+
+    /**
+     * Pack a phone number, without allocating
+     * @param phone in any of the accepted formats
+     * @return the digits of the E.164 number as a long, or -1 if the phone number can't be normalized
+     */
+    static long pack(CharSequence phone) {
+        boolean plus = false;
+        int leadingZeros = 0;
+        int digits = 0;
+        long value = 0;
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (value == 0 && c == '0') {
+                    leadingZeros++;
+                } else if (++digits > MAX_DIGITS) {
+                    return -1;
+                } else {
+                    value = value * 10 + (c - '0');
+                }
+            } else if (c == '+' && !plus && value == 0 && leadingZeros == 0) {
+                plus = true;
+            } else if (SEPARATORS.indexOf(c) < 0) {
+                return -1;
+            }
+        }
+        if (digits == 0) {
+            return -1;
+        }
+        if (plus || leadingZeros == 2) {
+            return plus && leadingZeros > 0 ? -1 : value;
+        }
+        if (leadingZeros == 1) {
+            // national number: replace the 0 with the country code
+            if (digits + 2 > MAX_DIGITS) {
+                return -1;
+            }
+            long scale = 1;
+            for (int i = 0; i < digits; i++) {
+                scale *= 10;
+            }
+            return DEFAULT_COUNTRY_CODE * scale + value;
+        }
+        // no prefix: the digits already start with the country code
+        return leadingZeros == 0 ? value : -1;
+    }
+
+    /**
+     * Format a packed phone number
+     * @param packed returned by pack()
+     * @return the number in the E.164 format, e.g. +40733386463
+     */
+    static String format(long packed) {
+        return "+" + packed;
+    }
+
+    /**
+     * Check if a packed phone number, formatted by format(), contains a string, without allocating
+     * @param packed returned by pack()
+     * @param string to look for
+     * @return true if the formatted number contains the string
+     */
+    static boolean formatContains(long packed, String string) {
+        int length = 1 + digits(packed);
+        for (int start = 0; start + string.length() <= length; start++) {
+            int i = 0;
+            while (i < string.length() && formattedChar(packed, length, start + i) == string.charAt(i)) {
+                i++;
+            }
+            if (i == string.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int digits(long packed) {
+        int digits = 1;
+        while (digits < POWERS_OF_TEN.length && packed >= POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * @return the character at the given index of the formatted number of the given length
+     */
+    private static char formattedChar(long packed, int length, int index) {
+        if (index == 0) {
+            return '+';
+        }
+        return (char) ('0' + packed / POWERS_OF_TEN[length - 1 - index] % 10);
+    }
+}
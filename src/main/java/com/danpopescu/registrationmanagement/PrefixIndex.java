@@ -0,0 +1,107 @@
+package com.danpopescu.registrationmanagement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Sorted index from the case folded last names, first names and emails to the Guests having them,
+ * used by com.danpopescu.registrationmanagement.GuestsList.suggest().
+ *
+ * The keys starting with a prefix form a contiguous range of the sorted map, so the guests
+ * matching a prefix are found by a binary search for the first key and a walk of the range,
+ * which stops as soon as enough guests are found. A guest is stored once under every distinct
+ * key it has, in a bucket of GuestBuckets.
+ */
+class PrefixIndex {
+
+    private final TreeMap<String, Object> guests = new TreeMap<>();
+
+    void add(Guest guest) {
+        String lastName = guest.lastNameKey();
+        String firstName = guest.firstNameKey();
+        String email = guest.emailKey();
+        add(lastName, guest);
+        if (!firstName.equals(lastName)) {
+            add(firstName, guest);
+        }
+        if (!email.equals(lastName) && !email.equals(firstName)) {
+            add(email, guest);
+        }
+    }
+
+    void remove(Guest guest) {
+        String lastName = guest.lastNameKey();
+        String firstName = guest.firstNameKey();
+        String email = guest.emailKey();
+        remove(lastName, guest);
+        if (!firstName.equals(lastName)) {
+            remove(firstName, guest);
+        }
+        if (!email.equals(lastName) && !email.equals(firstName)) {
+            remove(email, guest);
+        }
+    }
+
+    private void add(String key, Guest guest) {
+        GuestBuckets.add(guests, key, guest);
+    }
+
+    private void remove(String key, Guest guest) {
+        GuestBuckets.remove(guests, key, guest);
+    }
+
+    /**
+     * Return the guests having a last name, first name or email that starts with a prefix
+     * @param foldedPrefix a case folded prefix
+     * @param limit the largest number of guests returned
+     * @return the guests in the order of their matching key (the guests with the same key
+     *         in no particular order), each guest once
+     */
+    @SuppressWarnings("unchecked")
+    List<Guest> withPrefix(String foldedPrefix, int limit) {
+        List<Guest> result = new ArrayList<>(Math.min(limit, 16));
+        // a guest may match by more than one field
+        Set<Guest> added = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<String, Object> entry : guests.tailMap(foldedPrefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(foldedPrefix)) {
+                // past the keys starting with the prefix, which sort together
+                break;
+            }
+            Object value = entry.getValue();
+            if (value instanceof Guest) {
+                if (added.add((Guest) value)) {
+                    result.add((Guest) value);
+                }
+            } else {
+                for (Guest guest : (List<Guest>) value) {
+                    if (result.size() < limit && added.add(guest)) {
+                        result.add(guest);
+                    }
+                }
+            }
+            if (result.size() >= limit) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the smallest key of a guest that starts with a prefix, the key the index sorts it by,
+     *         or null if no key starts with the prefix
+     */
+    static String sortKey(Guest guest, String foldedPrefix) {
+        String key = null;
+        for (String field : new String[]{guest.lastNameKey(), guest.firstNameKey(), guest.emailKey()}) {
+            if (field.startsWith(foldedPrefix) && (key == null || field.compareTo(key) < 0)) {
+                key = field;
+            }
+        }
+        return key;
+    }
+}
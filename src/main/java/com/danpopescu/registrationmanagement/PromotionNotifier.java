@@ -0,0 +1,41 @@
+package com.danpopescu.registrationmanagement;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Lets the guests moved from the waitlist to the guests list know that they got a place,
+ * by email and SMS.
+ *
+ * There is no mail or SMS gateway yet: the messages are written to a Writer (e.g. a log file),
+ * one per line, as "EMAIL address: text" and "SMS phone: text". The writer is flushed after
+ * every batch of events.
+ */
+public class PromotionNotifier implements GuestEventConsumer {
+
+    private final Writer out;
+
+    public PromotionNotifier(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void accept(List<GuestEvent> events) throws IOException {
+        boolean written = false;
+        for (GuestEvent event : events) {
+            if (event.getType() != GuestEvent.Type.PROMOTED) {
+                continue;
+            }
+            String text = "Buna ziua, " + event.getFirstName() + " " + event.getLastName() +
+                    "! S-a eliberat un loc si ati fost transferat pe lista de participanti" +
+                    (event.getEventId() == null ? "." : " la evenimentul " + event.getEventId() + ".");
+            out.write("EMAIL " + event.getEmail() + ": " + text + "\n");
+            out.write("SMS " + event.getPhoneNumber() + ": " + text + "\n");
+            written = true;
+        }
+        if (written) {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.danpopescu.registrationmanagement;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded, lock-free queue for many producers and a single consumer.
+ *
+ * The slots form a ring, and every slot has a sequence number telling whether it is free
+ * for the producer at a given position or holds an element for the consumer (the queue of
+ * Dmitry Vyukov). A producer claims a position with a compare-and-set on the tail, writes
+ * the element, and then publishes it by advancing the sequence of the slot. offer() never
+ * blocks: when the ring is full, it returns false.
+ */
+final class RingBuffer<E> {
+
+    private final E[] elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // written by the consumer only, read by others for size()
+    private volatile long head;
+
+    /**
+     * @param capacity a power of two
+     */
+    @SuppressWarnings("unchecked")
+    RingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity should be a power of two: " + capacity);
+        }
+        elements = (E[]) new Object[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        mask = capacity - 1;
+    }
+
+    /**
+     * Add an element, from any thread
+     * @return false if the queue is full
+     */
+    boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int slot = (int) position & mask;
+            long difference = sequences.get(slot) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[slot] = element;
+                    // publishes the element to the consumer
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // the slot still holds the element from one lap before
+                return false;
+            } else {
+                // another producer claimed this position
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Move the available elements to a list, from the consumer thread only
+     * @param into the list the elements are added to, in the order they were offered
+     * @param max how many elements are moved at most
+     * @return the number of elements moved
+     */
+    int drainTo(List<? super E> into, int max) {
+        long position = head;
+        int drained = 0;
+        while (drained < max) {
+            int slot = (int) position & mask;
+            if (sequences.get(slot) != position + 1) {
+                // empty, or the producer hasn't published the element yet
+                break;
+            }
+            into.add(elements[slot]);
+            elements[slot] = null;
+            // frees the slot for the producer one lap later
+            sequences.set(slot, position + elements.length);
+            position++;
+            drained++;
+        }
+        head = position;
+        return drained;
+    }
+
+    /**
+     * @return the number of elements in the queue; it may change at any time
+     */
+    int size() {
+        return (int) Math.max(0, Math.min(elements.length, tail.get() - head));
+    }
+
+    int capacity() {
+        return elements.length;
+    }
+}
@@ -0,0 +1,441 @@
+package com.danpopescu.registrationmanagement;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a script of commands, one per line, without asking anything. The fields of a line are
+ * separated by commas, and may be quoted as in the CSV files read by com.danpopescu.registrationmanagement.GuestsCsv:
+ *      add,nume,prenume,email,telefon
+ *      check|remove,nume,nume,prenume     check|remove,email,email     check|remove,telefon,telefon
+ *      update,<the key, as for check>,nume|prenume|email|telefon,valoare
+ *      search,sir
+ *      import,fisier.csv
+ *      guests | waitlist | available | guests_no | waitlist_no | subscribe_no
+ *      event,cod[,numar de locuri]
+ *      places,numar de locuri
+ * Blank lines and lines starting with '#' are skipped.
+ *
+ * Every command writes one line with its result (the code returned by GuestsList, or a number);
+ * guests, waitlist and search write the number of persons followed by one line per person.
+ * An invalid line writes "EROARE linia N: ..." and the script goes on.
+ *
+ * The lines are parsed by a separate thread while the commands run. The changes are saved
+ * once per batch: a batch ends after maxBatchCommands commands, after maxBatchTime, or when
+ * no more commands are available. The output of a batch is kept in memory and written only
+ * after its changes are saved, so a result that was written is never lost by a failed save.
+ */
+public class ScriptRunner {
+
+    // parsed commands handed to the executing thread at once
+    private static final int CHUNK_SIZE = 256;
+    private static final List<Command> END = List.of();
+    // characters of output buffer kept between batches
+    private static final int MAX_RETAINED_OUTPUT = 1 << 16;
+
+    private final EventRegistry registry;
+    private final Writer out;
+    private final int maxBatchCommands;
+    private final long maxBatchNanos;
+    private final BlockingQueue<List<Command>> queue = new ArrayBlockingQueue<>(64);
+    // the output of the commands run since the last flush
+    private final StringBuilder pending = new StringBuilder();
+
+    private volatile IOException readFailure;
+    private String eventId;
+    private List<Command> chunk = END;
+    private int position;
+    private boolean ended;
+
+    private long commands;
+    private long errors;
+    private long batches;
+
+    /**
+     * @param registry of the events
+     * @param eventId of the event the script starts on, or null if the script selects it with the event command
+     * @param out where the results are written, after the changes are saved; it is flushed after every batch
+     * @param maxBatchCommands how many commands are run at most before the changes are saved
+     * @param maxBatchTime how long commands are run at most before the changes are saved
+     */
+    public ScriptRunner(EventRegistry registry, String eventId, Writer out, int maxBatchCommands, Duration maxBatchTime) {
+        if (maxBatchCommands < 1) {
+            throw new IllegalArgumentException("maxBatchCommands should be positive: " + maxBatchCommands);
+        }
+        this.registry = registry;
+        this.eventId = eventId;
+        this.out = out;
+        this.maxBatchCommands = maxBatchCommands;
+        this.maxBatchNanos = maxBatchTime.toNanos();
+    }
+
+    /**
+     * Run all the commands of a script
+     * @param in the script; it is read until its end, but not closed
+     * @throws IOException if the script can't be read or the changes can't be saved
+     */
+    public void run(BufferedReader in) throws IOException {
+        Thread parser = new Thread(() -> parse(in), "script-parser");
+        parser.setDaemon(true);
+        parser.start();
+        try {
+            while (nextCommand(Long.MAX_VALUE)) {
+                Command command = chunk.get(position);
+                if (command.menu == Menu.EVENT) {
+                    position++;
+                    selectEvent(command);
+                } else if (eventId == null) {
+                    position++;
+                    commands++;
+                    error(command, "nu a fost selectat niciun eveniment");
+                } else if (!registry.exists(eventId)) {
+                    position++;
+                    commands++;
+                    error(command, "evenimentul " + eventId + " nu exista");
+                } else {
+                    runBatch();
+                }
+                flush();
+            }
+            if (readFailure != null) {
+                throw readFailure;
+            }
+        } finally {
+            parser.interrupt();
+        }
+    }
+
+    /**
+     * @return the number of commands run, including the invalid ones
+     */
+    public long getCommands() {
+        return commands;
+    }
+
+    /**
+     * @return the number of invalid commands
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the number of times the changes were saved
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * Run commands on the current event until the batch is full, its time is up or the next
+     * command selects another event, then save the changes
+     */
+    private void runBatch() throws IOException {
+        long deadline = System.nanoTime() + maxBatchNanos;
+        registry.withEvent(eventId, list -> {
+            int executed = 0;
+            do {
+                Command command = chunk.get(position);
+                if (command.menu == Menu.EVENT) {
+                    break;
+                }
+                position++;
+                execute(list, command);
+                executed++;
+            } while (executed < maxBatchCommands && deadline - System.nanoTime() > 0
+                    && nextCommand(deadline - System.nanoTime()));
+            return null;
+        });
+        batches++;
+    }
+
+    /**
+     * Make the next command available at chunk.get(position)
+     * @param timeoutNanos how long to wait for the parser
+     * @return false if the script ended or no command was parsed in time
+     */
+    private boolean nextCommand(long timeoutNanos) throws InterruptedIOException {
+        if (position < chunk.size()) {
+            return true;
+        }
+        if (ended) {
+            return false;
+        }
+        List<Command> next;
+        try {
+            next = timeoutNanos == Long.MAX_VALUE ? queue.take() : queue.poll(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the script");
+        }
+        if (next == null) {
+            return false;
+        }
+        if (next == END) {
+            ended = true;
+            return false;
+        }
+        chunk = next;
+        position = 0;
+        return true;
+    }
+
+    /**
+     * Read and parse the lines of the script, handing them to the executing thread in chunks.
+     * A chunk is handed over early when no more input is ready, so that an interactive
+     * script doesn't wait for a full chunk.
+     */
+    private void parse(BufferedReader in) {
+        List<Command> parsed = new ArrayList<>(CHUNK_SIZE);
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                parsed.add(Command.parse(line, lineNumber));
+                if (parsed.size() == CHUNK_SIZE || !in.ready()) {
+                    queue.put(parsed);
+                    parsed = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+        } catch (IOException e) {
+            readFailure = e;
+        } catch (InterruptedException e) {
+            // the executing thread stopped
+            return;
+        }
+        try {
+            if (!parsed.isEmpty()) {
+                queue.put(parsed);
+            }
+            queue.put(END);
+        } catch (InterruptedException e) {
+            // the executing thread stopped
+        }
+    }
+
+    private void selectEvent(Command command) throws IOException {
+        commands++;
+        if (command.error != null) {
+            error(command, command.error);
+            return;
+        }
+        String id = command.args[0];
+        try {
+            if (!registry.exists(id)) {
+                if (command.args.length < 2) {
+                    error(command, "evenimentul " + id + " nu exista");
+                    return;
+                }
+                registry.create(id, Integer.parseInt(command.args[1]));
+            }
+        } catch (IllegalArgumentException e) {
+            error(command, e.getMessage());
+            return;
+        }
+        eventId = id;
+        writeLine(id);
+    }
+
+    private void execute(GuestsList list, Command command) throws IOException {
+        commands++;
+        if (command.error != null) {
+            error(command, command.error);
+            return;
+        }
+        String[] args = command.args;
+        try {
+            switch (command.menu) {
+                case ADD -> writeLine(list.add(new Guest(args[1], args[0], args[2], args[3])));
+                case CHECK -> writeLine(switch (command.mode) {
+                    case BY_NAME -> list.checkByName(args[2], args[1]);
+                    case BY_EMAIL -> list.checkByEmail(args[1]);
+                    case BY_PHONE -> list.checkByPhone(args[1]);
+                });
+                case REMOVE -> writeLine(switch (command.mode) {
+                    case BY_NAME -> list.removeByName(args[2], args[1]);
+                    case BY_EMAIL -> list.removeByEmail(args[1]);
+                    case BY_PHONE -> list.removeByPhone(args[1]);
+                });
+                case UPDATE -> update(list, command);
+                case SEARCH -> writeGuests(list.search(args[0]));
+                case IMPORT -> importCsv(list, command);
+                case GUESTS -> writeGuests(list.getGuestsListView());
+                case WAITLIST -> writeGuests(list.getWaitListView());
+                case AVAILABLE -> writeLine(list.getNoAvailablePlaces());
+                case PLACES -> writeLine(list.setNumberOfPlaces(Integer.parseInt(args[0])));
+                case GUESTS_NO -> writeLine(list.getTotalNoParticipants());
+                case WAITLIST_NO -> writeLine(list.getTotalNoWaiting());
+                case SUBSCRIBE_NO -> writeLine(list.getTotalNoRegistered());
+                default -> error(command, "comanda nu poate fi folosita intr-un script");
+            }
+        } catch (IllegalArgumentException e) {
+            error(command, e.getMessage());
+        }
+    }
+
+    private void update(GuestsList list, Command command) throws IOException {
+        String[] args = command.args;
+        Optional<Guest> guest = switch (command.mode) {
+            case BY_NAME -> list.getByName(args[2], args[1]);
+            case BY_EMAIL -> list.getByEmail(args[1]);
+            case BY_PHONE -> list.getByPhone(args[1]);
+        };
+        int fieldIndex = args.length - 2;
+        boolean updated = guest.isPresent()
+                && list.update(guest.get(), Command.field(args[fieldIndex]), args[fieldIndex + 1]);
+        writeLine(updated ? 0 : -1);
+    }
+
+    private void importCsv(GuestsList list, Command command) throws IOException {
+        List<Guest> guests;
+        try {
+            guests = GuestsCsv.read(Path.of(command.args[0]));
+        } catch (IOException e) {
+            error(command, e.getMessage());
+            return;
+        }
+        int[] responses = list.addAll(guests);
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < responses.length; i++) {
+            line.append(i == 0 ? "" : ",").append(responses[i]);
+        }
+        writeLine(line.toString());
+    }
+
+    private void writeGuests(List<Guest> guests) throws IOException {
+        writeLine(guests.size());
+        for (Guest guest : guests) {
+            writeLine(guest.toString());
+        }
+    }
+
+    private void writeLine(int value) throws IOException {
+        writeLine(Integer.toString(value));
+    }
+
+    private void writeLine(String line) throws IOException {
+        pending.append(line).append('\n');
+    }
+
+    /**
+     * Write the output of the commands run since the last flush
+     */
+    private void flush() throws IOException {
+        out.append(pending);
+        out.flush();
+        pending.setLength(0);
+        if (pending.capacity() > MAX_RETAINED_OUTPUT) {
+            // don't keep the memory of a large listing for the rest of the script
+            pending.trimToSize();
+        }
+    }
+
+    private void error(Command command, String message) throws IOException {
+        errors++;
+        writeLine("EROARE linia " + command.lineNumber + ": " + message);
+    }
+
+    /**
+     * A parsed line of the script. The arguments are the fields that follow the command name;
+     * for check, remove and update the first argument is the search mode.
+     */
+    static final class Command {
+        final int lineNumber;
+        final Menu menu;
+        final SearchMode mode;
+        final String[] args;
+        // null if the line is valid
+        final String error;
+
+        private Command(int lineNumber, Menu menu, SearchMode mode, String[] args, String error) {
+            this.lineNumber = lineNumber;
+            this.menu = menu;
+            this.mode = mode;
+            this.args = args;
+            this.error = error;
+        }
+
+        static Command parse(String line, int lineNumber) {
+            List<String> fields;
+            try {
+                fields = GuestsCsv.parseLine(line, lineNumber);
+            } catch (IOException e) {
+                return invalid(lineNumber, "ghilimele neinchise");
+            }
+            Menu menu;
+            try {
+                menu = Menu.valueOf(fields.get(0).toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return invalid(lineNumber, "comanda necunoscuta " + fields.get(0));
+            }
+            String[] args = fields.subList(1, fields.size()).toArray(new String[0]);
+
+            SearchMode mode = null;
+            int expected;
+            switch (menu) {
+                case ADD -> expected = 4;
+                case CHECK, REMOVE, UPDATE -> {
+                    mode = args.length == 0 ? null : mode(args[0]);
+                    if (mode == null) {
+                        return invalid(lineNumber, "modul de cautare trebuie sa fie nume, email sau telefon");
+                    }
+                    expected = (mode == SearchMode.BY_NAME ? 3 : 2) + (menu == Menu.UPDATE ? 2 : 0);
+                    if (menu == Menu.UPDATE && args.length == expected && field(args[expected - 2]) == null) {
+                        return invalid(lineNumber, "campul trebuie sa fie nume, prenume, email sau telefon");
+                    }
+                }
+                case SEARCH, IMPORT, PLACES -> expected = 1;
+                case EVENT -> expected = args.length == 2 ? 2 : 1;
+                default -> expected = 0;
+            }
+            if (args.length != expected) {
+                return invalid(lineNumber, "sunt necesare " + expected + " argumente, dar au fost gasite " + args.length);
+            }
+            if (menu == Menu.EVENT && expected == 2 && !args[1].matches("\\d{1,9}")) {
+                return invalid(lineNumber, "numar de locuri invalid " + args[1]);
+            }
+            if (menu == Menu.PLACES && !args[0].matches("\\d{1,9}")) {
+                return invalid(lineNumber, "numar de locuri invalid " + args[0]);
+            }
+            return new Command(lineNumber, menu, mode, args, null);
+        }
+
+        private static Command invalid(int lineNumber, String error) {
+            return new Command(lineNumber, null, null, null, error);
+        }
+
+        private static SearchMode mode(String name) {
+            return switch (name.toLowerCase(Locale.ROOT)) {
+                case "nume" -> SearchMode.BY_NAME;
+                case "email" -> SearchMode.BY_EMAIL;
+                case "telefon" -> SearchMode.BY_PHONE;
+                default -> null;
+            };
+        }
+
+        static GuestField field(String name) {
+            return switch (name.toLowerCase(Locale.ROOT)) {
+                case "nume" -> GuestField.LAST_NAME;
+                case "prenume" -> GuestField.FIRST_NAME;
+                case "email" -> GuestField.EMAIL;
+                case "telefon" -> GuestField.PHONE_NUMBER;
+                default -> null;
+            };
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.danpopescu.registrationmanagement;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of a com.danpopescu.registrationmanagement.GuestsList.
+ *
+ * The file has the following layout (integers are big endian):
+ *      int     magic number "RMGL"
+ *      short   format version
+ *      int     number of places
+ *      int     size of the guests list
+ *      int     size of the waitlist
+ *      long    sequence number of the last journal record included in the snapshot
+ *      guests  for each guest on the guests list, then on the waitlist: last name, first name,
+ *              email and phone number, each as a varint length followed by its UTF-8 bytes
+ *      int     CRC32 of everything before it
+ * The file is read through a MappedByteBuffer, so restoring doesn't copy it to the heap first.
+ */
+final class Snapshot {
+
+    static final int MAGIC = 0x524D474C;
+    static final short VERSION = 1;
+
+    private static final int HEADER_SIZE = Integer.BYTES + Short.BYTES + 3 * Integer.BYTES + Long.BYTES;
+
+    final GuestsList guestsList;
+    final long sequence;
+
+    private Snapshot(GuestsList guestsList, long sequence) {
+        this.guestsList = guestsList;
+        this.sequence = sequence;
+    }
+
+    /**
+     * Write the list to a snapshot file, and force it to the disk before returning, so that
+     * the file can then be renamed over the previous snapshot
+     * @param path of the file, replaced if it exists
+     * @param guestsList to be written
+     * @param sequence of the last journal record included in the list
+     */
+    static void write(Path path, GuestsList guestsList, long sequence) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(
+                    new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), crc));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(guestsList.getNumberOfPlaces());
+            out.writeInt(guestsList.getTotalNoParticipants());
+            out.writeInt(guestsList.getTotalNoWaiting());
+            out.writeLong(sequence);
+            for (Guest guest : guestsList.getGuestsListView()) {
+                writeGuest(out, guest);
+            }
+            for (Guest guest : guestsList.getWaitListView()) {
+                writeGuest(out, guest);
+            }
+            // the checksum itself is not part of the checksum
+            int checksum = (int) crc.getValue();
+            out.writeInt(checksum);
+            out.flush();
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Read a snapshot file
+     * @param path of the file
+     * @return the restored list and the sequence number of its last journal record
+     * @throws IOException if the file can't be read, or it is not a valid snapshot
+     */
+    static Snapshot read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + Integer.BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid snapshot size " + size + ": " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().limit((int) size - Integer.BYTES));
+            if ((int) crc.getValue() != buffer.getInt((int) size - Integer.BYTES)) {
+                throw new IOException("Snapshot checksum mismatch: " + path);
+            }
+            buffer.limit((int) size - Integer.BYTES);
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot file: " + path);
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + path);
+            }
+            int numberOfPlaces = buffer.getInt();
+            int guestsCount = buffer.getInt();
+            int waitingCount = buffer.getInt();
+            long sequence = buffer.getLong();
+
+            try {
+                byte[] scratch = new byte[256];
+                List<Guest> guests = new ArrayList<>(guestsCount);
+                for (int i = 0; i < guestsCount; i++) {
+                    guests.add(readGuest(buffer, scratch));
+                }
+                List<Guest> waiting = new ArrayList<>(waitingCount);
+                for (int i = 0; i < waitingCount; i++) {
+                    waiting.add(readGuest(buffer, scratch));
+                }
+                return new Snapshot(GuestsList.restore(numberOfPlaces, guests, waiting), sequence);
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Truncated snapshot: " + path, e);
+            }
+        }
+    }
+
+    private static void writeGuest(DataOutputStream out, Guest guest) throws IOException {
+        writeString(out, guest.getLastName());
+        writeString(out, guest.getFirstName());
+        writeString(out, guest.getEmail());
+        writeString(out, guest.getPhoneNumber());
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length;
+        while ((length & ~0x7F) != 0) {
+            out.writeByte((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        out.writeByte(length);
+        out.write(bytes);
+    }
+
+    private static Guest readGuest(ByteBuffer buffer, byte[] scratch) throws IOException {
+        String lastName = readString(buffer, scratch);
+        String firstName = readString(buffer, scratch);
+        String email = readString(buffer, scratch);
+        String phoneNumber = readString(buffer, scratch);
+        return new Guest(firstName, lastName, email, phoneNumber);
+    }
+
+    private static String readString(ByteBuffer buffer, byte[] scratch) throws IOException {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift > 28) {
+                throw new IOException("Invalid string length in snapshot");
+            }
+            byte b = buffer.get();
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        if (length > buffer.remaining()) {
+            throw new IOException("Invalid string length in snapshot");
+        }
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,159 @@
+package com.danpopescu.registrationmanagement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Sorted index from one case folded key of the Guests to the Guests having it, used by the range
+ * queries of com.danpopescu.registrationmanagement.GuestsList. The names and emails are sorted in the
+ * order of Guest.BY_NAME_ORDER or BY_EMAIL_ORDER: String.compareTo() on case folded Strings compares
+ * them like String.CASE_INSENSITIVE_ORDER. The phone numbers are sorted in the E.164 format of
+ * PhoneNumbers, so that "0722 000 000" sorts with (and starts with the same prefix as) "+40722000000";
+ * a phone number that can't be normalized is sorted by its case folded text.
+ *
+ * A range of keys is a contiguous part of the sorted map, found by a binary search, so a query costs
+ * O(log n + k) for k guests returned. As in PrefixIndex, the guests having a key are stored in a bucket
+ * of GuestBuckets.
+ */
+class SortedIndex {
+
+    // separates the last name from the first name in the keys of the name index; it sorts before
+    // any other character, so a last name sorts before the longer last names starting with it
+    private static final char NAME_SEPARATOR = '\0';
+
+    private final Function<Guest, String> key;
+    private final TreeMap<String, Object> guests = new TreeMap<>();
+
+    private SortedIndex(Function<Guest, String> key) {
+        this.key = key;
+    }
+
+    /**
+     * @return an index sorted by last name, then by first name
+     */
+    static SortedIndex byName() {
+        return new SortedIndex(guest -> guest.lastNameKey() + NAME_SEPARATOR + guest.firstNameKey());
+    }
+
+    static SortedIndex byEmail() {
+        return new SortedIndex(Guest::emailKey);
+    }
+
+    static SortedIndex byPhone() {
+        return new SortedIndex(guest -> guest.phoneCode() >= 0 ? PhoneNumbers.format(guest.phoneCode()) : guest.phoneKey());
+    }
+
+    /**
+     * @return a new index sorted by the field used to search in the given mode
+     */
+    static SortedIndex of(SearchMode mode) {
+        return switch (mode) {
+            case BY_NAME -> byName();
+            case BY_EMAIL -> byEmail();
+            case BY_PHONE -> byPhone();
+        };
+    }
+
+    /**
+     * Convert a bound or a prefix of a range to the form of the keys of the index for a mode
+     * @param value the bound or the prefix, or null
+     * @return the case folded value, or for BY_PHONE the number in the E.164 format if it can be
+     *         normalized, e.g. "+4072" for "072"
+     */
+    static String key(SearchMode mode, String value) {
+        if (value == null) {
+            return null;
+        }
+        if (mode == SearchMode.BY_PHONE) {
+            long code = PhoneNumbers.pack(value);
+            if (code >= 0) {
+                return PhoneNumbers.format(code);
+            }
+        }
+        return CaseInsensitive.fold(value);
+    }
+
+    /**
+     * Check if a key is in a range, the same way as range() and withPrefix()
+     * @param foldedPrefix the case folded prefix of the key, or null to check the bounds instead
+     */
+    static boolean inRange(String key, String foldedFrom, String foldedTo, String foldedPrefix) {
+        if (foldedPrefix != null) {
+            return key.startsWith(foldedPrefix);
+        }
+        return (foldedFrom == null || key.compareTo(foldedFrom) >= 0) && (foldedTo == null || key.compareTo(foldedTo) < 0);
+    }
+
+    /**
+     * @return the key a guest is sorted by in this index
+     */
+    String keyOf(Guest guest) {
+        return key.apply(guest);
+    }
+
+    void add(Guest guest) {
+        GuestBuckets.add(guests, key.apply(guest), guest);
+    }
+
+    void remove(Guest guest) {
+        GuestBuckets.remove(guests, key.apply(guest), guest);
+    }
+
+    /**
+     * Return the guests whose key is in a range
+     * @param foldedFrom the case folded lowest key, included, or null for no lower bound
+     * @param foldedTo the case folded highest key, excluded, or null for no upper bound
+     * @param limit the largest number of guests returned
+     * @return the guests in the order of their keys
+     */
+    List<Guest> range(String foldedFrom, String foldedTo, int limit) {
+        NavigableMap<String, Object> range = guests;
+        if (foldedFrom != null && foldedTo != null) {
+            if (foldedFrom.compareTo(foldedTo) >= 0) {
+                return new ArrayList<>();
+            }
+            range = guests.subMap(foldedFrom, true, foldedTo, false);
+        } else if (foldedFrom != null) {
+            range = guests.tailMap(foldedFrom, true);
+        } else if (foldedTo != null) {
+            range = guests.headMap(foldedTo, false);
+        }
+        return collect(range, null, limit);
+    }
+
+    /**
+     * Return the guests whose key starts with a prefix
+     * @param foldedPrefix a case folded prefix
+     * @param limit the largest number of guests returned
+     * @return the guests in the order of their keys
+     */
+    List<Guest> withPrefix(String foldedPrefix, int limit) {
+        return collect(guests.tailMap(foldedPrefix, true), foldedPrefix, limit);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Guest> collect(NavigableMap<String, Object> range, String foldedPrefix, int limit) {
+        List<Guest> result = new ArrayList<>(Math.min(limit, 16));
+        for (Map.Entry<String, Object> entry : range.entrySet()) {
+            if (result.size() >= limit || foldedPrefix != null && !entry.getKey().startsWith(foldedPrefix)) {
+                // past the keys starting with the prefix, which sort together
+                break;
+            }
+            Object value = entry.getValue();
+            if (value instanceof Guest) {
+                result.add((Guest) value);
+            } else {
+                for (Guest guest : (List<Guest>) value) {
+                    if (result.size() < limit) {
+                        result.add(guest);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
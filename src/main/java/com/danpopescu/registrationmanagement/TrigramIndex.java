@@ -0,0 +1,185 @@
+package com.danpopescu.registrationmanagement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index from the trigrams (substrings of three characters) of the case folded
+ * first name, last name, email and phone number to the Guests containing them.
+ *
+ * Any string of at least three characters that is contained in a field contains all the
+ * trigrams of that field, so the guests matching a search are among the guests found
+ * in the posting lists of every trigram of the searched string. The index is used to
+ * narrow down the candidates of com.danpopescu.registrationmanagement.GuestsList.search(),
+ * which still verifies every candidate with Guest.anyFieldContains().
+ */
+class TrigramIndex {
+
+    static final int GRAM_LENGTH = 3;
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    void add(Guest guest) {
+        for (long trigram : trigramsOf(guest)) {
+            postings.computeIfAbsent(trigram, key -> new Postings()).add(guest);
+        }
+    }
+
+    void remove(Guest guest) {
+        for (long trigram : trigramsOf(guest)) {
+            Postings guests = postings.get(trigram);
+            if (guests != null && guests.remove(guest) && guests.size == 0) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    void clear() {
+        postings.clear();
+    }
+
+    /**
+     * Return the guests that contain every trigram of the searched string
+     * @param foldedString a case folded string with at least GRAM_LENGTH characters
+     * @return the candidate guests, in no particular order
+     */
+    List<Guest> candidates(String foldedString) {
+        long[] trigrams = distinctTrigrams(foldedString);
+        Postings[] lists = new Postings[trigrams.length];
+        for (int i = 0; i < trigrams.length; i++) {
+            lists[i] = postings.get(trigrams[i]);
+            if (lists[i] == null) {
+                return new ArrayList<>();
+            }
+        }
+        // walk the shortest posting list and probe the others
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+        List<Guest> candidates = new ArrayList<>();
+        for (Guest guest : lists[0].table) {
+            if (guest == null) {
+                continue;
+            }
+            boolean inAll = true;
+            for (int i = 1; i < lists.length && inAll; i++) {
+                inAll = lists[i].contains(guest);
+            }
+            if (inAll) {
+                candidates.add(guest);
+            }
+        }
+        return candidates;
+    }
+
+    private static long[] trigramsOf(Guest guest) {
+        String fields = guest.firstNameKey() + '\u0000' + guest.lastNameKey() + '\u0000'
+                + guest.emailKey() + '\u0000' + guest.phoneKey();
+        return distinctTrigrams(fields);
+    }
+
+    /**
+     * Return the distinct trigrams of a string, skipping the ones crossing a '\0' field separator
+     */
+    private static long[] distinctTrigrams(String string) {
+        int count = Math.max(0, string.length() - GRAM_LENGTH + 1);
+        long[] trigrams = new long[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            char c0 = string.charAt(i);
+            char c1 = string.charAt(i + 1);
+            char c2 = string.charAt(i + 2);
+            if (c0 != '\u0000' && c1 != '\u0000' && c2 != '\u0000') {
+                trigrams[size++] = ((long) c0 << 32) | ((long) c1 << 16) | c2;
+            }
+        }
+        Arrays.sort(trigrams, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || trigrams[distinct - 1] != trigrams[i]) {
+                trigrams[distinct++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, distinct);
+    }
+
+    /**
+     * A set of guests compared by identity, stored in an open addressing table with linear probing
+     */
+    private static final class Postings {
+        private Guest[] table = new Guest[4];
+        private int size;
+
+        void add(Guest guest) {
+            if ((size + 1) * 4 > table.length * 3) {
+                resize(table.length * 2);
+            }
+            int slot = slot(guest, table.length);
+            while (table[slot] != null) {
+                if (table[slot] == guest) {
+                    return;
+                }
+                slot = (slot + 1) & (table.length - 1);
+            }
+            table[slot] = guest;
+            size++;
+        }
+
+        boolean contains(Guest guest) {
+            int slot = slot(guest, table.length);
+            while (table[slot] != null) {
+                if (table[slot] == guest) {
+                    return true;
+                }
+                slot = (slot + 1) & (table.length - 1);
+            }
+            return false;
+        }
+
+        boolean remove(Guest guest) {
+            int mask = table.length - 1;
+            int slot = slot(guest, table.length);
+            while (table[slot] != guest) {
+                if (table[slot] == null) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = null;
+            size--;
+            // shift back the following entries of the cluster so that probing still finds them
+            int next = (slot + 1) & mask;
+            while (table[next] != null) {
+                int home = slot(table[next], table.length);
+                if (((next - home) & mask) >= ((next - slot) & mask)) {
+                    table[slot] = table[next];
+                    table[next] = null;
+                    slot = next;
+                }
+                next = (next + 1) & mask;
+            }
+            return true;
+        }
+
+        private void resize(int capacity) {
+            Guest[] old = table;
+            table = new Guest[capacity];
+            for (Guest guest : old) {
+                if (guest != null) {
+                    int slot = slot(guest, capacity);
+                    while (table[slot] != null) {
+                        slot = (slot + 1) & (capacity - 1);
+                    }
+                    table[slot] = guest;
+                }
+            }
+        }
+
+        private static int slot(Guest guest, int length) {
+            int hash = System.identityHashCode(guest);
+            return (hash ^ (hash >>> 16)) & (length - 1);
+        }
+    }
+}
@@ -0,0 +1,607 @@
+package com.danpopescu.registrationmanagement;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * The end of a long waitlist, kept in files instead of memory, used by
+ * com.danpopescu.registrationmanagement.GuestsList.enableWaitListSpill().
+ *
+ * The guests are appended to segment files of segmentSize guests each, and the tail is consumed from
+ * its oldest segment, which pageIn() reads back and deletes. A guest is identified by its segment and
+ * its ordinal in the segment. The files are append-only, except for one byte per record that marks an
+ * old version of an updated guest: the new version is appended to the same segment, with the same ordinal.
+ * The removed guests are only marked in a bit set of their segment, so a segment costs a few dozen bytes
+ * of memory plus one bit per guest, and it is deleted once all its guests are gone.
+ *
+ * The guests are found by name, email and phone number through a key index in another file: an open
+ * addressing hash table of 16 byte slots, each holding the hash of a key, the segment and the offset of
+ * the record. A slot is never changed once written: the record found through a slot is read and compared
+ * with the searched key, so the slots of removed, updated or paged in guests are simply skipped, and they
+ * are dropped when the table is rebuilt (once it is half full) if their segment was deleted.
+ *
+ * The I/O errors are thrown as UncheckedIOException, since the methods of GuestsList don't throw IOException.
+ */
+final class WaitListTail implements Closeable, Iterable<Guest> {
+
+    // the kinds of keys in the index
+    private static final int NAME = 1;
+    private static final int EMAIL = 2;
+    private static final int PHONE_CODE = 3;
+    private static final int PHONE_TEXT = 4;
+
+    private static final int SLOT_SIZE = 16;
+    private static final int MIN_SLOTS = 1 << 12;
+    // the segments whose files are kept open, besides the one being appended to
+    private static final int OPEN_FILES = 8;
+
+    // flag of a record: the current version of the guest, or an old one
+    private static final byte CURRENT = 0;
+    private static final byte SUPERSEDED = 1;
+
+    private final Path directory;
+    private final int segmentSize;
+    // by id, which grows with every new segment, so the oldest segment comes first
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private final Map<Integer, FileChannel> openFiles = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, FileChannel> eldest) {
+            if (size() <= OPEN_FILES) {
+                return false;
+            }
+            closeQuietly(eldest.getValue());
+            return true;
+        }
+    };
+    private int nextSegmentId;
+    private int size;
+    private int modCount;
+
+    private Path indexFile;
+    private FileChannel index;
+    private long slots;
+    private long usedSlots;
+    private int indexVersion;
+    private final ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE);
+
+    /**
+     * Create an empty tail
+     * @param directory an empty directory for the files of the tail, deleted by close()
+     * @param segmentSize the number of guests in a segment, the unit paged in by pageIn()
+     */
+    WaitListTail(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < 1) {
+            throw new IllegalArgumentException("segmentSize should be positive: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        createIndex(MIN_SLOTS);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the number of guests that the next pageIn() returns
+     */
+    int firstSegmentSize() {
+        return segments.isEmpty() ? 0 : segments.firstEntry().getValue().live;
+    }
+
+    /**
+     * A guest found in the tail
+     */
+    static final class Match {
+        final Guest guest;
+        private final Segment segment;
+        private final int ordinal;
+        private final long offset;
+
+        private Match(Guest guest, Segment segment, int ordinal, long offset) {
+            this.guest = guest;
+            this.segment = segment;
+            this.ordinal = ordinal;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Add a guest at the end of the tail
+     */
+    void append(Guest guest) {
+        Segment segment = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        if (segment == null || segment.count == segmentSize) {
+            segment = newSegment(nextSegmentId++);
+            segments.put(segment.id, segment);
+        }
+        write(segment, segment.count++, guest);
+        segment.live++;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Remove the oldest segment and return its guests
+     * @return the guests, in list order
+     */
+    List<Guest> pageIn() {
+        if (segments.isEmpty()) {
+            return List.of();
+        }
+        Segment segment = segments.firstEntry().getValue();
+        List<Guest> guests = new ArrayList<>(segment.live);
+        for (Guest guest : read(segment)) {
+            if (guest != null) {
+                guests.add(guest);
+            }
+        }
+        size -= segment.live;
+        delete(segment);
+        modCount++;
+        return guests;
+    }
+
+    /**
+     * Remove a guest found by one of the find methods
+     */
+    void remove(Match match) {
+        match.segment.gone.set(match.ordinal);
+        match.segment.live--;
+        size--;
+        modCount++;
+        if (match.segment.live == 0) {
+            delete(match.segment);
+        }
+    }
+
+    /**
+     * Replace a guest found by one of the find methods with a new version, keeping its place
+     * @param updated the fields of the guest after the update
+     */
+    void update(Match match, Guest updated) {
+        try {
+            channel(match.segment).write(ByteBuffer.wrap(new byte[]{SUPERSEDED}), match.offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        write(match.segment, match.ordinal, updated);
+        modCount++;
+    }
+
+    /**
+     * @return the 0-based position of a guest found by one of the find methods in the tail
+     */
+    int positionOf(Match match) {
+        int position = 0;
+        for (Segment segment : segments.headMap(match.segment.id).values()) {
+            position += segment.live;
+        }
+        return position + match.ordinal - match.segment.gone.get(0, match.ordinal).cardinality();
+    }
+
+    /**
+     * Find the first guest in the tail with the given name, in any case
+     * @return the guest, or null if there is none
+     */
+    Match findByName(CharSequence firstName, CharSequence lastName) {
+        return find(NAME, CaseInsensitive.hash(lastName) * 31L + CaseInsensitive.hash(firstName),
+                guest -> CaseInsensitive.equals(guest.lastNameKey(), lastName)
+                        && CaseInsensitive.equals(guest.firstNameKey(), firstName));
+    }
+
+    /**
+     * Find the first guest in the tail with the given email, in any case
+     * @return the guest, or null if there is none
+     */
+    Match findByEmail(CharSequence email) {
+        return find(EMAIL, CaseInsensitive.hash(email), guest -> CaseInsensitive.equals(guest.emailKey(), email));
+    }
+
+    /**
+     * Find the first guest in the tail with the given phone number, normalized as by PhoneNumbers
+     * @return the guest, or null if there is none
+     */
+    Match findByPhone(CharSequence phoneNumber) {
+        long code = PhoneNumbers.pack(phoneNumber);
+        if (code >= 0) {
+            return find(PHONE_CODE, code, guest -> guest.phoneCode() == code);
+        }
+        return find(PHONE_TEXT, CaseInsensitive.hash(phoneNumber),
+                guest -> guest.phoneCode() < 0 && CaseInsensitive.equals(guest.phoneKey(), phoneNumber));
+    }
+
+    /**
+     * Find the guest in the tail equal to the given one (all the fields match)
+     * @return the guest, or null if there is none
+     */
+    Match findEqual(Guest guest) {
+        return find(EMAIL, guest.emailKey().hashCode(), guest::equals);
+    }
+
+    /**
+     * Return the guests from a position of the tail
+     * @param offset 0-based position in the tail of the first guest
+     * @param limit the largest number of guests returned
+     */
+    List<Guest> page(int offset, int limit) {
+        List<Guest> page = new ArrayList<>(Math.max(0, Math.min(limit, size - offset)));
+        int skipped = 0;
+        for (Segment segment : segments.values()) {
+            if (page.size() >= limit) {
+                break;
+            }
+            if (skipped + segment.live <= offset) {
+                // the whole segment is before the page
+                skipped += segment.live;
+                continue;
+            }
+            for (Guest guest : read(segment)) {
+                if (guest == null) {
+                    continue;
+                }
+                if (skipped < offset) {
+                    skipped++;
+                } else if (page.size() < limit) {
+                    page.add(guest);
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Return the guests of the tail matching a condition
+     * @return the guests, in list order
+     */
+    List<Guest> filter(Predicate<Guest> condition) {
+        List<Guest> found = new ArrayList<>();
+        for (Guest guest : this) {
+            if (condition.test(guest)) {
+                found.add(guest);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Iterate the guests in list order, reading one segment at a time. The iterator fails fast if
+     * the tail is changed while it is in use.
+     */
+    @Override
+    public Iterator<Guest> iterator() {
+        return new Iterator<>() {
+            private final int expectedModCount = modCount;
+            private final Iterator<Segment> remaining = new ArrayList<>(segments.values()).iterator();
+            private Guest[] current = new Guest[0];
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                while (true) {
+                    while (index < current.length && current[index] == null) {
+                        index++;
+                    }
+                    if (index < current.length) {
+                        return true;
+                    }
+                    if (!remaining.hasNext()) {
+                        return false;
+                    }
+                    if (modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    current = read(remaining.next());
+                    index = 0;
+                }
+            }
+
+            @Override
+            public Guest next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current[index++];
+            }
+        };
+    }
+
+    /**
+     * Delete the files of the tail
+     */
+    @Override
+    public void close() throws IOException {
+        for (FileChannel channel : openFiles.values()) {
+            channel.close();
+        }
+        openFiles.clear();
+        for (Segment segment : segments.values()) {
+            Files.deleteIfExists(segment.file);
+        }
+        segments.clear();
+        size = 0;
+        index.close();
+        Files.deleteIfExists(indexFile);
+        Files.deleteIfExists(directory);
+    }
+
+    private static final class Segment {
+        final int id;
+        final Path file;
+        // the ordinals given so far, and the guests not removed
+        int count;
+        int live;
+        long end;
+        final BitSet gone = new BitSet();
+
+        Segment(int id, Path file) {
+            this.id = id;
+            this.file = file;
+        }
+    }
+
+    private Segment newSegment(int id) {
+        return new Segment(id, directory.resolve("segment-" + id));
+    }
+
+    /**
+     * Append a record to a segment and add its keys to the index
+     */
+    private void write(Segment segment, int ordinal, Guest guest) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(CURRENT);
+            out.writeInt(ordinal);
+            out.writeUTF(guest.getLastName());
+            out.writeUTF(guest.getFirstName());
+            out.writeUTF(guest.getEmail());
+            out.writeUTF(guest.getPhoneNumber());
+            long offset = segment.end;
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            FileChannel channel = channel(segment);
+            while (buffer.hasRemaining()) {
+                segment.end += channel.write(buffer, segment.end);
+            }
+            addKey(NAME, guest.lastNameKey().hashCode() * 31L + guest.firstNameKey().hashCode(), segment.id, offset);
+            addKey(EMAIL, guest.emailKey().hashCode(), segment.id, offset);
+            if (guest.phoneCode() >= 0) {
+                addKey(PHONE_CODE, guest.phoneCode(), segment.id, offset);
+            } else {
+                addKey(PHONE_TEXT, guest.phoneKey().hashCode(), segment.id, offset);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Read the current guests of a segment
+     * @return the guests by ordinal, null for the removed ones
+     */
+    private Guest[] read(Segment segment) {
+        Guest[] guests = new Guest[segment.count];
+        try {
+            ByteBuffer content = ByteBuffer.allocate((int) segment.end);
+            FileChannel channel = channel(segment);
+            while (content.hasRemaining() && channel.read(content, content.position()) >= 0) {
+                // read until the whole segment is in the buffer
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(content.array(), 0, content.position()));
+            while (in.available() > 0) {
+                byte flag = in.readByte();
+                int ordinal = in.readInt();
+                Guest guest = readGuest(in);
+                // an updated guest has a later record with the same ordinal
+                if (flag == CURRENT && !segment.gone.get(ordinal)) {
+                    guests[ordinal] = guest;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return guests;
+    }
+
+    /**
+     * Read the record at an offset of a segment
+     * @return the guest, or null if the record is an old version or the guest was removed
+     */
+    private Match readRecord(Segment segment, long offset) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel(segment).position(offset)), 256));
+        byte flag = in.readByte();
+        int ordinal = in.readInt();
+        if (flag != CURRENT || segment.gone.get(ordinal)) {
+            return null;
+        }
+        return new Match(readGuest(in), segment, ordinal, offset);
+    }
+
+    private static Guest readGuest(DataInputStream in) throws IOException {
+        String lastName = in.readUTF();
+        String firstName = in.readUTF();
+        String email = in.readUTF();
+        String phoneNumber = in.readUTF();
+        return new Guest(firstName, lastName, email, phoneNumber);
+    }
+
+    private void delete(Segment segment) {
+        segments.remove(segment.id);
+        FileChannel channel = openFiles.remove(segment.id);
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+            Files.deleteIfExists(segment.file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private FileChannel channel(Segment segment) throws IOException {
+        FileChannel channel = openFiles.get(segment.id);
+        if (channel == null) {
+            channel = FileChannel.open(segment.file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            openFiles.put(segment.id, channel);
+        }
+        return channel;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // only read through this channel from now on, or already written
+        }
+    }
+
+    /**
+     * Find the first current guest matching a key
+     */
+    private Match find(int kind, long hash, Predicate<Guest> matches) {
+        long key = slotKey(kind, hash);
+        Match first = null;
+        try {
+            for (long i = key & (slots - 1); ; i = (i + 1) & (slots - 1)) {
+                readSlot(i);
+                long slotKey = slot.getLong(0);
+                if (slotKey == 0) {
+                    return first;
+                }
+                if (slotKey != key) {
+                    continue;
+                }
+                Segment segment = segments.get(slot.getInt(8));
+                if (segment == null) {
+                    continue;
+                }
+                Match match = readRecord(segment, slot.getInt(12) & 0xFFFFFFFFL);
+                if (match != null && matches.test(match.guest) && (first == null || first.segment.id > segment.id
+                        || first.segment == segment && first.ordinal > match.ordinal)) {
+                    first = match;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void addKey(int kind, long hash, int segmentId, long offset) throws IOException {
+        if (usedSlots + 1 > slots / 2) {
+            rebuildIndex();
+        }
+        putSlot(slotKey(kind, hash), segmentId, offset);
+    }
+
+    private void putSlot(long key, int segmentId, long offset) throws IOException {
+        long i = key & (slots - 1);
+        while (true) {
+            readSlot(i);
+            if (slot.getLong(0) == 0) {
+                break;
+            }
+            i = (i + 1) & (slots - 1);
+        }
+        slot.clear();
+        slot.putLong(key).putInt(segmentId).putInt((int) offset).flip();
+        index.write(slot, i * SLOT_SIZE);
+        usedSlots++;
+    }
+
+    private void readSlot(long i) throws IOException {
+        readSlots(index, slot, i * SLOT_SIZE);
+    }
+
+    private void createIndex(long slots) throws IOException {
+        indexFile = directory.resolve("keys-" + indexVersion++);
+        index = FileChannel.open(indexFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.SPARSE);
+        this.slots = slots;
+        this.usedSlots = 0;
+    }
+
+    /**
+     * Copy the slots of the segments still present to a new table, at most a quarter full
+     */
+    private void rebuildIndex() throws IOException {
+        FileChannel old = index;
+        Path oldFile = indexFile;
+        long oldSlots = slots;
+        ByteBuffer buffer = ByteBuffer.allocate(SLOT_SIZE * 4096);
+        long kept = 0;
+        for (long position = 0; position < oldSlots * SLOT_SIZE; position += buffer.capacity()) {
+            readSlots(old, buffer, position);
+            while (buffer.hasRemaining()) {
+                long key = buffer.getLong();
+                int segmentId = buffer.getInt();
+                buffer.getInt();
+                if (key != 0 && segments.containsKey(segmentId)) {
+                    kept++;
+                }
+            }
+        }
+        createIndex(Math.max(MIN_SLOTS, Long.highestOneBit(kept + 1) * 4));
+        for (long position = 0; position < oldSlots * SLOT_SIZE; position += buffer.capacity()) {
+            readSlots(old, buffer, position);
+            while (buffer.hasRemaining()) {
+                long key = buffer.getLong();
+                int segmentId = buffer.getInt();
+                long offset = buffer.getInt() & 0xFFFFFFFFL;
+                if (key != 0 && segments.containsKey(segmentId)) {
+                    putSlot(key, segmentId, offset);
+                }
+            }
+        }
+        old.close();
+        Files.delete(oldFile);
+    }
+
+    /**
+     * Fill a buffer with the slots from a position of the index, the missing part of a sparse file as free slots
+     */
+    private static void readSlots(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+            // read until the buffer is full or the end of the file
+        }
+        while (buffer.hasRemaining()) {
+            buffer.put((byte) 0);
+        }
+        buffer.flip();
+    }
+
+    private static long slotKey(int kind, long hash) {
+        long key = (hash + kind * 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+        key ^= key >>> 31;
+        // 0 marks a free slot
+        return key == 0 ? 1 : key;
+    }
+}
@@ -0,0 +1,210 @@
+package com.danpopescu.registrationmanagement;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentGuestsListTest {
+
+    private static final int THREADS = 8;
+
+    private static Guest guest(int i) {
+        return new Guest("First" + i, "Last" + i, "guest" + i + "@gmail.com", "+40700" + String.format("%06d", i));
+    }
+
+    /**
+     * Run the task on THREADS threads started at the same time and wait for all of them
+     */
+    private static void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.run(thread);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    private interface ThreadTask {
+        void run(int thread) throws Exception;
+    }
+
+    private static void assertInvariants(ConcurrentGuestsList list) {
+        List<Guest> guests = list.getGuestsList();
+        List<Guest> waiting = list.getWaitList();
+        Set<Guest> all = new HashSet<>(guests);
+        all.addAll(waiting);
+        Assertions.assertAll(
+                () -> assertEquals(guests.size() + waiting.size(), all.size(),
+                        "A guest should be registered only once"),
+                () -> assertTrue(guests.size() <= list.getNumberOfPlaces(),
+                        "No more than numberOfPlaces guests should get a place"),
+                () -> assertTrue(waiting.isEmpty() || guests.size() == list.getNumberOfPlaces(),
+                        "Nobody should wait while there are free places"),
+                () -> assertEquals(guests.size(), list.getTotalNoParticipants()),
+                () -> assertEquals(waiting.size(), list.getTotalNoWaiting())
+        );
+    }
+
+    @Test
+    void lookupsByPhone_ShouldMatchGuestsList_ForEveryFormatOfTheNumber() {
+        ConcurrentGuestsList concurrent = new ConcurrentGuestsList(1);
+        GuestsList guestsList = new GuestsList(1);
+        Guest guest = new Guest("Vali", "Ionescu", "vali@gmail.com", "+40733386463");
+        Guest unpacked = new Guest("Alex", "Poiana", "alex@gmail.com", "interior 12");
+        concurrent.add(guest);
+        guestsList.add(guest);
+        concurrent.add(unpacked);
+        guestsList.add(unpacked);
+
+        for (String phone : List.of("+40733386463", "0733386463", "0040 733 386 463", "INTERIOR 12", "0733386464")) {
+            assertEquals(guestsList.checkByPhone(phone), concurrent.checkByPhone(phone), phone);
+            assertEquals(guestsList.getByPhone(phone), concurrent.getByPhone(phone), phone);
+        }
+        assertEquals(0, concurrent.checkByPhone("0733386463"));
+        assertEquals(1, concurrent.removeByPhone("0733386463"));
+        assertEquals(-1, concurrent.checkByPhone("+40733386463"));
+    }
+
+    @Test
+    void add_ShouldRegisterEveryGuestOnce_WhenAddedConcurrently() throws Exception {
+        ConcurrentGuestsList list = new ConcurrentGuestsList(500);
+        AtomicInteger confirmed = new AtomicInteger();
+        AtomicInteger duplicates = new AtomicInteger();
+
+        // every thread registers the same 2000 guests in a different order
+        runConcurrently(thread -> {
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                order.add(i);
+            }
+            java.util.Collections.shuffle(order, new java.util.Random(thread));
+            for (int i : order) {
+                int code = list.add(guest(i));
+                if (code == 0) {
+                    confirmed.incrementAndGet();
+                } else if (code == -1) {
+                    duplicates.incrementAndGet();
+                }
+            }
+        });
+
+        assertInvariants(list);
+        Assertions.assertAll(
+                () -> assertEquals(500, confirmed.get(), "Exactly numberOfPlaces guests should get a place"),
+                () -> assertEquals(1500, list.getTotalNoWaiting()),
+                () -> assertEquals(2000, list.getTotalNoRegistered())
+        );
+    }
+
+    @Test
+    void remove_ShouldPromoteWaitListInFifoOrder_WhenRemovedConcurrently() throws Exception {
+        ConcurrentGuestsList list = new ConcurrentGuestsList(400);
+        runConcurrently(thread -> {
+            for (int i = thread; i < 1200; i += THREADS) {
+                list.add(guest(i));
+            }
+        });
+        List<Guest> guests = list.getGuestsList();
+        List<Guest> waiting = list.getWaitList();
+
+        runConcurrently(thread -> {
+            for (int i = thread; i < 300; i += THREADS) {
+                assertTrue(list.removeByEmail(guests.get(i).getEmail()) >= 0);
+            }
+        });
+
+        assertInvariants(list);
+        Assertions.assertAll(
+                () -> assertEquals(new HashSet<>(waiting.subList(0, 300)),
+                        new HashSet<>(list.getGuestsList().subList(100, 400)),
+                        "The freed places should go to the first guests on the waitlist"),
+                () -> assertEquals(waiting.subList(300, 800), list.getWaitList(),
+                        "The remaining guests should keep their order on the waitlist")
+        );
+    }
+
+    @Test
+    void operations_ShouldKeepInvariants_UnderMixedLoad() throws Exception {
+        ConcurrentGuestsList list = new ConcurrentGuestsList(200);
+        runConcurrently(thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int step = 0; step < 20_000; step++) {
+                int i = random.nextInt(1000);
+                switch (random.nextInt(4)) {
+                    case 0, 1 -> list.add(guest(i));
+                    case 2 -> list.removeByPhone(guest(i).getPhoneNumber());
+                    default -> list.checkByName(guest(i).getFirstName(), guest(i).getLastName());
+                }
+            }
+        });
+
+        assertInvariants(list);
+        for (Guest guest : list.getWaitList()) {
+            assertTrue(list.checkByEmail(guest.getEmail()) > 0,
+                    "The indexes should be consistent with the waitlist");
+        }
+        for (Guest guest : list.getGuestsList()) {
+            assertEquals(0, list.checkByEmail(guest.getEmail()),
+                    "The indexes should be consistent with the guests list");
+        }
+    }
+
+    @Test
+    void lookups_ShouldFindTheConfirmedGuests_WhileOthersAreAddedAndRemoved() throws Exception {
+        ConcurrentGuestsList list = new ConcurrentGuestsList(150);
+        // never removed, so they keep their places
+        for (int i = 0; i < 100; i++) {
+            list.add(guest(i));
+        }
+        runConcurrently(thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int step = 0; step < 20_000; step++) {
+                if (thread % 2 == 0) {
+                    int i = 100 + random.nextInt(200);
+                    if (random.nextBoolean()) {
+                        list.add(guest(i));
+                    } else {
+                        list.removeByEmail(guest(i).getEmail());
+                    }
+                } else {
+                    Guest confirmed = guest(random.nextInt(100));
+                    assertEquals(0, list.checkByEmail(confirmed.getEmail()));
+                    assertEquals(Optional.of(confirmed), list.getByPhone(confirmed.getPhoneNumber()));
+                    Guest other = guest(100 + random.nextInt(200));
+                    assertTrue(list.checkByName(other.getFirstName(), other.getLastName()) >= -1);
+                    list.getByEmail(other.getEmail()).ifPresent(found -> assertEquals(other, found));
+                }
+            }
+        });
+
+        assertInvariants(list);
+        for (Guest guest : list.getWaitList()) {
+            assertTrue(list.checkByEmail(guest.getEmail()) > 0,
+                    "The indexes should be consistent with the waitlist");
+        }
+    }
+}
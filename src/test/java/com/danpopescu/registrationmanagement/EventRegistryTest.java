@@ -0,0 +1,219 @@
+package com.danpopescu.registrationmanagement;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventRegistryTest {
+
+    @TempDir
+    Path directory;
+
+    private static Guest guest(int i) {
+        return new Guest("First" + i, "Last" + i, "guest" + i + "@gmail.com", "+40700" + String.format("%06d", i));
+    }
+
+    @Test
+    void withEvent_ShouldKeepEventsSeparate_AndSaveEachOne() throws Exception {
+        try (EventRegistry registry = new EventRegistry(directory, 10)) {
+            registry.create("concert", 1);
+            registry.create("conference", 5);
+            registry.withEvent("concert", list -> list.add(guest(1)));
+            registry.withEvent("concert", list -> list.add(guest(2)));
+            registry.withEvent("conference", list -> list.add(guest(3)));
+        }
+
+        try (EventRegistry registry = new EventRegistry(directory, 10)) {
+            Assertions.assertAll(
+                    () -> assertEquals(Set.of("concert", "conference"), registry.eventIds()),
+                    () -> assertEquals(List.of(guest(1)), registry.withEvent("concert", GuestsList::getGuestsList)),
+                    () -> assertEquals(List.of(guest(2)), registry.withEvent("concert", GuestsList::getWaitList)),
+                    () -> assertEquals(List.of(guest(3)), registry.withEvent("conference", GuestsList::getGuestsList)),
+                    () -> assertThrows(IllegalArgumentException.class,
+                            () -> registry.withEvent("missing", GuestsList::getGuestsList)),
+                    () -> assertThrows(IllegalArgumentException.class, () -> registry.create("../concert", 1),
+                            "An event ID should not be able to point outside the directory")
+            );
+        }
+    }
+
+    @Test
+    void withEvent_ShouldEvictLeastRecentlyUsedEvents_WhenTooManyAreLoaded() throws Exception {
+        try (EventRegistry registry = new EventRegistry(directory, 3)) {
+            for (int i = 0; i < 10; i++) {
+                registry.create("event" + i, 2);
+                int guest = i;
+                registry.withEvent("event" + i, list -> list.add(guest(guest)));
+            }
+            assertEquals(3, registry.loadedEvents());
+
+            // evicted events are loaded again from their files
+            for (int i = 0; i < 10; i++) {
+                Guest guest = guest(i);
+                int response = registry.withEvent("event" + i, list -> list.check(guest));
+                assertEquals(0, response);
+            }
+            assertEquals(3, registry.loadedEvents());
+
+            assertEquals(3, registry.evictIdle(Duration.ZERO));
+            assertEquals(0, registry.loadedEvents());
+        }
+    }
+
+    @Test
+    void onUnload_ShouldBeCalled_WhenAnEventIsClosed() throws Exception {
+        List<String> events = new ArrayList<>();
+        try (EventRegistry registry = new EventRegistry(directory, 1, (id, list) -> events.add("load " + id),
+                (id, list) -> events.add("unload " + id), EventRegistry.Durability.SYNC, Duration.ZERO)) {
+            registry.create("event1", 2);
+            registry.create("event2", 2);
+            registry.withEvent("event1", GuestsList::getTotalNoRegistered);
+            registry.delete("event1");
+            registry.create("event3", 2);
+        }
+        assertEquals(List.of("load event1", "load event2", "unload event1", "load event1", "unload event2",
+                "unload event1", "load event3", "unload event3"), events);
+    }
+
+    @Test
+    void withEvent_ShouldNotWaitForTheEvictionOfAnotherEvent() throws Exception {
+        CountDownLatch unloading = new CountDownLatch(1);
+        CountDownLatch unloaded = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (EventRegistry registry = new EventRegistry(directory, 2, (id, list) -> { }, (id, list) -> {
+            if (id.equals("event1")) {
+                unloading.countDown();
+                try {
+                    unloaded.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, EventRegistry.Durability.SYNC, Duration.ZERO)) {
+            registry.create("event1", 2);
+            registry.create("event2", 2);
+            // loading event3 evicts event1, whose unloading blocks
+            Future<?> evicting = executor.submit(() -> {
+                registry.create("event3", 2);
+                return null;
+            });
+            assertTrue(unloading.await(10, TimeUnit.SECONDS));
+            try {
+                Integer added = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                        () -> registry.withEvent("event2", list -> list.add(guest(1))),
+                        "The other events should be usable while an event is evicted");
+                assertEquals(0, added);
+            } finally {
+                unloaded.countDown();
+            }
+            evicting.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void withEvent_ShouldReturnItsResult_WhenTheEvictionOfAnotherEventFails() throws Exception {
+        try (EventRegistry registry = new EventRegistry(directory, 1, (id, list) -> { }, (id, list) -> {
+            if (id.equals("event1")) {
+                throw new IllegalStateException("unload failed");
+            }
+        }, EventRegistry.Durability.SYNC, Duration.ZERO)) {
+            registry.create("event1", 2);
+            registry.create("event2", 2);
+            Integer added = registry.withEvent("event2", list -> list.add(guest(1)));
+            assertEquals(0, added);
+            IOException failure = assertThrows(IOException.class, registry::flush,
+                    "The failure should be reported by the next flush()");
+            assertEquals("unload failed", failure.getCause().getMessage());
+        }
+    }
+
+    @Test
+    void withEvent_ShouldRunActionsOnTheSameEventOneAtATime() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (EventRegistry registry = new EventRegistry(directory, 2)) {
+            for (int e = 0; e < 4; e++) {
+                registry.create("event" + e, 100);
+            }
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        int guest = thread * 1000 + i;
+                        registry.withEvent("event" + (i % 4), list -> list.add(guest(guest)));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+
+            for (int e = 0; e < 4; e++) {
+                int registered = registry.withEvent("event" + e, GuestsList::getTotalNoRegistered);
+                assertEquals(400, registered);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void withEvent_ShouldWriteChangesInTheBackground_InIntervalMode() throws Exception {
+        Path journal = directory.resolve("concert.journal");
+        try (EventRegistry registry = new EventRegistry(directory, 4, (id, list) -> { },
+                EventRegistry.Durability.INTERVAL, Duration.ofMillis(20))) {
+            registry.create("concert", 10);
+            for (int i = 0; i < 5; i++) {
+                int guest = i;
+                registry.withEvent("concert", list -> list.add(guest(guest)));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (Files.size(journal) == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertTrue(Files.size(journal) > 0, "The background writer should write the changes");
+        }
+
+        try (EventRegistry registry = new EventRegistry(directory, 4)) {
+            int registered = registry.withEvent("concert", GuestsList::getTotalNoRegistered);
+            assertEquals(5, registered);
+        }
+    }
+
+    @Test
+    void close_ShouldWriteChanges_InOnShutdownMode() throws Exception {
+        Path journal = directory.resolve("concert.journal");
+        try (EventRegistry registry = new EventRegistry(directory, 4, (id, list) -> { },
+                EventRegistry.Durability.ON_SHUTDOWN, Duration.ZERO)) {
+            registry.create("concert", 1);
+            registry.withEvent("concert", list -> list.add(guest(1)));
+            registry.withEvent("concert", list -> list.add(guest(2)));
+            assertEquals(0, Files.size(journal), "The changes should not be written before the event is closed");
+        }
+
+        try (EventRegistry registry = new EventRegistry(directory, 4)) {
+            Assertions.assertAll(
+                    () -> assertEquals(List.of(guest(1)), registry.withEvent("concert", GuestsList::getGuestsList)),
+                    () -> assertEquals(List.of(guest(2)), registry.withEvent("concert", GuestsList::getWaitList))
+            );
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.danpopescu.registrationmanagement;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FenwickListTest {
+
+    FenwickList<String> list;
+
+    @BeforeEach
+    void beforeEach() {
+        list = new FenwickList<>();
+    }
+
+    @Test
+    void indexOf_ShouldReturnPosition_AfterRemovalsFromTheMiddle() {
+        String a = "a", b = "b", c = "c", d = "d";
+        list.add(a);
+        list.add(b);
+        list.add(c);
+        list.add(d);
+
+        list.remove(b);
+        Assertions.assertAll(
+                () -> assertEquals(0, list.indexOf(a)),
+                () -> assertEquals(-1, list.indexOf(b),
+                        "A removed element should not be found in the list"),
+                () -> assertEquals(1, list.indexOf(c),
+                        "The elements after the removed one should move up one position"),
+                () -> assertEquals(2, list.indexOf(d)),
+                () -> assertEquals(3, list.size())
+        );
+    }
+
+    @Test
+    void removeFirst_ShouldReturnElementsInInsertionOrder() {
+        list.add("a");
+        list.add("b");
+        list.add("c");
+
+        Assertions.assertAll(
+                () -> assertEquals("a", list.removeFirst()),
+                () -> assertEquals("b", list.removeFirst()),
+                () -> assertEquals("c", list.removeFirst()),
+                () -> assertTrue(list.isEmpty())
+        );
+    }
+
+    @Test
+    void operations_ShouldMatchArrayList_ForRandomSequence() {
+        List<String> expected = new ArrayList<>();
+        Random random = new Random(42);
+        int next = 0;
+
+        for (int step = 0; step < 20_000; step++) {
+            int operation = random.nextInt(10);
+            if (operation < 5 || expected.isEmpty()) {
+                String element = new String("e" + next++);
+                expected.add(element);
+                list.add(element);
+            } else if (operation < 7) {
+                assertSame(expected.remove(0), list.removeFirst());
+            } else if (operation < 9) {
+                int index = random.nextInt(expected.size());
+                assertSame(expected.remove(index), list.remove(index));
+            } else {
+                int index = random.nextInt(expected.size());
+                String element = expected.get(index);
+                assertEquals(index, list.indexOf(element));
+                assertSame(element, list.get(index));
+            }
+            assertEquals(expected.size(), list.size());
+        }
+
+        assertEquals(expected, list.toList());
+    }
+
+    @Test
+    void bulkMoves_ShouldMatchArrayList_ForRandomSequence() {
+        List<String> expected = new ArrayList<>();
+        Random random = new Random(7);
+        int next = 0;
+
+        for (int step = 0; step < 5_000; step++) {
+            int operation = random.nextInt(10);
+            int count = expected.isEmpty() ? 0 : random.nextInt(Math.min(expected.size(), 20) + 1);
+            if (operation < 4 || expected.isEmpty()) {
+                String element = new String("e" + next++);
+                expected.add(element);
+                list.add(element);
+            } else if (operation < 6) {
+                List<String> removed = new ArrayList<>(expected.subList(0, count));
+                expected.subList(0, count).clear();
+                assertEquals(removed, list.removeFirst(count));
+            } else if (operation < 8) {
+                List<String> removed = new ArrayList<>(expected.subList(expected.size() - count, expected.size()));
+                expected.subList(expected.size() - count, expected.size()).clear();
+                assertEquals(removed, list.removeLast(count));
+            } else if (operation < 9) {
+                List<String> added = new ArrayList<>();
+                for (int i = random.nextInt(40); i > 0; i--) {
+                    added.add("e" + next++);
+                }
+                expected.addAll(0, added);
+                list.addAllFirst(added);
+            } else {
+                int index = random.nextInt(expected.size());
+                assertSame(expected.remove(index), list.remove(index));
+            }
+            assertEquals(expected.size(), list.size());
+            if (!expected.isEmpty()) {
+                int index = random.nextInt(expected.size());
+                assertEquals(index, list.indexOf(expected.get(index)));
+            }
+        }
+
+        assertEquals(expected, list.toList());
+    }
+
+    private List<String> fillWithGaps(int count) {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String element = "e" + i;
+            list.add(element);
+            if (i % 3 == 0) {
+                list.remove(element);
+            } else {
+                expected.add(element);
+            }
+        }
+        return expected;
+    }
+
+    @Test
+    void page_ShouldReturnRange_SkippingRemovedElements() {
+        List<String> expected = fillWithGaps(1000);
+
+        Assertions.assertAll(
+                () -> assertEquals(expected.subList(0, 50), list.page(0, 50)),
+                () -> assertEquals(expected.subList(300, 350), list.page(300, 50)),
+                () -> assertEquals(expected.subList(650, expected.size()), list.page(650, 50),
+                        "The last page should contain only the remaining elements"),
+                () -> assertTrue(list.page(expected.size(), 50).isEmpty())
+        );
+    }
+
+    @Test
+    void spliterator_ShouldSplitIntoExactRanges_ForParallelStreams() {
+        List<String> expected = fillWithGaps(100_000);
+
+        List<String> parallel = StreamSupport.stream(list.spliterator(), true)
+                .collect(Collectors.toList());
+        assertEquals(expected, parallel);
+        assertEquals(expected.size(), list.spliterator().trySplit().estimateSize() * 2,
+                "A split should know the exact number of elements in each half");
+    }
+
+    @Test
+    void view_ShouldFollowTheList_AndFailFastWhenModifiedDuringIteration() {
+        List<String> view = list.view();
+        list.add("a");
+        list.add("b");
+        assertEquals(List.of("a", "b"), view);
+
+        assertThrows(UnsupportedOperationException.class, () -> view.add("c"));
+        assertThrows(ConcurrentModificationException.class, () -> view.forEach(list::remove));
+    }
+}
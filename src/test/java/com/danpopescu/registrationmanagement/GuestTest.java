@@ -91,4 +91,45 @@ class GuestTest {
         assertNotEquals(guest1.hashCode(), guest2.hashCode(),
                 "Hash code should be the different for not equal objects");
     }
-}
\ No newline at end of file
+
+    /**
+     * Check that the cached keys and hash code follow the setters
+     */
+    @Test
+    void equalAfterSetterTest() {
+        Guest guest1 = new Guest("Valentin", "Ionescu",
+                "vali@gmail.con", "+40775534074");
+        Guest guest2 = new Guest("Valentin", "Ionescu",
+                "VALI.IONESCU@gmail.con", "+40775534074");
+        assertNotEquals(guest1, guest2);
+
+        guest1.setEmail("vali.ionescu@GMAIL.con");
+        assertEquals(guest1, guest2);
+        assertEquals(guest1.hashCode(), guest2.hashCode(),
+                "Hash codes should be the same after the setter makes the objects equal");
+        assertTrue(guest1.anyFieldContains("vali.ionescu@"),
+                "anyFieldContains() should use the updated field");
+    }
+
+    /**
+     * Check that a phone number is read back as it was written, with or without its String
+     */
+    @Test
+    void phoneNumberTest() {
+        Guest guest1 = new Guest("Valentin", "Ionescu",
+                "vali@gmail.con", "+40775534074");
+        Guest guest2 = new Guest("Valentin", "Ionescu",
+                "vali@gmail.con", "0775 534 074");
+        assertEquals("+40775534074", guest1.getPhoneNumber());
+        assertEquals("0775 534 074", guest2.getPhoneNumber());
+        assertEquals(guest1, guest2);
+        assertTrue(guest1.anyFieldContains("+4077553"));
+        assertTrue(guest1.anyFieldContains("534074"));
+        assertFalse(guest1.anyFieldContains(" "));
+        assertTrue(guest2.anyFieldContains("0775 534"));
+
+        guest2.setPhoneNumber("+40725521064");
+        assertEquals("+40725521064", guest2.getPhoneNumber());
+        assertNotEquals(guest1, guest2);
+    }
+}
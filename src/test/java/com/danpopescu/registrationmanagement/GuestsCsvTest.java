@@ -0,0 +1,61 @@
+package com.danpopescu.registrationmanagement;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GuestsCsvTest {
+
+    @TempDir
+    Path directory;
+
+    private Path write(String... lines) throws IOException {
+        return Files.write(directory.resolve("guests.csv"), List.of(lines));
+    }
+
+    @Test
+    void read_ShouldSkipHeaderCommentsAndBlankLines() throws IOException {
+        Path file = write(
+                "nume,prenume,email,telefon",
+                "# partener 1",
+                "Ionescu,Vali,vali@gmail.com,+40775534075",
+                "",
+                " Poiana , Alex , alex@gmail.com , +40721234567 ");
+
+        List<Guest> guests = GuestsCsv.read(file);
+        Assertions.assertAll(
+                () -> assertEquals(2, guests.size()),
+                () -> assertEquals(new Guest("Vali", "Ionescu", "vali@gmail.com", "+40775534075"), guests.get(0)),
+                () -> assertEquals(new Guest("Alex", "Poiana", "alex@gmail.com", "+40721234567"), guests.get(1),
+                        "The spaces around the fields should be removed")
+        );
+    }
+
+    @Test
+    void read_ShouldKeepCommasAndQuotes_InsideQuotedFields() throws IOException {
+        Path file = write("\"Popescu, Jr.\",\"Dan \"\"Danny\"\"\",dan@gmail.com,+40721234567");
+
+        Guest guest = GuestsCsv.read(file).get(0);
+        Assertions.assertAll(
+                () -> assertEquals("Popescu, Jr.", guest.getLastName()),
+                () -> assertEquals("Dan \"Danny\"", guest.getFirstName())
+        );
+    }
+
+    @Test
+    void read_ShouldReportLineNumber_WhenLineIsMalformed() throws IOException {
+        Path file = write(
+                "Ionescu,Vali,vali@gmail.com,+40775534075",
+                "Poiana,Alex,alex@gmail.com");
+
+        IOException e = assertThrows(IOException.class, () -> GuestsCsv.read(file));
+        assertTrue(e.getMessage().startsWith("Linia 2"), "The message should contain the line number");
+    }
+}
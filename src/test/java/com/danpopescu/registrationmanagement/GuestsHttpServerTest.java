@@ -0,0 +1,102 @@
+package com.danpopescu.registrationmanagement;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GuestsHttpServerTest {
+
+    @TempDir
+    Path directory;
+
+    EventRegistry registry;
+    GuestsHttpServer server;
+    HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        registry = new EventRegistry(directory, 4);
+        server = new GuestsHttpServer(registry, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                GuestsHttpServer.newExecutor(2));
+        server.start();
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        server.stop(0);
+        registry.close();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String guest(String lastName, String firstName, String email, String phone) {
+        return "{\"lastName\":\"" + lastName + "\",\"firstName\":\"" + firstName +
+                "\",\"email\":\"" + email + "\",\"phone\":\"" + phone + "\"}";
+    }
+
+    @Test
+    void requests_ShouldRunTheOperationsOfTheGuestsList() throws Exception {
+        assertEquals(201, send("PUT", "/events/concert?places=1", null).statusCode());
+        assertEquals("{\"result\":0}",
+                send("POST", "/events/concert/guests", guest("Ionescu", "Vali", "vali@gmail.com", "+40775534075")).body());
+        assertEquals("{\"result\":1}",
+                send("POST", "/events/concert/guests", guest("Poiana", "Alex", "alex@gmail.com", "+40721234567")).body());
+
+        Assertions.assertAll(
+                () -> assertEquals("{\"result\":1}", send("GET", "/events/concert/check?email=alex@gmail.com", null).body()),
+                () -> assertEquals("{\"result\":0}",
+                        send("GET", "/events/concert/check?firstName=Vali&lastName=Ionescu", null).body()),
+                () -> assertEquals("{\"lastName\":\"Ionescu\",\"firstName\":\"Vali\",\"email\":\"vali@gmail.com\"," +
+                        "\"phone\":\"+40775534075\",\"result\":0}",
+                        send("GET", "/events/concert/guest?phone=%2B40775534075", null).body()),
+                () -> assertEquals(404, send("GET", "/events/concert/guest?email=diana@gmail.com", null).statusCode())
+        );
+
+        assertEquals("{\"result\":0}", send("PATCH", "/events/concert/guest?email=alex@gmail.com",
+                "{\"field\": \"firstName\", \"value\": \"Alexandru\"}").body());
+        assertEquals("{\"result\":1}", send("DELETE", "/events/concert/guest?email=vali@gmail.com", null).body(),
+                "Removing a participant should promote the first person on the waitlist");
+        Assertions.assertAll(
+                () -> assertEquals("[{\"lastName\":\"Poiana\",\"firstName\":\"Alexandru\",\"email\":\"alex@gmail.com\"," +
+                        "\"phone\":\"+40721234567\"}]", send("GET", "/events/concert/search?q=alex", null).body()),
+                () -> assertEquals("[{\"lastName\":\"Poiana\",\"firstName\":\"Alexandru\",\"email\":\"alex@gmail.com\"," +
+                        "\"phone\":\"+40721234567\"}]",
+                        send("GET", "/events/concert/sorted?by=name&from=P&to=Q&limit=10", null).body()),
+                () -> assertEquals("[]", send("GET", "/events/concert/sorted?by=phone&prefix=%2B4077", null).body()),
+                () -> assertEquals("{\"places\":1,\"available\":0,\"guests\":1,\"waiting\":0,\"registered\":1}",
+                        send("GET", "/events/concert/counters", null).body())
+        );
+    }
+
+    @Test
+    void requests_ShouldReportErrors() throws Exception {
+        send("PUT", "/events/concert?places=1", null);
+        Assertions.assertAll(
+                () -> assertEquals(409, send("PUT", "/events/concert?places=1", null).statusCode()),
+                () -> assertEquals(404, send("GET", "/events/missing/counters", null).statusCode()),
+                () -> assertEquals(400, send("POST", "/events/concert/guests", "{\"lastName\":").statusCode()),
+                () -> assertEquals(400, send("POST", "/events/concert/guests", "{\"lastName\":\"Pop\"}").statusCode()),
+                () -> assertEquals(400, send("GET", "/events/concert/check", null).statusCode()),
+                () -> assertEquals(400, send("GET", "/events/concert/sorted?by=age", null).statusCode()),
+                () -> assertEquals(404, send("GET", "/events/concert/unknown", null).statusCode())
+        );
+    }
+}
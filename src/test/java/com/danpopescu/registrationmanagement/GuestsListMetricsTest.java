@@ -0,0 +1,102 @@
+package com.danpopescu.registrationmanagement;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GuestsListMetricsTest {
+
+    GuestsList list;
+    GuestsListMetrics metrics;
+
+    @BeforeEach
+    void beforeEach() {
+        list = new GuestsList(1);
+        metrics = new GuestsListMetrics();
+        list.setMetrics(metrics);
+    }
+
+    @Test
+    void operations_ShouldBeCounted_WithPromotionsAndDuplicates() {
+        Guest guest1 = new Guest("Vali", "Ionescu", "vali@gmail.com", "+40775534075");
+        Guest guest2 = new Guest("Alex", "Poiana", "alex@gmail.com", "+40721234567");
+        list.add(guest1);
+        list.add(guest2);
+        list.add(guest1);
+        list.checkByEmail("alex@gmail.com");
+        list.getByPhone("+40721234567");
+        list.search("gmail");
+        list.removeByEmail("vali@gmail.com");
+        list.update(guest2, GuestField.FIRST_NAME, "Alexandru");
+        list.update(guest1, GuestField.FIRST_NAME, "Valentin");
+        list.suggest("al", 10);
+        list.getWithPrefix(SearchMode.BY_NAME, "p", 10);
+        list.setNumberOfPlaces(2);
+
+        Assertions.assertAll(
+                () -> assertEquals(3, metrics.getLatency(GuestsListMetrics.Operation.ADD).getCount()),
+                () -> assertEquals(1, metrics.getLatency(GuestsListMetrics.Operation.CHECK).getCount()),
+                () -> assertEquals(1, metrics.getLatency(GuestsListMetrics.Operation.GET).getCount()),
+                () -> assertEquals(1, metrics.getLatency(GuestsListMetrics.Operation.SEARCH).getCount()),
+                () -> assertEquals(1, metrics.getLatency(GuestsListMetrics.Operation.REMOVE).getCount()),
+                () -> assertEquals(2, metrics.getLatency(GuestsListMetrics.Operation.UPDATE).getCount(),
+                        "The update of a guest who is not registered should be counted too"),
+                () -> assertEquals(1, metrics.getLatency(GuestsListMetrics.Operation.SUGGEST).getCount()),
+                () -> assertEquals(1, metrics.getLatency(GuestsListMetrics.Operation.RANGE).getCount()),
+                () -> assertEquals(1, metrics.getLatency(GuestsListMetrics.Operation.PLACES).getCount()),
+                () -> assertEquals(1, metrics.getDuplicateRejections()),
+                () -> assertEquals(1, metrics.getPromotions(),
+                        "Removing a participant should promote the guest on the wait list"),
+                () -> assertEquals(1, metrics.getParticipants()),
+                () -> assertEquals(0, metrics.getWaiting())
+        );
+
+        list.setMetrics(null);
+        list.add(guest1);
+        assertEquals(3, metrics.getLatency(GuestsListMetrics.Operation.ADD).getCount(),
+                "A detached list should not record its operations");
+    }
+
+    @Test
+    void register_ShouldPublishMetrics_AsPlatformMXBean() throws Exception {
+        list.add(new Guest("Vali", "Ionescu", "vali@gmail.com", "+40775534075"));
+        ObjectName name = metrics.register("test event");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            TabularData latencies = (TabularData) server.getAttribute(name, "Latencies");
+            CompositeData add = (CompositeData) latencies.get(new Object[]{"ADD"}).get("value");
+            Assertions.assertAll(
+                    () -> assertEquals(1, server.getAttribute(name, "Participants")),
+                    () -> assertEquals(1L, add.get("count"))
+            );
+        } finally {
+            metrics.unregister();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    void percentile_ShouldBeWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos);
+        }
+
+        for (double percentile : List.of(50.0, 99.0, 99.9)) {
+            double expected = percentile * 1000;
+            assertEquals(expected, histogram.percentile(percentile), expected / 32,
+                    "The p" + percentile + " should be within 1/32 of the exact value");
+        }
+        assertEquals(100_000, histogram.percentile(100));
+        assertEquals(50_000.5, histogram.mean(), 1e-9);
+    }
+}
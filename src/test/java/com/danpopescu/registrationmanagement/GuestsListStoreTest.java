@@ -0,0 +1,208 @@
+package com.danpopescu.registrationmanagement;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GuestsListStoreTest {
+
+    @TempDir
+    Path directory;
+
+    Guest guest1;
+    Guest guest2;
+    Guest guest3;
+    Guest guest4;
+
+    @BeforeEach
+    void beforeEach() {
+        guest1 = new Guest("Vali", "Ionescu", "vali@gmail.com", "+40775534075");
+        guest2 = new Guest("Alex", "Poiana", "alex@gmail.com", "+40721234567");
+        guest3 = new Guest("Diana", "Croitoru", "diana@gmail.com", "+40751234567");
+        guest4 = new Guest("Stefan", "Dumitru", "stefan@gmail.com", "+40771234567");
+    }
+
+    @Test
+    void open_ShouldRestoreAllChanges_FromTheJournal() throws Exception {
+        GuestsListStore store = new GuestsListStore(directory, "event");
+        GuestsList list = new GuestsList(2);
+        store.create(list);
+        list.add(guest1);
+        list.add(guest2);
+        list.add(guest3);
+        list.add(guest4);
+        list.removeByEmail("vali@gmail.com");
+        list.update(guest4, GuestField.EMAIL, "stefan.dumitru@gmail.com");
+        store.flush();
+        store.close();
+
+        GuestsList restored = new GuestsListStore(directory, "event").open();
+        Assertions.assertAll(
+                () -> assertEquals(list.getGuestsList(), restored.getGuestsList()),
+                () -> assertEquals(list.getWaitList(), restored.getWaitList()),
+                () -> assertEquals(1, restored.checkByEmail("stefan.dumitru@gmail.com"),
+                        "The update should be replayed from the journal")
+        );
+    }
+
+    @Test
+    void open_ShouldRestoreTheSameGuests_WhenAnUpdateWouldDuplicateAGuest() throws Exception {
+        GuestsListStore store = new GuestsListStore(directory, "event");
+        GuestsList list = new GuestsList(1);
+        store.create(list);
+        // the same number as guest1, written differently, to tell them apart
+        Guest waiting = new Guest("Alex", "Ionescu", "vali@gmail.com", "0775 534 075");
+        list.add(guest1);
+        list.add(waiting);
+        list.add(guest2);
+        // otherwise the replay could remove the other one of two equal guests
+        assertFalse(list.update(waiting, GuestField.FIRST_NAME, "Vali"));
+        list.removeByName("Vali", "Ionescu");
+        store.flush();
+        store.close();
+
+        GuestsList restored = new GuestsListStore(directory, "event").open();
+        Assertions.assertAll(
+                () -> assertEquals(List.of("0775 534 075"), phoneNumbers(restored.getGuestsList())),
+                () -> assertEquals(phoneNumbers(list.getWaitList()), phoneNumbers(restored.getWaitList()))
+        );
+    }
+
+    private static List<String> phoneNumbers(List<Guest> guests) {
+        return guests.stream().map(Guest::getPhoneNumber).collect(Collectors.toList());
+    }
+
+    @Test
+    void open_ShouldReplayPlacesChange_FromASingleRecord() throws Exception {
+        GuestsListStore store = new GuestsListStore(directory, "event");
+        GuestsList list = new GuestsList(1);
+        store.create(list);
+        list.add(guest1);
+        list.add(guest2);
+        list.add(guest3);
+        list.add(guest4);
+        store.flush();
+        Path journal = directory.resolve("event.journal");
+        long length = Files.size(journal);
+        list.setNumberOfPlaces(3);
+        store.flush();
+        // length, sequence number, type, number of places, CRC
+        assertEquals(length + 21, Files.size(journal), "Moving several guests should write a single record");
+        list.setNumberOfPlaces(2);
+        store.flush();
+        store.close();
+
+        GuestsList restored = new GuestsListStore(directory, "event").open();
+        Assertions.assertAll(
+                () -> assertEquals(2, restored.getNumberOfPlaces()),
+                () -> assertEquals(List.of(guest1, guest2), restored.getGuestsList()),
+                () -> assertEquals(List.of(guest3, guest4), restored.getWaitList())
+        );
+    }
+
+    @Test
+    void open_ShouldTruncateTornRecord_AtTheEndOfTheJournal() throws Exception {
+        GuestsListStore store = new GuestsListStore(directory, "event");
+        GuestsList list = new GuestsList(2);
+        store.create(list);
+        list.add(guest1);
+        list.add(guest2);
+        store.flush();
+        store.close();
+
+        Path journal = directory.resolve("event.journal");
+        long validLength = Files.size(journal);
+        // a record cut in the middle of a write
+        Files.write(journal, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        GuestsListStore reopened = new GuestsListStore(directory, "event");
+        GuestsList restored = reopened.open();
+        Assertions.assertAll(
+                () -> assertEquals(2, restored.getTotalNoParticipants()),
+                () -> assertEquals(validLength, Files.size(journal),
+                        "The torn record should be cut from the journal")
+        );
+
+        restored.add(guest3);
+        reopened.flush();
+        reopened.close();
+        assertEquals(1, new GuestsListStore(directory, "event").open().checkByEmail("diana@gmail.com"),
+                "Records appended after the truncation should be replayed");
+    }
+
+    @Test
+    void open_ShouldSkipJournalRecords_AlreadyInTheSnapshot() throws Exception {
+        GuestsListStore store = new GuestsListStore(directory, "event");
+        GuestsList list = new GuestsList(2);
+        store.create(list);
+        list.add(guest1);
+        list.add(guest2);
+        list.add(guest3);
+        store.flush();
+        Path journal = directory.resolve("event.journal");
+        byte[] records = Files.readAllBytes(journal);
+
+        store.compact();
+        assertEquals(0, Files.size(journal), "Compaction should empty the journal");
+        store.close();
+        // as if the process crashed after writing the snapshot but before emptying the journal
+        Files.write(journal, records);
+
+        GuestsList restored = new GuestsListStore(directory, "event").open();
+        Assertions.assertAll(
+                () -> assertEquals(list.getGuestsList(), restored.getGuestsList()),
+                () -> assertEquals(list.getWaitList(), restored.getWaitList())
+        );
+    }
+
+    @Test
+    void open_ShouldMigrateJavaSerializedFile_ToBinarySnapshot() throws Exception {
+        GuestsList list = new GuestsList(1);
+        list.add(guest1);
+        list.add(guest2);
+        try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(directory.resolve("event.dat")))) {
+            out.writeObject(list);
+        }
+
+        GuestsListStore store = new GuestsListStore(directory, "event");
+        assertTrue(store.exists(), "A file saved by an older version should be found");
+        GuestsList restored = store.open();
+        store.close();
+        Assertions.assertAll(
+                () -> assertEquals(list.getGuestsList(), restored.getGuestsList()),
+                () -> assertEquals(list.getWaitList(), restored.getWaitList()),
+                () -> assertTrue(Files.exists(directory.resolve("event.snapshot")),
+                        "The old file should be migrated to a binary snapshot"),
+                () -> assertFalse(Files.exists(directory.resolve("event.dat")),
+                        "The old file should not be read again after the migration")
+        );
+    }
+
+    @Test
+    void open_ShouldRejectSnapshot_WithWrongChecksum() throws Exception {
+        GuestsListStore store = new GuestsListStore(directory, "event");
+        GuestsList list = new GuestsList(2);
+        list.add(guest1);
+        store.create(list);
+        store.close();
+
+        Path snapshot = directory.resolve("event.snapshot");
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(snapshot, bytes);
+
+        assertThrows(IOException.class, () -> new GuestsListStore(directory, "event").open(),
+                "A corrupted snapshot should not be loaded");
+    }
+}
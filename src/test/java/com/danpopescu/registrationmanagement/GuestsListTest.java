@@ -6,8 +6,19 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
-
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -84,6 +95,19 @@ class GuestsListTest {
             );
 
         }
+
+        @Test
+        void addAll_ShouldFillPlacesThenWaitList_AndSkipDuplicates() {
+            list.add(guest1);
+            Guest sameAsGuest2 = new Guest("ALEX", "POIANA", "alex@gmail.com", "+40721234567");
+            int[] responses = list.addAll(List.of(guest1, guest2, sameAsGuest2, guest3, guest4));
+            Assertions.assertAll(
+                    () -> assertArrayEquals(new int[]{-1, 0, -1, 1, 2}, responses,
+                            "addAll() should return the result of add() for each guest, in order"),
+                    () -> assertEquals(List.of(guest1, guest2), list.getGuestsList()),
+                    () -> assertEquals(List.of(guest3, guest4), list.getWaitList())
+            );
+        }
     }
 
     @Nested
@@ -133,6 +157,26 @@ class GuestsListTest {
             );
         }
 
+        @Test
+        void returnSameCode_WhenKeyIsMutableCharSequence() {
+            list.add(guest1);
+            list.add(guest2);
+            list.add(guest3);
+
+            StringBuilder key = new StringBuilder("ALEX@gmail.com");
+            int responseGuest = list.checkByEmail(key);
+            key.setLength(0);
+            key.append("Diana@Gmail.com");
+            int responseWaiting = list.checkByEmail(key);
+
+            Assertions.assertAll(
+                    () -> Assertions.assertEquals(0, responseGuest,
+                            "checkByEmail() should accept any CharSequence as key"),
+                    () -> Assertions.assertEquals(1, responseWaiting,
+                            "checkByEmail() should find the guest after the key buffer is reused")
+            );
+        }
+
         @Test
         void returnMinusOne_WhenNotFound() {
             list.add(guest1);
@@ -157,6 +201,31 @@ class GuestsListTest {
 
     @Nested
     class Remove {
+        @Test
+        void lookups_ShouldFindTheRemainingGuests_AfterGuestsSharingTheirKeysAreRemoved() {
+            // few distinct names, so some keys belong to several guests and others to a single one
+            List<Guest> guests = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                guests.add(new Guest("Prenume" + i % 7, "Nume" + i % 11, "guest" + i + "@gmail.com",
+                        i % 2 == 0 ? "+4072" + (1000000 + i) : "072" + (1000000 + i)));
+            }
+            list = new GuestsList(500);
+            guests.forEach(list::add);
+            for (int i = 0; i < guests.size(); i += 3) {
+                assertEquals(i % 2 == 0 ? "+4072" + (1000000 + i) : "072" + (1000000 + i),
+                        guests.get(i).getPhoneNumber());
+                assertTrue(list.removeByEmail(guests.get(i).getEmail()) >= 0);
+            }
+
+            for (int i = 0; i < guests.size(); i++) {
+                Guest guest = guests.get(i);
+                int expected = i % 3 == 0 ? -1 : 0;
+                assertEquals(expected, Math.min(0, list.checkByEmail(guest.getEmail())), guest.toString());
+                assertEquals(expected, Math.min(0, list.checkByPhone("+4072" + (1000000 + i))), guest.toString());
+                assertNotEquals(-1, list.checkByName(guest.getFirstName(), guest.getLastName()), guest.toString());
+            }
+        }
+
         @Test
         void returnZero_WhenRemovedFromGuestsList() {
             list.add(guest1);
@@ -311,6 +380,22 @@ class GuestsListTest {
                             "the guest's phone number");
         }
 
+        @Test
+        void getByPhone_ShouldIgnoreFormatting_OfThePhoneNumber() {
+            list.add(guest1);
+            list.add(guest3);
+            list.add(guest2);
+
+            Assertions.assertAll(
+                    () -> assertEquals(Optional.of(guest1), list.getByPhone("0775 534 075"),
+                            "A national number should match the same number with the country code"),
+                    () -> assertEquals(Optional.of(guest3), list.getByPhone("0040-751-234-567")),
+                    () -> assertEquals(1, list.checkByPhone("+40 721 234 567")),
+                    () -> assertEquals(-1, list.add(new Guest("Vali", "Ionescu", "vali@gmail.com", "0775534075")),
+                            "The same guest with the phone number in another format should be a duplicate")
+            );
+        }
+
         @Test
         void get_ShouldReturnEmptyOptional_IfTheArgumentsDontMatchFieldsOfAnyObject() {
             GuestsList list = new GuestsList(1);
@@ -336,6 +421,154 @@ class GuestsListTest {
         }
     }
 
+    @Nested
+    class Update {
+        @Test
+        void update_ShouldKeepLookupsConsistent_WhenFieldChanged() {
+            list.add(guest1);
+            list.add(guest2);
+            list.add(guest3);
+
+            boolean updated = list.update(guest3, GuestField.EMAIL, "Diana.Croitoru@gmail.com");
+            Assertions.assertAll(
+                    () -> assertTrue(updated,
+                            "update() should return true if the guest is registered"),
+                    () -> assertEquals(-1, list.checkByEmail("diana@gmail.com"),
+                            "The old email should not be found after the update"),
+                    () -> assertEquals(1, list.checkByEmail("diana.croitoru@gmail.com"),
+                            "The new email should be found after the update, case insensitive")
+            );
+        }
+
+        @Test
+        void update_ShouldReturnFalse_IfGuestIsNotRegistered() {
+            list.add(guest1);
+
+            assertFalse(list.update(guest2, GuestField.LAST_NAME, "Popescu"),
+                    "update() should return false if the guest is not registered");
+            assertEquals("Poiana", guest2.getLastName(),
+                    "update() should not change a guest that is not registered");
+        }
+
+        @Test
+        void update_ShouldReturnFalse_IfTheChangeWouldDuplicateAnotherGuest() {
+            Guest copy = new Guest("Alex", "Ionescu", "vali@gmail.com", "+40775534075");
+            list.add(guest1);
+            list.add(copy);
+
+            Assertions.assertAll(
+                    () -> assertFalse(list.update(copy, GuestField.FIRST_NAME, "VALI"),
+                            "A guest should not become equal to another registered guest"),
+                    () -> assertEquals("Alex", copy.getFirstName(), "The rejected change should not be applied"),
+                    () -> assertTrue(list.update(guest1, GuestField.LAST_NAME, "IONESCU"),
+                            "A guest may become equal to itself, e.g. when the case of a name changes")
+            );
+        }
+
+        @Test
+        void lookups_ShouldFollowPromotedGuest_WhenRemovedFromGuestsList() {
+            list.add(guest1);
+            list.add(guest2);
+            list.add(guest3);
+            list.add(guest4);
+
+            list.removeByPhone("+40775534075");
+            Assertions.assertAll(
+                    () -> assertEquals(0, list.checkByName("Diana", "Croitoru"),
+                            "The promoted guest should be found on the guests list"),
+                    () -> assertEquals(1, list.checkByEmail("stefan@gmail.com"),
+                            "The remaining guest should move up on the wait list"),
+                    () -> assertEquals(-1, list.checkByEmail("vali@gmail.com"),
+                            "The removed guest should not be found anymore")
+            );
+        }
+    }
+
+    @Nested
+    class SharedKeys {
+        @Test
+        void lookups_ShouldFindRemainingGuests_WhenFirstGuestWithSameNameIsRemoved() {
+            Guest namesake1 = new Guest("Vali", "Ionescu", "vali.ionescu@gmail.com", "+40700000001");
+            Guest namesake2 = new Guest("VALI", "IONESCU", "vali.i@gmail.com", "+40700000002");
+            list.add(guest1);
+            list.add(namesake1);
+            list.add(namesake2);
+
+            list.removeByEmail("vali@gmail.com");
+            Assertions.assertAll(
+                    () -> assertEquals(Optional.of(namesake1), list.getByName("vali", "ionescu"),
+                            "The guests sharing the name of the removed guest should still be found"),
+                    () -> assertEquals(0, list.removeByName("Vali", "Ionescu")),
+                    () -> assertEquals(Optional.of(namesake2), list.getByName("Vali", "Ionescu")),
+                    () -> assertEquals(0, list.removeByName("Vali", "Ionescu")),
+                    () -> assertEquals(-1, list.checkByName("Vali", "Ionescu"))
+            );
+        }
+
+        @Test
+        void add_ShouldShareNameInstances_BetweenGuestsWithTheSameName() {
+            Guest namesake = new Guest(new String("Vali"), new String("Ionescu"), "vali.i@gmail.com", "+40700000001");
+            list.add(guest1);
+            list.add(namesake);
+
+            Assertions.assertAll(
+                    () -> assertSame(guest1.getFirstName(), namesake.getFirstName()),
+                    () -> assertSame(guest1.lastNameKey(), namesake.lastNameKey())
+            );
+        }
+
+        @Test
+        void remove_ShouldDropSharedNames_NoLongerUsedByAnyGuest() {
+            list.add(guest1);
+            list.add(guest2);
+            String removedFirstName = guest1.getFirstName();
+            String updatedFirstName = guest2.getFirstName();
+            list.removeByEmail("vali@gmail.com");
+            list.update(guest2, GuestField.FIRST_NAME, "Alexandru");
+
+            Guest namesake1 = new Guest(new String("Vali"), new String("Ionescu"), "vali.i@gmail.com", "+40700000001");
+            Guest namesake2 = new Guest(new String("Alex"), new String("Poiana"), "alex.p@gmail.com", "+40700000002");
+            list.add(namesake1);
+            list.add(namesake2);
+            Assertions.assertAll(
+                    () -> assertNotSame(removedFirstName, namesake1.getFirstName(),
+                            "The names of a removed guest should not stay in the pool"),
+                    () -> assertNotSame(updatedFirstName, namesake2.getFirstName(),
+                            "The old names of an updated guest should not stay in the pool"),
+                    () -> assertSame(guest2.lastNameKey(), namesake2.lastNameKey(),
+                            "The names still used should stay shared")
+            );
+        }
+    }
+
+    @Nested
+    class Serialization {
+        @Test
+        void deserializedList_ShouldKeepOrderAndLookups() throws Exception {
+            list.add(guest1);
+            list.add(guest2);
+            list.add(guest3);
+            list.add(guest4);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(list);
+            }
+            GuestsList restored;
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                restored = (GuestsList) in.readObject();
+            }
+
+            Assertions.assertAll(
+                    () -> assertEquals(list.getGuestsList(), restored.getGuestsList()),
+                    () -> assertEquals(list.getWaitList(), restored.getWaitList()),
+                    () -> assertEquals(2, restored.checkByEmail("stefan@gmail.com"),
+                            "The lookup indexes should be rebuilt after deserialization"),
+                    () -> assertEquals(2, restored.getNumberOfPlaces())
+            );
+        }
+    }
+
     @Nested
     class Search {
         @Test
@@ -359,6 +592,56 @@ class GuestsListTest {
             );
         }
 
+        @Test
+        void search_ShouldReturnSameResults_WithSearchIndex() {
+            GuestsList indexed = new GuestsList(3);
+            GuestsList scanned = new GuestsList(3);
+            indexed.enableSearchIndex();
+            List<Guest> guests = List.of(guest1, guest2, guest3, guest4,
+                    new Guest("Alina", "Albu", "alina@yahoo.com", "+40721000000"),
+                    new Guest("Ion", "Ionita", "ion@gmail.com", "+40731000000"));
+            for (Guest guest : guests) {
+                indexed.add(guest);
+                scanned.add(guest);
+            }
+            indexed.removeByEmail("alex@gmail.com");
+            scanned.removeByEmail("alex@gmail.com");
+            indexed.update(guest4, GuestField.LAST_NAME, "Alexandrescu");
+
+            for (String key : List.of("al", "ALE", "ion", "gmail.com", "+4072", "yahoo", "xyz", "escu")) {
+                assertEquals(scanned.search(key), indexed.search(key),
+                        "search() should return the same guests in the same order with the index: " + key);
+            }
+        }
+
+        @Test
+        void search_ShouldReturnSameResults_WithParallelSearch() throws Exception {
+            int size = GuestsList.PARALLEL_SEARCH_THRESHOLD * 2;
+            GuestsList parallel = new GuestsList(size / 2);
+            GuestsList sequential = new GuestsList(size / 2);
+            parallel.enableParallelSearch();
+            for (int i = 0; i < size; i++) {
+                Guest guest = new Guest("First" + i, "Last" + i % 97, "guest" + i + "@gmail.com", "+4070" + i);
+                parallel.add(guest);
+                sequential.add(guest);
+            }
+            // leave gaps in both lists
+            for (int i = 0; i < size; i += 7) {
+                parallel.removeByEmail("guest" + i + "@gmail.com");
+                sequential.removeByEmail("guest" + i + "@gmail.com");
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(4);
+            try {
+                for (String key : List.of("st12", "last5", "GUEST1", "@gmail.com", "xyz")) {
+                    assertEquals(sequential.search(key), pool.submit(() -> parallel.search(key)).get(),
+                            "search() should return the same guests in the same order in parallel: " + key);
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+
         @Test
         void search_ShouldReturnEmptyList_IfSearchIsUnsuccessful() {
             GuestsList list = new GuestsList(1);
@@ -380,4 +663,353 @@ class GuestsListTest {
             );
         }
     }
+
+    @Nested
+    class SimilarNames {
+        @Test
+        void findSimilarNames_ShouldIgnoreDiacritics_AndTypos() {
+            list.enableNameIndex();
+            Guest guest5 = new Guest("Ştefan", "Ştefănescu", "stefanescu@gmail.com", "+40772234567");
+            list.add(guest1);
+            list.add(guest2);
+            list.add(guest3);
+            list.add(guest5);
+
+            Assertions.assertAll(
+                    () -> assertEquals(List.of(guest5), list.findSimilarNames("Stefan", "Stefanescu", 5)),
+                    () -> assertEquals(List.of(guest1), list.findSimilarNames("Vlai", "Ionesuc", 5),
+                            "Swapped letters should count as one edit"),
+                    () -> assertEquals(List.of(guest3), list.findSimilarNames("Dianna", "Kroitoru", 5)),
+                    () -> assertEquals(List.of(), list.findSimilarNames("Maria", "Popescu", 5))
+            );
+        }
+
+        @Test
+        void findSimilarNames_ShouldReturnClosestFirst_UpToLimit() {
+            list.enableNameIndex();
+            Guest popescu = new Guest("Ion", "Popescu", "ion@gmail.com", "+40731000000");
+            Guest popesco = new Guest("Ion", "Popesco", "ion2@gmail.com", "+40731000001");
+            Guest papescu = new Guest("Ioan", "Papescu", "ioan@gmail.com", "+40731000002");
+            list.add(papescu);
+            list.add(popesco);
+            list.add(popescu);
+
+            Assertions.assertAll(
+                    () -> assertEquals(List.of(popescu, popesco, papescu), list.findSimilarNames("Ion", "Popescu", 5)),
+                    () -> assertEquals(List.of(popescu), list.findSimilarNames("Ion", "Popescu", 1))
+            );
+        }
+
+        @Test
+        void findSimilarNames_ShouldReturnSameResults_WithNameIndex() {
+            GuestsList indexed = new GuestsList(3);
+            GuestsList scanned = new GuestsList(3);
+            indexed.enableNameIndex();
+            List<Guest> guests = List.of(guest1, guest2, guest3, guest4,
+                    new Guest("Alina", "Albu", "alina@yahoo.com", "+40721000000"),
+                    new Guest("Ion", "Ionita", "ion@gmail.com", "+40731000000"),
+                    new Guest("Ioana", "Ionescu", "ioana@gmail.com", "+40731000001"));
+            for (Guest guest : guests) {
+                indexed.add(guest);
+                scanned.add(guest);
+            }
+            indexed.removeByEmail("alex@gmail.com");
+            scanned.removeByEmail("alex@gmail.com");
+            indexed.update(guest4, GuestField.LAST_NAME, "Dumitrescu");
+
+            for (List<String> name : List.of(List.of("Vali", "Ionescu"), List.of("Ion", "Ionescu"),
+                    List.of("Alex", "Poiana"), List.of("Stefan", "Dumitrescu"), List.of("Alina", "Alb"))) {
+                assertEquals(scanned.findSimilarNames(name.get(0), name.get(1), 10),
+                        indexed.findSimilarNames(name.get(0), name.get(1), 10),
+                        "findSimilarNames() should return the same guests in the same order with the index: " + name);
+            }
+        }
+    }
+
+    @Nested
+    class Suggest {
+        @Test
+        void suggest_ShouldReturnGuests_WithAnyFieldStartingWithPrefix() {
+            list.enablePrefixIndex();
+            Guest guest5 = new Guest("Ion", "Ionescu", "ionescu.ion@gmail.com", "+40772234567");
+            list.add(guest1);
+            list.add(guest2);
+            list.add(guest3);
+            list.add(guest5);
+
+            Assertions.assertAll(
+                    () -> assertEquals(List.of(guest5, guest1), list.suggest("IO", 10),
+                            "A guest matching by several fields should be returned once"),
+                    () -> assertEquals(List.of(guest2), list.suggest("alex@", 10)),
+                    () -> assertEquals(List.of(guest3), list.suggest("di", 10)),
+                    () -> assertEquals(List.of(guest5), list.suggest("io", 1)),
+                    () -> assertEquals(List.of(), list.suggest("popescu", 10))
+            );
+        }
+
+        @Test
+        void suggest_ShouldReturnSameResults_WithPrefixIndex() {
+            GuestsList indexed = new GuestsList(3);
+            GuestsList scanned = new GuestsList(3);
+            indexed.enablePrefixIndex();
+            List<Guest> guests = List.of(guest1, guest2, guest3, guest4,
+                    new Guest("Alina", "Albu", "alina@yahoo.com", "+40721000000"),
+                    new Guest("Ion", "Ionita", "ion@gmail.com", "+40731000000"));
+            for (Guest guest : guests) {
+                indexed.add(guest);
+                scanned.add(guest);
+            }
+            indexed.removeByEmail("alex@gmail.com");
+            scanned.removeByEmail("alex@gmail.com");
+            indexed.update(guest4, GuestField.LAST_NAME, "Alexandrescu");
+
+            for (String prefix : List.of("a", "AL", "ale", "ion", "io", "d", "stefan@", "x", "")) {
+                assertEquals(scanned.suggest(prefix, 10), indexed.suggest(prefix, 10),
+                        "suggest() should return the same guests in the same order with the index: " + prefix);
+            }
+        }
+    }
+
+    @Nested
+    class SortedRanges {
+        Guest guest5 = new Guest("Ion", "Ionescu", "ionescu.ion@gmail.com", "+40731000000");
+        Guest guest6 = new Guest("Ana", "ionescu", "ana@yahoo.com", "0722 000 000");
+
+        @BeforeEach
+        void beforeEach() {
+            list.enableSortedIndexes();
+            for (Guest guest : List.of(guest1, guest2, guest3, guest4, guest5, guest6)) {
+                list.add(guest);
+            }
+        }
+
+        @Test
+        void getRange_ShouldReturnGuests_SortedByField() {
+            Assertions.assertAll(
+                    () -> assertEquals(List.of(guest3, guest4, guest6, guest5, guest1, guest2),
+                            list.getSorted(SearchMode.BY_NAME)),
+                    () -> assertEquals(List.of(guest3, guest4), list.getRange(SearchMode.BY_NAME, "A", "Ion", 10),
+                            "The upper bound should be excluded"),
+                    () -> assertEquals(List.of(guest6, guest5, guest1), list.getRange(SearchMode.BY_NAME, "io", "j", 10)),
+                    () -> assertEquals(List.of(guest6, guest5), list.getRange(SearchMode.BY_NAME, "io", null, 2)),
+                    () -> assertEquals(List.of(), list.getRange(SearchMode.BY_NAME, "z", "a", 10)),
+                    () -> assertEquals(List.of(guest2, guest6, guest3), list.getRange(SearchMode.BY_EMAIL, null, "I", 10)),
+                    () -> assertEquals(List.of(guest2, guest6), list.getWithPrefix(SearchMode.BY_PHONE, "+4072", 10),
+                            "The phone numbers should be compared in the E.164 format"),
+                    () -> assertEquals(List.of(guest2, guest6), list.getWithPrefix(SearchMode.BY_PHONE, "072", 10)),
+                    () -> assertEquals(List.of(guest6, guest5, guest3),
+                            list.getRange(SearchMode.BY_PHONE, "0722", "+40771", 10)),
+                    () -> assertEquals(List.of(guest6, guest5, guest1), list.getWithPrefix(SearchMode.BY_NAME, "IONESCU", 10))
+            );
+        }
+
+        @Test
+        void getRange_ShouldReturnSameResults_WithoutSortedIndexes() {
+            GuestsList scanned = new GuestsList(2);
+            for (Guest guest : List.of(guest1, guest2, guest3, guest4, guest5, guest6)) {
+                scanned.add(guest);
+            }
+            list.removeByEmail("alex@gmail.com");
+            scanned.removeByEmail("alex@gmail.com");
+            list.update(guest4, GuestField.LAST_NAME, "Albu");
+            list.disableSortedIndexes();
+            list.enableSortedIndexes();
+            list.update(guest3, GuestField.PHONE_NUMBER, "+40729999999");
+
+            for (SearchMode mode : SearchMode.values()) {
+                assertEquals(scanned.getSorted(mode), list.getSorted(mode), mode.name());
+                for (String prefix : List.of("a", "ion", "+4072", "072", "d", "x", "")) {
+                    assertEquals(scanned.getWithPrefix(mode, prefix, 10), list.getWithPrefix(mode, prefix, 10),
+                            mode + " " + prefix);
+                    assertEquals(scanned.getRange(mode, prefix, "j", 3), list.getRange(mode, prefix, "j", 3),
+                            mode + " " + prefix);
+                }
+            }
+        }
+    }
+
+    @Nested
+    class Places {
+        Guest guest5 = new Guest("Ion", "Popescu", "ion@gmail.com", "+40731000000");
+
+        @BeforeEach
+        void fill() {
+            list.add(guest1);
+            list.add(guest2);
+            list.add(guest3);
+            list.add(guest4);
+            list.add(guest5);
+        }
+
+        @Test
+        void setNumberOfPlaces_ShouldPromoteFirstWaiting_WhenPlacesAreAdded() {
+            int moved = list.setNumberOfPlaces(4);
+            Assertions.assertAll(
+                    () -> assertEquals(2, moved),
+                    () -> assertEquals(List.of(guest1, guest2, guest3, guest4), list.getGuestsList()),
+                    () -> assertEquals(List.of(guest5), list.getWaitList()),
+                    () -> assertEquals(1, list.checkByEmail("ion@gmail.com")),
+                    () -> assertEquals(0, list.getNoAvailablePlaces())
+            );
+        }
+
+        @Test
+        void setNumberOfPlaces_ShouldPromoteEveryone_AndLeaveFreePlaces() {
+            int moved = list.setNumberOfPlaces(10);
+            Assertions.assertAll(
+                    () -> assertEquals(3, moved),
+                    () -> assertEquals(0, list.getTotalNoWaiting()),
+                    () -> assertEquals(5, list.getNoAvailablePlaces())
+            );
+        }
+
+        @Test
+        void setNumberOfPlaces_ShouldDemoteLastConfirmed_ToTheHeadOfTheWaitList() {
+            list.setNumberOfPlaces(4);
+            int moved = list.setNumberOfPlaces(1);
+            Assertions.assertAll(
+                    () -> assertEquals(-3, moved),
+                    () -> assertEquals(List.of(guest1), list.getGuestsList()),
+                    () -> assertEquals(List.of(guest2, guest3, guest4, guest5), list.getWaitList()),
+                    () -> assertEquals(1, list.checkByEmail("alex@gmail.com")),
+                    () -> assertEquals(4, list.checkByEmail("ion@gmail.com")),
+                    () -> assertEquals(1, list.removeByEmail("vali@gmail.com"),
+                            "The first demoted guest should be promoted first")
+            );
+            assertEquals(List.of(guest2), list.getGuestsList());
+        }
+
+        @Test
+        void setNumberOfPlaces_ShouldNotifyListeners_Once() {
+            List<String> changes = new ArrayList<>();
+            list.addListener(new GuestsListListener() {
+                @Override
+                public void guestPromoted(Guest guest) {
+                    changes.add("promoted " + guest.getEmail());
+                }
+
+                @Override
+                public void placesChanged(int numberOfPlaces, List<Guest> promoted, List<Guest> demoted) {
+                    changes.add(numberOfPlaces + " " + promoted.size() + " " + demoted.size());
+                }
+            });
+            list.setNumberOfPlaces(3);
+            list.setNumberOfPlaces(0);
+            assertEquals(List.of("3 1 0", "0 0 3"), changes);
+            assertThrows(IllegalArgumentException.class, () -> list.setNumberOfPlaces(-1));
+        }
+    }
+
+    @Nested
+    class WaitListSpill {
+
+        GuestsList spilled;
+        GuestsList reference;
+
+        @BeforeEach
+        void beforeEach(@TempDir Path directory) throws Exception {
+            spilled = new GuestsList(2);
+            reference = new GuestsList(2);
+            spilled.enableWaitListSpill(directory, 4);
+            for (int i = 0; i < 20; i++) {
+                Guest guest = guest(i);
+                assertEquals(reference.add(guest), spilled.add(copy(guest)));
+            }
+        }
+
+        Guest guest(int i) {
+            return new Guest("Prenume" + i, "Nume" + (i % 7), "guest" + i + "@gmail.com", "+4072" + (1000000 + i));
+        }
+
+        Guest copy(Guest guest) {
+            return new Guest(guest.getFirstName(), guest.getLastName(), guest.getEmail(), guest.getPhoneNumber());
+        }
+
+        void assertSameLists() {
+            Assertions.assertAll(
+                    () -> assertEquals(reference.getGuestsList(), spilled.getGuestsList()),
+                    () -> assertEquals(reference.getWaitList(), spilled.getWaitList()),
+                    () -> assertEquals(reference.getWaitList(), new ArrayList<>(spilled.getWaitListView())),
+                    () -> assertEquals(reference.getTotalNoWaiting(), spilled.getTotalNoWaiting()),
+                    () -> assertEquals(reference.getWaitListPage(3, 5), spilled.getWaitListPage(3, 5))
+            );
+        }
+
+        @Test
+        void spilledList_ShouldAnswerLikeTheList_InMemory() {
+            assertSameLists();
+            for (int i = 0; i < 22; i++) {
+                Guest guest = guest(i);
+                int index = i;
+                Assertions.assertAll(
+                        () -> assertEquals(reference.checkByEmail(guest.getEmail()), spilled.checkByEmail(guest.getEmail())),
+                        () -> assertEquals(reference.checkByPhone(guest.getPhoneNumber()),
+                                spilled.checkByPhone(guest.getPhoneNumber())),
+                        () -> assertEquals(reference.checkByName(guest.getFirstName(), guest.getLastName()),
+                                spilled.checkByName(guest.getFirstName(), guest.getLastName())),
+                        () -> assertEquals(reference.check(guest), spilled.check(guest)),
+                        () -> assertEquals(reference.getByEmail(guest.getEmail()), spilled.getByEmail(guest.getEmail()),
+                                "guest " + index)
+                );
+            }
+            Assertions.assertAll(
+                    () -> assertEquals(reference.search("nume3"), spilled.search("nume3")),
+                    () -> assertEquals(reference.search("072100001"), spilled.search("072100001")),
+                    () -> assertEquals(reference.suggest("guest1", 5), spilled.suggest("guest1", 5)),
+                    () -> assertEquals(reference.findSimilarNames("Prenume17", "Nume3", 3),
+                            spilled.findSimilarNames("Prenume17", "Nume3", 3)),
+                    () -> assertEquals(reference.getSorted(SearchMode.BY_EMAIL), spilled.getSorted(SearchMode.BY_EMAIL)),
+                    () -> assertEquals(reference.getWithPrefix(SearchMode.BY_NAME, "nume3", 5),
+                            spilled.getWithPrefix(SearchMode.BY_NAME, "nume3", 5))
+            );
+        }
+
+        @Test
+        void spilledList_ShouldPromoteInOrder_AfterRandomChanges() {
+            Random random = new Random(1);
+            for (int step = 0; step < 300; step++) {
+                Guest guest = guest(random.nextInt(40));
+                switch (random.nextInt(5)) {
+                    case 0 -> assertEquals(reference.add(guest), spilled.add(copy(guest)));
+                    case 1 -> assertEquals(reference.removeByEmail(guest.getEmail()),
+                            spilled.removeByEmail(guest.getEmail()));
+                    case 2 -> assertEquals(reference.removeByPhone(guest.getPhoneNumber()),
+                            spilled.removeByPhone(guest.getPhoneNumber()));
+                    case 3 -> {
+                        String email = "nou" + step + "@gmail.com";
+                        Optional<Guest> found = reference.getByEmail(guest.getEmail());
+                        Optional<Guest> copy = spilled.getByEmail(guest.getEmail());
+                        assertEquals(found, copy);
+                        if (found.isPresent()) {
+                            assertTrue(reference.update(found.get(), GuestField.EMAIL, email));
+                            assertTrue(spilled.update(copy.get(), GuestField.EMAIL, email));
+                        }
+                    }
+                    default -> {
+                        int places = random.nextInt(8);
+                        assertEquals(reference.setNumberOfPlaces(places), spilled.setNumberOfPlaces(places));
+                    }
+                }
+                assertSameLists();
+            }
+        }
+
+        @Test
+        void disableWaitListSpill_ShouldReadTheWaitListBack_AndDeleteTheFiles(@TempDir Path temp) throws Exception {
+            Path directory = temp.resolve("disabled");
+            GuestsList list = new GuestsList(1);
+            list.enableWaitListSpill(directory, 2);
+            for (int i = 0; i < 10; i++) {
+                list.add(guest(i));
+            }
+            assertTrue(list.isWaitListSpillEnabled());
+            list.disableWaitListSpill();
+            Assertions.assertAll(
+                    () -> assertFalse(list.isWaitListSpillEnabled()),
+                    () -> assertEquals(9, list.getWaitList().size()),
+                    () -> assertEquals(9, list.checkByEmail("guest9@gmail.com")),
+                    () -> assertEquals(0, Files.list(directory).count())
+            );
+        }
+    }
 }
\ No newline at end of file
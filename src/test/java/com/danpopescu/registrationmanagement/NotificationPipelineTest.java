@@ -0,0 +1,82 @@
+package com.danpopescu.registrationmanagement;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationPipelineTest {
+
+    @Test
+    void listener_ShouldPublishEveryChange_InOrder() {
+        List<GuestEvent> received = Collections.synchronizedList(new ArrayList<>());
+        StringWriter messages = new StringWriter();
+        NotificationPipeline pipeline = new NotificationPipeline(64, 16,
+                List.of(received::addAll, new PromotionNotifier(messages)));
+        GuestsList list = new GuestsList(1);
+        list.addListener(pipeline.listener("concert"));
+
+        Guest vali = new Guest("Vali", "Ionescu", "vali@gmail.com", "+40775534075");
+        Guest alex = new Guest("Alex", "Poiana", "alex@gmail.com", "+40721234567");
+        list.add(vali);
+        list.add(alex);
+        list.update(alex, GuestField.EMAIL, "alex.poiana@gmail.com");
+        list.removeByEmail("vali@gmail.com");
+        pipeline.close();
+
+        Assertions.assertAll(
+                () -> assertEquals(List.of(GuestEvent.Type.REGISTERED, GuestEvent.Type.WAITLISTED,
+                        GuestEvent.Type.UPDATED, GuestEvent.Type.REMOVED, GuestEvent.Type.PROMOTED),
+                        received.stream().map(GuestEvent::getType).collect(Collectors.toList())),
+                () -> assertEquals("alex@gmail.com", received.get(2).getOldValue()),
+                () -> assertEquals("alex.poiana@gmail.com", received.get(4).getEmail(),
+                        "The event should hold the fields of the guest at the time of the change"),
+                () -> assertEquals("concert", received.get(4).getEventId()),
+                () -> assertEquals(5, pipeline.getDelivered()),
+                () -> assertEquals(List.of(
+                        "EMAIL alex.poiana@gmail.com: Buna ziua, Alex Poiana! S-a eliberat un loc si ati fost " +
+                                "transferat pe lista de participanti la evenimentul concert.",
+                        "SMS +40721234567: Buna ziua, Alex Poiana! S-a eliberat un loc si ati fost " +
+                                "transferat pe lista de participanti la evenimentul concert."),
+                        messages.toString().lines().collect(Collectors.toList()))
+        );
+    }
+
+    @Test
+    void publish_ShouldDropEvents_WhenTheQueueIsFull() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        NotificationPipeline pipeline = new NotificationPipeline(4, 1, List.of(events -> {
+            blocked.countDown();
+            release.await();
+        }));
+        GuestsListListener listener = pipeline.listener(null);
+
+        listener.guestRemoved(new Guest("First0", "Last0", "guest0@gmail.com", "+40700000000"));
+        blocked.await();
+        // the consumer holds the first event, so the queue is full after 4 more
+        for (int i = 1; i <= 10; i++) {
+            listener.guestRemoved(new Guest("First" + i, "Last" + i, "guest" + i + "@gmail.com", "+40700" + (100000 + i)));
+        }
+        Assertions.assertAll(
+                () -> assertEquals(5, pipeline.getPublished()),
+                () -> assertEquals(6, pipeline.getDropped()),
+                () -> assertEquals(4, pipeline.getQueueDepth())
+        );
+
+        release.countDown();
+        pipeline.close();
+        Assertions.assertAll(
+                () -> assertEquals(5, pipeline.getDelivered()),
+                () -> assertEquals(5, pipeline.getBatches()),
+                () -> assertEquals(0, pipeline.getQueueDepth())
+        );
+    }
+}
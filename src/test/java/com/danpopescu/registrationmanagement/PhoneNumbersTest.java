@@ -0,0 +1,53 @@
+package com.danpopescu.registrationmanagement;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhoneNumbersTest {
+
+    @Test
+    void pack_ShouldNormalizeFormattingVariants() {
+        Assertions.assertAll(
+                () -> assertEquals(40733386463L, PhoneNumbers.pack("+40733386463")),
+                () -> assertEquals(40733386463L, PhoneNumbers.pack("+40 733-386-463")),
+                () -> assertEquals(40733386463L, PhoneNumbers.pack("0040733386463")),
+                () -> assertEquals(40733386463L, PhoneNumbers.pack("0733 386 463"),
+                        "A national number should get the default country code"),
+                () -> assertEquals(40733386463L, PhoneNumbers.pack("(0733) 386.463")),
+                () -> assertEquals(40733386463L, PhoneNumbers.pack(new StringBuilder("40733386463")))
+        );
+    }
+
+    @Test
+    void pack_ShouldReturnMinusOne_WhenPhoneNumberIsInvalid() {
+        Assertions.assertAll(
+                () -> assertEquals(-1, PhoneNumbers.pack("")),
+                () -> assertEquals(-1, PhoneNumbers.pack("+")),
+                () -> assertEquals(-1, PhoneNumbers.pack("0733a386463")),
+                () -> assertEquals(-1, PhoneNumbers.pack("++40733386463")),
+                () -> assertEquals(-1, PhoneNumbers.pack("+040733386463")),
+                () -> assertEquals(-1, PhoneNumbers.pack("000733386463")),
+                () -> assertEquals(-1, PhoneNumbers.pack("+1234567890123456"), "E.164 allows at most 15 digits")
+        );
+    }
+
+    @Test
+    void format_ShouldReturnE164Number() {
+        assertEquals("+40733386463", PhoneNumbers.format(PhoneNumbers.pack("0733 386 463")));
+    }
+
+    @Test
+    void formatContains_ShouldSearchTheE164Number() {
+        long packed = PhoneNumbers.pack("0733 386 463");
+        Assertions.assertAll(
+                () -> assertTrue(PhoneNumbers.formatContains(packed, "+40733386463")),
+                () -> assertTrue(PhoneNumbers.formatContains(packed, "+407")),
+                () -> assertTrue(PhoneNumbers.formatContains(packed, "386")),
+                () -> assertTrue(PhoneNumbers.formatContains(packed, "")),
+                () -> assertFalse(PhoneNumbers.formatContains(packed, "0734")),
+                () -> assertFalse(PhoneNumbers.formatContains(packed, "+407333864630"))
+        );
+    }
+}
@@ -0,0 +1,72 @@
+package com.danpopescu.registrationmanagement;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferTest {
+
+    @Test
+    void offer_ShouldReturnFalse_WhenFull() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(3, buffer.drainTo(drained, 3));
+        assertTrue(buffer.offer(4), "A drained slot should be reused");
+        buffer.drainTo(drained, 10);
+        assertEquals(List.of(0, 1, 2, 3, 4), drained);
+    }
+
+    @Test
+    void drainTo_ShouldKeepTheOrderOfEachProducer_WithConcurrentProducers() {
+        int producers = 4;
+        int perProducer = 10_000;
+        RingBuffer<long[]> buffer = new RingBuffer<>(256);
+        // a lost element fails the test instead of leaving the consumer waiting for it
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                long producer = p;
+                Thread thread = new Thread(() -> {
+                    for (long i = 0; i < perProducer; i++) {
+                        long[] element = {producer, i};
+                        while (!buffer.offer(element)) {
+                            Thread.yield();
+                        }
+                    }
+                });
+                thread.setDaemon(true);
+                threads.add(thread);
+                thread.start();
+            }
+
+            long[] next = new long[producers];
+            List<long[]> batch = new ArrayList<>();
+            int received = 0;
+            while (received < producers * perProducer) {
+                batch.clear();
+                int drained = buffer.drainTo(batch, 64);
+                if (drained == 0) {
+                    Thread.yield();
+                    continue;
+                }
+                received += drained;
+                for (long[] element : batch) {
+                    assertEquals(next[(int) element[0]]++, element[1], "The elements of a producer should stay in order");
+                }
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        });
+        assertEquals(0, buffer.size());
+    }
+}
@@ -0,0 +1,134 @@
+package com.danpopescu.registrationmanagement;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScriptRunnerTest {
+
+    @TempDir
+    Path directory;
+
+    private ScriptRunner run(EventRegistry registry, StringWriter out, int batchCommands, String... lines)
+            throws IOException {
+        ScriptRunner runner = new ScriptRunner(registry, null, out, batchCommands, Duration.ofMinutes(1));
+        runner.run(new BufferedReader(new StringReader(String.join("\n", lines))));
+        return runner;
+    }
+
+    @Test
+    void run_ShouldWriteOneResultPerCommand_AndSaveTheChanges() throws IOException {
+        StringWriter out = new StringWriter();
+        try (EventRegistry registry = new EventRegistry(directory, 4)) {
+            run(registry, out, 1000,
+                    "event,concert,1",
+                    "add,Ionescu,Vali,vali@gmail.com,+40775534075",
+                    "add,Poiana,Alex,alex@gmail.com,+40721234567",
+                    "# comentariu",
+                    "check,email,alex@gmail.com",
+                    "update,nume,Poiana,Alex,prenume,Alexandru",
+                    "remove,telefon,0775 534 075",  // Alex is promoted
+                    "guests",
+                    "waitlist_no");
+        }
+
+        assertEquals(List.of("concert", "0", "1", "1", "0", "1", "1",
+                "Nume: Poiana Alexandru, Email: alex@gmail.com, Telefon: +40721234567", "0"),
+                out.toString().lines().collect(Collectors.toList()));
+        try (EventRegistry registry = new EventRegistry(directory, 4)) {
+            assertEquals(List.of(new Guest("Alexandru", "Poiana", "alex@gmail.com", "+40721234567")),
+                    registry.withEvent("concert", GuestsList::getGuestsList));
+        }
+    }
+
+    @Test
+    void run_ShouldReportInvalidLines_AndGoOn() throws IOException {
+        StringWriter out = new StringWriter();
+        ScriptRunner runner;
+        try (EventRegistry registry = new EventRegistry(directory, 4)) {
+            runner = run(registry, out, 1000,
+                    "add,Ionescu,Vali,vali@gmail.com,+40775534075",
+                    "event,concert,2",
+                    "add,Ionescu,Vali,vali@gmail.com",
+                    "check,adresa,vali@gmail.com",
+                    "zbor",
+                    "subscribe_no");
+        }
+
+        List<String> lines = out.toString().lines().collect(Collectors.toList());
+        Assertions.assertAll(
+                () -> assertEquals(6, lines.size()),
+                () -> assertTrue(lines.get(0).startsWith("EROARE linia 1:"),
+                        "A command should fail before an event is selected"),
+                () -> assertTrue(lines.get(2).startsWith("EROARE linia 3:")),
+                () -> assertTrue(lines.get(3).startsWith("EROARE linia 4:")),
+                () -> assertTrue(lines.get(4).startsWith("EROARE linia 5:")),
+                () -> assertEquals("0", lines.get(5)),
+                () -> assertEquals(6, runner.getCommands()),
+                () -> assertEquals(4, runner.getErrors())
+        );
+    }
+
+    @Test
+    void run_ShouldSaveOncePerBatch() throws IOException {
+        StringBuilder script = new StringBuilder("event,concert,10\n");
+        for (int i = 0; i < 25; i++) {
+            script.append("add,Last").append(i).append(",First").append(i)
+                    .append(",guest").append(i).append("@gmail.com,+40700").append(String.format("%06d", i)).append('\n');
+        }
+        StringWriter out = new StringWriter();
+        ScriptRunner runner;
+        try (EventRegistry registry = new EventRegistry(directory, 4)) {
+            runner = run(registry, out, 10, script.toString());
+        }
+
+        try (EventRegistry registry = new EventRegistry(directory, 4)) {
+            Assertions.assertAll(
+                    () -> assertEquals(3, runner.getBatches(), "25 commands should be saved in 3 batches of at most 10"),
+                    () -> assertEquals(25, registry.withEvent("concert", GuestsList::getTotalNoRegistered))
+            );
+        }
+    }
+
+    @Test
+    void run_ShouldWriteTheOutputOfABatch_AfterSavingIt() throws IOException {
+        Path journal = directory.resolve("concert.journal");
+        List<Long> journalSizes = new ArrayList<>();
+        StringWriter out = new StringWriter() {
+            @Override
+            public void write(String str) {
+                if (str.contains("Nume:")) {
+                    try {
+                        journalSizes.add(Files.exists(journal) ? Files.size(journal) : 0);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                super.write(str);
+            }
+        };
+        try (EventRegistry registry = new EventRegistry(directory, 4)) {
+            run(registry, out, 1000,
+                    "event,concert,1",
+                    "add,Ionescu,Vali,vali@gmail.com,+40775534075",
+                    "guests");
+        }
+
+        assertEquals(1, journalSizes.size());
+        assertTrue(journalSizes.get(0) > 0, "The guest should be saved before it is written");
+    }
+}